@@ -0,0 +1,59 @@
+package ch.epfl.tchu.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe finale et non instanciable lançant l'ensemble des bancs d'essai de tCHu
+ * avec des paramètres communs, et écrivant leurs résultats au format JSON.
+ *
+ * Les résultats de référence sont conservés dans <code>bench/baselines</code> :
+ * un banc d'essai dont le temps moyen dépasse nettement celui de la référence
+ * signale une régression.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class Benchmarks {
+    
+    private static final String DEFAULT_RESULT_FILE = "bench/results/latest.json";
+    
+    private Benchmarks() {}
+    
+    /**
+     * Lance les bancs d'essai.
+     *
+     * @param args
+     *          fichier de résultats (facultatif), expression régulière
+     *          des bancs d'essai à lancer (facultative)
+     * @throws RunnerException
+     *          si les bancs d'essai ne peuvent pas être lancés
+     */
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : DEFAULT_RESULT_FILE;
+        String include = args.length > 1 ? args[1] : Benchmarks.class.getPackageName() + ".";
+        
+        Options options = new OptionsBuilder()
+                .include(include)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        
+        new Runner(options).run();
+    }
+    
+}
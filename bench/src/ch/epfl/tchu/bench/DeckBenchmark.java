@@ -0,0 +1,34 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.Deck;
+import ch.epfl.tchu.game.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Banc d'essai du mélange des pioches de cartes et de billets.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Thread)
+public class DeckBenchmark {
+    
+    private final Random rng = new Random(Fixtures.SEED);
+    
+    @Benchmark
+    public Deck<Card> cardDeck() {
+        return Deck.of(Constants.ALL_CARDS, rng);
+    }
+    
+    @Benchmark
+    public Deck<Ticket> ticketDeck() {
+        return Deck.of(Fixtures.TICKETS, rng);
+    }
+    
+}
@@ -0,0 +1,112 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Station;
+import ch.epfl.tchu.game.Ticket;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Classe finale et non instanciable construisant, de manière déterministe,
+ * les états de jeu utilisés par les bancs d'essai.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class Fixtures {
+    
+    static final long SEED = 2021;
+    static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+    
+    private Fixtures() {}
+    
+    /**
+     * Retourne un état de jeu obtenu en faisant jouer aux deux joueurs des coups simples
+     * (prise de la première route possible, sinon tirage de deux cartes de la pioche)
+     * jusqu'à ce qu'ils possèdent ensemble au moins le nombre de routes donné,
+     * ou que la partie ne puisse plus continuer.
+     *
+     * @param claimedRoutesCount
+     *          le nombre de routes que les joueurs doivent posséder ensemble
+     * @return
+     *          l'état de jeu en milieu de partie
+     */
+    static GameState midGame(int claimedRoutesCount) {
+        Random rng = new Random(SEED);
+        GameState state = GameState.initial(TICKETS, rng);
+        
+        for (PlayerId id : PlayerId.ALL) {
+            SortedBag<Ticket> initialTickets = state.topTickets(Constants.INITIAL_TICKETS_COUNT);
+            state = state
+                    .withoutTopTickets(Constants.INITIAL_TICKETS_COUNT)
+                    .withInitiallyChosenTickets(id, initialTickets);
+        }
+        
+        while (state.claimedRouteSet().size() < claimedRoutesCount && ! state.lastTurnBegins()) {
+            Route route = firstClaimableRoute(state);
+            
+            if (route != null) {
+                SortedBag<Card> claimCards = state.currentPlayerState().possibleClaimCards(route).get(0);
+                state = state.withClaimedRoute(route, claimCards);
+            } else if (state.canDrawCards()) {
+                for (int i = 0; i < 2; ++i)
+                    state = state.withCardsDeckRecreatedIfNeeded(rng).withBlindlyDrawnCard();
+            } else {
+                break;
+            }
+            
+            state = state.forNextTurn();
+        }
+        
+        return state;
+    }
+    
+    /**
+     * Retourne les routes d'un réseau construit par un seul joueur, comptant
+     * au plus le nombre de routes donné, chacune touchant une gare du réseau.
+     *
+     * @param count
+     *          le nombre maximal de routes
+     * @return
+     *          les routes du réseau
+     */
+    static List<Route> connectedRoutes(int count) {
+        List<Route> routes = new ArrayList<>();
+        Set<Station> stations = new HashSet<>(ChMap.routes().get(0).stations());
+        
+        boolean added = true;
+        while (routes.size() < count && added) {
+            added = false;
+            for (Route r : ChMap.routes()) {
+                if (routes.size() < count && ! routes.contains(r)
+                        && (stations.contains(r.station1()) || stations.contains(r.station2()))) {
+                    routes.add(r);
+                    stations.addAll(r.stations());
+                    added = true;
+                }
+            }
+        }
+        
+        return List.copyOf(routes);
+    }
+    
+    private static Route firstClaimableRoute(GameState state) {
+        for (Route r : ChMap.routes()) {
+            if (state.claimedRouteSet().isFree(r) && state.currentPlayerState().canClaimRoute(r))
+                return r;
+        }
+        
+        return null;
+    }
+    
+}
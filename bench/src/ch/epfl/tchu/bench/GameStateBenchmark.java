@@ -0,0 +1,75 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Banc d'essai des transitions de l'état de jeu en milieu de partie.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    
+    private final Random rng = new Random(Fixtures.SEED);
+    private GameState state;
+    private Route route;
+    private SortedBag<Card> claimCards;
+    private SortedBag<Ticket> drawnTickets;
+    
+    @Setup
+    public void setUp() {
+        state = Fixtures.midGame(20);
+        drawnTickets = state.topTickets(Constants.IN_GAME_TICKETS_COUNT);
+        
+        // Une route libre quelconque et les cartes, fictives, utilisées pour s'en emparer
+        route = ChMap.routes().stream()
+                .filter(r -> state.claimedRouteSet().isFree(r))
+                .findFirst()
+                .orElseThrow();
+        claimCards = route.possibleClaimCards().get(0);
+    }
+    
+    @Benchmark
+    public GameState initial() {
+        return GameState.initial(Fixtures.TICKETS, rng);
+    }
+    
+    @Benchmark
+    public GameState drawFaceUpCard() {
+        return state.withDrawnFaceUpCard(0);
+    }
+    
+    @Benchmark
+    public GameState drawBlindCard() {
+        return state.withBlindlyDrawnCard();
+    }
+    
+    @Benchmark
+    public GameState drawTickets() {
+        return state.withChosenAdditionalTickets(drawnTickets, SortedBag.of(drawnTickets.get(0)));
+    }
+    
+    @Benchmark
+    public GameState claimRoute() {
+        return state.withClaimedRoute(route, claimCards);
+    }
+    
+    @Benchmark
+    public GameState nextTurn() {
+        return state.forNextTurn();
+    }
+    
+}
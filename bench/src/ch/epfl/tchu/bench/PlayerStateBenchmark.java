@@ -0,0 +1,59 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Banc d'essai des calculs effectués sur l'état d'un joueur en milieu de partie :
+ * points des billets et cartes permettant de s'emparer des routes.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Benchmark)
+public class PlayerStateBenchmark {
+    
+    private PlayerState playerState;
+    
+    @Setup
+    public void setUp() {
+        playerState = Fixtures.midGame(20).currentPlayerState();
+    }
+    
+    @Benchmark
+    public int ticketPoints() {
+        return playerState.ticketPoints();
+    }
+    
+    @Benchmark
+    public int finalPoints() {
+        return playerState.finalPoints();
+    }
+    
+    @Benchmark
+    public void canClaimAllRoutes(Blackhole bh) {
+        for (Route r : ChMap.routes())
+            bh.consume(playerState.canClaimRoute(r));
+    }
+    
+    @Benchmark
+    public void possibleClaimCardsOfAllRoutes(Blackhole bh) {
+        for (Route r : ChMap.routes()) {
+            if (playerState.carCount() >= r.length()) {
+                List<SortedBag<Card>> claimCards = playerState.possibleClaimCards(r);
+                bh.consume(claimCards);
+            }
+        }
+    }
+    
+}
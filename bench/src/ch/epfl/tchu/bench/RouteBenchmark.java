@@ -0,0 +1,22 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Banc d'essai de l'obtention des cartes permettant de s'emparer de chaque route.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public class RouteBenchmark {
+    
+    @Benchmark
+    public void possibleClaimCardsOfAllRoutes(Blackhole bh) {
+        for (Route r : ChMap.routes())
+            bh.consume(r.possibleClaimCards());
+    }
+    
+}
@@ -0,0 +1,67 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.net.BinarySerdes;
+import ch.epfl.tchu.net.Serdes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Banc d'essai de la sérialisation et de la désérialisation des états de jeu,
+ * avec les encodages textuel et binaire.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Benchmark)
+public class SerdesBenchmark {
+    
+    private PublicGameState gameState;
+    private PlayerState playerState;
+    private String textGameState, binaryGameState, textPlayerState;
+    
+    @Setup
+    public void setUp() {
+        var state = Fixtures.midGame(20);
+        gameState = state;
+        playerState = state.currentPlayerState();
+        
+        textGameState = Serdes.PUBLIC_GAME_STATE.serialize(gameState);
+        binaryGameState = BinarySerdes.PUBLIC_GAME_STATE.serialize(gameState);
+        textPlayerState = Serdes.PLAYER_STATE.serialize(playerState);
+    }
+    
+    @Benchmark
+    public String serializeGameState() {
+        return Serdes.PUBLIC_GAME_STATE.serialize(gameState);
+    }
+    
+    @Benchmark
+    public PublicGameState deserializeGameState() {
+        return Serdes.PUBLIC_GAME_STATE.deserialize(textGameState);
+    }
+    
+    @Benchmark
+    public String serializeBinaryGameState() {
+        return BinarySerdes.PUBLIC_GAME_STATE.serialize(gameState);
+    }
+    
+    @Benchmark
+    public PublicGameState deserializeBinaryGameState() {
+        return BinarySerdes.PUBLIC_GAME_STATE.deserialize(binaryGameState);
+    }
+    
+    @Benchmark
+    public String serializePlayerState() {
+        return Serdes.PLAYER_STATE.serialize(playerState);
+    }
+    
+    @Benchmark
+    public PlayerState deserializePlayerState() {
+        return Serdes.PLAYER_STATE.deserialize(textPlayerState);
+    }
+    
+}
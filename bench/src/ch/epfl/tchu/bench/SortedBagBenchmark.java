@@ -0,0 +1,71 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+
+/**
+ * Banc d'essai des opérations sur les multiensembles, pour des mains de cartes
+ * (représentation spécialisée des énumérations) et des billets (représentation générale).
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Benchmark)
+public class SortedBagBenchmark {
+    
+    private SortedBag<Card> hand, claimCards, tunnelCards;
+    private SortedBag<Ticket> tickets, drawnTickets;
+    
+    @Setup
+    public void setUp() {
+        hand = new SortedBag.Builder<Card>()
+                .add(4, Card.BLUE)
+                .add(3, Card.RED)
+                .add(2, Card.WHITE)
+                .add(2, Card.LOCOMOTIVE)
+                .build();
+        claimCards = SortedBag.of(2, Card.BLUE, 1, Card.LOCOMOTIVE);
+        tunnelCards = SortedBag.of(3, Card.BLUE, 2, Card.LOCOMOTIVE);
+        tickets = SortedBag.of(ChMap.tickets().subList(0, 6));
+        drawnTickets = SortedBag.of(ChMap.tickets().subList(10, 13));
+    }
+    
+    @Benchmark
+    public SortedBag<Card> cardUnion() {
+        return hand.union(claimCards);
+    }
+    
+    @Benchmark
+    public SortedBag<Card> cardDifference() {
+        return hand.difference(claimCards);
+    }
+    
+    @Benchmark
+    public boolean cardContains() {
+        return hand.contains(claimCards);
+    }
+    
+    @Benchmark
+    public Set<SortedBag<Card>> cardSubsetsOfSize() {
+        return tunnelCards.subsetsOfSize(2);
+    }
+    
+    @Benchmark
+    public SortedBag<Ticket> ticketUnion() {
+        return tickets.union(drawnTickets);
+    }
+    
+    @Benchmark
+    public SortedBag<Ticket> ticketDifference() {
+        return tickets.union(drawnTickets).difference(drawnTickets);
+    }
+    
+}
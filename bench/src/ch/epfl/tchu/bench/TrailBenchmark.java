@@ -0,0 +1,37 @@
+package ch.epfl.tchu.bench;
+
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Trail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Banc d'essai du calcul du plus long chemin d'un réseau de taille croissante.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+@State(Scope.Benchmark)
+public class TrailBenchmark {
+    
+    @Param({"5", "10", "15", "20"})
+    public int routeCount;
+    
+    private List<Route> routes;
+    
+    @Setup
+    public void setUp() {
+        routes = Fixtures.connectedRoutes(routeCount);
+    }
+    
+    @Benchmark
+    public Trail longest() {
+        return Trail.longest(routes);
+    }
+    
+}
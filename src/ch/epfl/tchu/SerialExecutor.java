@@ -0,0 +1,106 @@
+package ch.epfl.tchu;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Classe publique et finale représentant un exécuteur qui exécute les tâches
+ * qui lui sont confiées l'une après l'autre, dans l'ordre où elles lui ont été
+ * confiées, sur les fils d'un exécuteur sous-jacent partagé.
+ *
+ * Aucun fil ne lui est propre : un fil de l'exécuteur sous-jacent n'est occupé
+ * que tant que des tâches sont en attente, de sorte que de nombreux exécuteurs
+ * séquentiels peuvent se partager un nombre borné de fils.
+ * Une exception levée par une tâche est transmise au gestionnaire d'exceptions
+ * du fil qui l'exécute, et n'empêche pas l'exécution des tâches suivantes.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class SerialExecutor implements Executor {
+
+    private final Executor executor;
+
+    // Tâches en attente, et vrai ssi une tâche les exécutant a été confiée à l'exécuteur sous-jacent
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean running = false;
+
+    /**
+     * Construit un exécuteur séquentiel exécutant ses tâches sur l'exécuteur donné.
+     *
+     * @param executor
+     *          l'exécuteur sous-jacent
+     * @throws NullPointerException
+     *          si l'exécuteur vaut <code>null</code>
+     */
+    public SerialExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Place la tâche donnée en attente, et l'exécute une fois
+     * toutes les tâches précédentes exécutées.
+     *
+     * @param task
+     *          la tâche à exécuter
+     * @throws NullPointerException
+     *          si la tâche vaut <code>null</code>
+     * @throws RejectedExecutionException
+     *          si l'exécuteur sous-jacent refuse d'exécuter les tâches
+     */
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(Objects.requireNonNull(task));
+        if (! running) {
+            // L'exécuteur sous-jacent peut exécuter les tâches immédiatement, sur ce fil
+            running = true;
+            try {
+                executor.execute(this::runTasks);
+            } catch (RejectedExecutionException e) {
+                running = false;
+                tasks.clear();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Attend que toutes les tâches confiées jusqu'ici aient été exécutées.
+     */
+    public void awaitCompletion() {
+        CountDownLatch done = new CountDownLatch(1);
+        execute(done::countDown);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error(e);
+        }
+    }
+
+    // Exécute les tâches en attente, dans l'ordre, jusqu'à ce qu'il n'y en ait plus
+    private void runTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, e);
+            }
+        }
+    }
+
+}
@@ -1,18 +1,45 @@
 package ch.epfl.tchu;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 /**
  * Multiensemble trié et immuable.
  *
+ * Les multiensembles (non vides) de constantes d'un type énuméré, comme les cartes,
+ * sont représentés par un tableau des multiplicités indexé par l'ordinal des constantes,
+ * ce qui évite l'allocation et le parcours d'un arbre lors des opérations les plus
+ * fréquentes. Les autres sont représentés par une table triée des multiplicités.
+ *
  * @param <E> le type des éléments du multiensemble.
  */
 @SuppressWarnings("ALL")
 public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
-    // Table associant sa multiplicité à chaque élément de l'ensemble.
+    private static final SortedBag<?> EMPTY = emptyBag();
+
+    // Constantes des types énumérés, obtenues une seule fois par type
+    private static final ClassValue<Object[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Object[] computeValue(Class<?> type) {
+            return type.getEnumConstants();
+        }
+    };
+
+    // Sous-ensembles déjà calculés, indexés par le multiensemble et la taille des sous-ensembles
+    private static final int SUBSETS_CAPACITY = 1 << 10;
+    private static final Map<List<Object>, Set<?>> SUBSETS = new ConcurrentHashMap<>();
+
+    // Table associant sa multiplicité à chaque élément de l'ensemble,
+    // ou null si le multiensemble est représenté par le tableau des multiplicités.
     // Invariant : toutes les multiplicités sont strictement positives (> 0).
     private final SortedMap<E, Integer> elements;
+    // Constantes du type énuméré des éléments et multiplicité de chacune d'elles,
+    // ou null si le multiensemble est représenté par la table des multiplicités.
+    // Invariant : tout multiensemble non vide de constantes énumérées utilise cette représentation.
+    private final E[] constants;
+    private final int[] counts;
+    private final int size;
 
     /**
      * Crée un multiensemble vide.
@@ -20,7 +47,18 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return un multiensemble vide.
      */
     public static <E extends Comparable<E>> SortedBag<E> of() {
-        return new SortedBag<E>(new TreeMap<>());
+        return castEmpty(EMPTY);
+    }
+
+    private static <E extends Comparable<E>> SortedBag<E> emptyBag() {
+        return new SortedBag<>(Collections.<E, Integer>emptySortedMap());
+    }
+
+    // Le multiensemble vide ne contenant aucun élément et étant immuable,
+    // il peut être partagé par tous les types d'éléments.
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<E>> SortedBag<E> castEmpty(SortedBag<?> empty) {
+        return (SortedBag<E>) empty;
     }
 
     /**
@@ -43,7 +81,16 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     public static <E extends Comparable<E>> SortedBag<E> of(int n, E e) {
         Preconditions.checkArgument(0 <= n);
-        return n == 0 ? of() : new SortedBag<>(new TreeMap<>(Map.of(e, n)));
+        if (n == 0)
+            return of();
+
+        var constants = constantsOf(e);
+        if (constants == null)
+            return new SortedBag<>(new TreeMap<>(Map.of(e, n)));
+
+        var counts = new int[constants.length];
+        counts[ordinal(e)] = n;
+        return new SortedBag<>(constants, counts, n);
     }
 
     /**
@@ -59,10 +106,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     public static <E extends Comparable<E>> SortedBag<E> of(int n1, E e1, int n2, E e2) {
         Preconditions.checkArgument(0 <= n1 && 0 <= n2);
-        var elements = new TreeMap<E, Integer>();
-        if (n1 > 0) elements.put(e1, n1);
-        if (n2 > 0) elements.put(e2, n2);
-        return new SortedBag<>(elements);
+        return new Builder<E>().add(n1, e1).add(n2, e2).build();
     }
 
     /**
@@ -77,12 +121,51 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
         return builder.build();
     }
 
-    // Construit un multiensemble avec la table des multiplicités donnée.
+    // Construit un multiensemble avec la table des multiplicités donnée,
+    // qui ne doit pas contenir de constantes énumérées.
     // Les multiplicités doivent toutes être strictement positives.
     // Attention: la table n'est pas copiée et ne doit donc jamais être modifiée !
     private SortedBag(SortedMap<E, Integer> elements) {
         assert elements.values().stream().allMatch(n -> n > 0);
+        assert elements.isEmpty() || constantsOf(elements.firstKey()) == null;
         this.elements = Collections.unmodifiableSortedMap(elements);
+        this.constants = null;
+        this.counts = null;
+        this.size = elements.values().stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    // Construit un multiensemble non vide de constantes énumérées avec les multiplicités données.
+    // Attention: le tableau n'est pas copié et ne doit donc jamais être modifié !
+    private SortedBag(E[] constants, int[] counts, int size) {
+        assert size > 0 && Arrays.stream(counts).sum() == size;
+        this.elements = null;
+        this.constants = constants;
+        this.counts = counts;
+        this.size = size;
+    }
+
+    // Construit un multiensemble de constantes énumérées avec les multiplicités données,
+    // qui ne doivent pas être négatives.
+    private static <E extends Comparable<E>> SortedBag<E> ofCounts(E[] constants, int[] counts) {
+        var size = 0;
+        for (var n : counts) size += n;
+        return size == 0 ? of() : new SortedBag<>(constants, counts, size);
+    }
+
+    // Retourne les constantes du type énuméré de l'élément donné, ou null s'il n'est pas énuméré.
+    // Le tableau est celui de getEnumConstants pour la classe déclarant l'élément,
+    // son type d'exécution est donc bien E[].
+    @SuppressWarnings("unchecked")
+    private static <E> E[] constantsOf(E e) {
+        return e instanceof Enum<?>
+                ? (E[]) ENUM_CONSTANTS.get(((Enum<?>) e).getDeclaringClass())
+                : null;
+    }
+
+    private static int ordinal(Object e) {
+        return ((Enum<?>) e).ordinal();
     }
 
     /**
@@ -90,7 +173,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return vrai ssi le multiensemble est vide.
      */
     public boolean isEmpty() {
-        return elements.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -98,9 +181,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return le nombre d'éléments dans le multiensemble.
      */
     public int size() {
-        return elements.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        return size;
     }
 
     /**
@@ -109,7 +190,9 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return la multiplicité de <code>element</code>, 0 s'il n'appartient pas au multiensemble
      */
     public int countOf(E element) {
-        return elements.getOrDefault(element, 0);
+        if (counts == null)
+            return elements.getOrDefault(element, 0);
+        return counts[ordinal(element)];
     }
 
     /**
@@ -118,7 +201,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return vrai ssi <code>element</code> appartient au multiensemble
      */
     public boolean contains(E element) {
-        return elements.containsKey(element);
+        return countOf(element) > 0;
     }
 
     /**
@@ -127,8 +210,16 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return vrai ssi <code>that</code> est un sous-ensemble de <code>this</code>
      */
     public boolean contains(SortedBag<E> that) {
-        return that.elements.entrySet().stream()
-                .allMatch(e -> e.getValue() <= countOf(e.getKey()));
+        if (that.size > size)
+            return false;
+        if (that.counts == null)
+            return that.elements.entrySet().stream()
+                    .allMatch(e -> e.getValue() <= countOf(e.getKey()));
+
+        // that n'est pas vide, donc this ne l'est pas non plus
+        for (var i = 0; i < that.counts.length; i++)
+            if (that.counts[i] > counts[i]) return false;
+        return true;
     }
 
     /**
@@ -139,6 +230,13 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     public E get(int index) {
         Objects.checkIndex(index, size());
+        if (counts != null) {
+            for (var i = 0; ; i++) {
+                if (index < counts[i])
+                    return constants[i];
+                index -= counts[i];
+            }
+        }
         for (var elementsAndCount : elements.entrySet()) {
             var count = elementsAndCount.getValue();
             if (index < count)
@@ -154,6 +252,15 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return l'union de <code>this</code> et de <code>that</code>
      */
     public SortedBag<E> union(SortedBag<E> that) {
+        if (that.isEmpty()) return this;
+        if (this.isEmpty()) return that;
+        if (counts != null) {
+            var newCounts = counts.clone();
+            for (var i = 0; i < newCounts.length; i++)
+                newCounts[i] += that.counts[i];
+            return new SortedBag<>(constants, newCounts, size + that.size);
+        }
+
         var newElements = new TreeMap<>(elements);
         that.elements.forEach((e, n) -> newElements.merge(e, n, Integer::sum));
         return new SortedBag<>(newElements);
@@ -165,6 +272,14 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return la différence entre <code>this</code> et <code>that</code>
      */
     public SortedBag<E> difference(SortedBag<E> that) {
+        if (this.isEmpty() || that.isEmpty()) return this;
+        if (counts != null) {
+            var newCounts = counts.clone();
+            for (var i = 0; i < newCounts.length; i++)
+                newCounts[i] = Math.max(0, newCounts[i] - that.counts[i]);
+            return ofCounts(constants, newCounts);
+        }
+
         var newElements = new TreeMap<>(elements);
         that.elements.forEach((eR, nR) ->
                 newElements.compute(eR, (e, n) -> n != null && n > nR ? n - nR : null));
@@ -173,24 +288,86 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
 
     /**
      * Retourne tous les sous-ensembles du multiensemble ayant une taille donnée.
+     * Les sous-ensembles sont énumérés dans l'ordre lexicographique de leurs éléments
+     * (p.ex. {A, A}, {A, B}, {B, B}), qui est l'ordre d'itération de l'ensemble retourné.
+     * Les ensembles retournés sont mémorisés, les mêmes petits multiensembles étant
+     * souvent examinés à plusieurs reprises.
      * @param size la taille des sous-ensembles à retourner
-     * @return l'ensemble des sous-ensembles de <code>this</code> de taille <code>size</code>
+     * @return l'ensemble (immuable) des sous-ensembles de <code>this</code> de taille <code>size</code>
      * @throws IllegalArgumentException si <code>size</code> n'est pas comprise entre 0 et
      * la taille du multiensemble
      */
     public Set<SortedBag<E>> subsetsOfSize(int size) {
         Preconditions.checkArgument(0 <= size && size <= size());
-        if (size == 0)
-            return Set.of(SortedBag.of());
-
-        var result = new HashSet<SortedBag<E>>();
-        for (var e1 : elements.keySet()) {
-            var s1 = SortedBag.of(e1);
-            this.difference(s1)
-                    .subsetsOfSize(size - 1)
-                    .forEach(e -> result.add(s1.union(e)));
+
+        var key = List.of(this, size);
+        var subsets = SUBSETS.get(key);
+        if (subsets == null) {
+            subsets = computeSubsetsOfSize(size);
+            // Le cache est simplement vidé lorsqu'il est plein
+            if (SUBSETS.size() >= SUBSETS_CAPACITY) SUBSETS.clear();
+            SUBSETS.put(key, subsets);
         }
-        return result;
+        return castSubsets(subsets);
+    }
+
+    // La clé du cache contenant le multiensemble lui-même, les sous-ensembles
+    // qui lui sont associés ont nécessairement des éléments du même type.
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<E>> Set<SortedBag<E>> castSubsets(Set<?> subsets) {
+        return (Set<SortedBag<E>>) subsets;
+    }
+
+    // Énumère les sous-ensembles de taille donnée sous la forme du nombre d'occurrences
+    // de chaque élément distinct, chaque sous-ensemble n'étant produit qu'une fois.
+    private Set<SortedBag<E>> computeSubsetsOfSize(int size) {
+        var distinct = new ArrayList<E>();
+        var available = new ArrayList<Integer>();
+        if (counts != null) {
+            for (var i = 0; i < counts.length; i++)
+                if (counts[i] > 0) { distinct.add(constants[i]); available.add(counts[i]); }
+        } else {
+            elements.forEach((e, n) -> { distinct.add(e); available.add(n); });
+        }
+
+        var max = available.stream().mapToInt(Integer::intValue).toArray();
+        var taken = new int[max.length];
+        fill(taken, max, 0, size);
+
+        var result = new LinkedHashSet<SortedBag<E>>();
+        do {
+            var builder = new Builder<E>();
+            for (var i = 0; i < taken.length; i++)
+                builder.add(taken[i], distinct.get(i));
+            result.add(builder.build());
+        } while (nextSubset(taken, max));
+        return Collections.unmodifiableSet(result);
+    }
+
+    // Prend le plus d'occurrences possibles des premiers éléments, à partir de l'index donné.
+    private static void fill(int[] taken, int[] max, int from, int count) {
+        for (var i = from; i < taken.length; i++) {
+            taken[i] = Math.min(max[i], count);
+            count -= taken[i];
+        }
+    }
+
+    // Passe au sous-ensemble suivant dans l'ordre lexicographique, et retourne faux s'il n'y en a plus :
+    // une occurrence de l'élément le plus à droite qui peut l'être est remplacée par des éléments plus
+    // grands, puis les éléments qui le suivent sont redistribués le plus à gauche possible.
+    private static boolean nextSubset(int[] taken, int[] max) {
+        var free = 0;
+        var following = 0;
+        for (var i = taken.length - 1; i >= 0; i--) {
+            if (taken[i] > 0 && free > 0) {
+                taken[i]--;
+                fill(taken, max, i + 1, following + 1);
+                return true;
+            }
+            free += max[i] - taken[i];
+            following += taken[i];
+        }
+        return false;
     }
 
     /**
@@ -199,6 +376,11 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     public List<E> toList() {
         var list = new ArrayList<E>(size());
+        if (counts != null) {
+            for (var i = 0; i < counts.length; i++)
+                for (var j = 0; j < counts[i]; j++) list.add(constants[i]);
+            return list;
+        }
         elements.forEach((v, n) -> list.addAll(Collections.nCopies(n, v)));
         return list;
     }
@@ -208,6 +390,8 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return un flot des éléments de <code>this</code>
      */
     public Stream<E> stream() {
+        if (counts != null)
+            return toList().stream();
         var builder = Stream.<E>builder();
         elements.forEach((v, n) -> { for (var i = 0; i < n; i++) builder.add(v); });
         return builder.build();
@@ -219,7 +403,27 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     @Override
     public Iterator<E> iterator() {
-        return stream().iterator();
+        if (counts == null)
+            return stream().iterator();
+
+        return new Iterator<E>() {
+            // Index de la prochaine constante et nombre d'occurrences restantes de celle-ci
+            private int i = 0, remaining = 0, left = size;
+
+            @Override
+            public boolean hasNext() {
+                return left > 0;
+            }
+
+            @Override
+            public E next() {
+                if (left == 0) throw new NoSuchElementException();
+                while (remaining == 0) remaining = counts[i++];
+                remaining--;
+                left--;
+                return constants[i - 1];
+            }
+        };
     }
 
     /**
@@ -227,7 +431,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return une table associant sa multiplicité à chaque élément de <code>this</code>
      */
     public Map<E, Integer> toMap() {
-        return elements;
+        return counts == null ? elements : Collections.unmodifiableSortedMap(countsMap());
     }
 
     /**
@@ -237,7 +441,15 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      * @return l'ensemble des éléments du multiensemble.
      */
     public Set<E> toSet() {
-        return elements.keySet();
+        return counts == null ? elements.keySet() : Collections.unmodifiableSortedSet(countsMap().navigableKeySet());
+    }
+
+    // Retourne une nouvelle table des multiplicités d'un multiensemble de constantes énumérées.
+    private TreeMap<E, Integer> countsMap() {
+        var map = new TreeMap<E, Integer>();
+        for (var i = 0; i < counts.length; i++)
+            if (counts[i] > 0) map.put(constants[i], counts[i]);
+        return map;
     }
 
     /**
@@ -246,7 +458,14 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     @Override
     public int hashCode() {
-        return elements.hashCode();
+        if (counts == null)
+            return elements.hashCode();
+
+        // Même valeur que la table des multiplicités correspondante
+        var hash = 0;
+        for (var i = 0; i < counts.length; i++)
+            if (counts[i] > 0) hash += constants[i].hashCode() ^ counts[i];
+        return hash;
     }
 
     /**
@@ -256,8 +475,17 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     @Override
     public boolean equals(Object that) {
-        return (that instanceof SortedBag<?>)
-                && (elements.equals(((SortedBag<?>) that).elements));
+        if (!(that instanceof SortedBag<?>))
+            return false;
+
+        var thatBag = (SortedBag<?>) that;
+        if (size != thatBag.size)
+            return false;
+        if (size == 0)
+            return true;
+        return counts == null
+                ? elements.equals(thatBag.elements)
+                : constants == thatBag.constants && Arrays.equals(counts, thatBag.counts);
     }
 
     /**
@@ -267,7 +495,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
     @Override
     public String toString() {
         var j = new StringJoiner(", ", "{", "}");
-        elements.forEach((e, n) -> j.add((n > 1 ? n + "×" : "") + e));
+        toMap().forEach((e, n) -> j.add((n > 1 ? n + "×" : "") + e));
         return j.toString();
     }
 
@@ -277,6 +505,10 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
      */
     public static final class Builder<E extends Comparable<E>> {
         private final SortedMap<E, Integer> elements = new TreeMap<>();
+        // Multiplicités des constantes énumérées, utilisées dès le premier élément énuméré ajouté
+        private E[] constants;
+        private int[] counts;
+        private int size;
 
         /**
          * Ajoute un nombre donné d'occurrences d'un élément au bâtisseur.
@@ -287,7 +519,17 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
          */
         public Builder<E> add(int count, E element) {
             Preconditions.checkArgument(0 <= count);
-            if (count > 0) elements.merge(element, count, Integer::sum);
+            if (count == 0) return this;
+
+            if (counts == null && elements.isEmpty()) {
+                constants = constantsOf(element);
+                if (constants != null) counts = new int[constants.length];
+            }
+            if (counts != null)
+                counts[ordinal(element)] += count;
+            else
+                elements.merge(element, count, Integer::sum);
+            size += count;
             return this;
         }
 
@@ -306,7 +548,12 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
          * @return le bâtisseur (<code>this</code>)
          */
         public Builder<E> add(SortedBag<E> that) {
-            that.elements.forEach((e, c) -> elements.merge(e, c, Integer::sum));
+            if (that.counts != null) {
+                for (var i = 0; i < that.counts.length; i++)
+                    add(that.counts[i], that.constants[i]);
+            } else {
+                that.elements.forEach((e, c) -> add(c, e));
+            }
             return this;
         }
 
@@ -315,7 +562,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
          * @return vrai ssi le bâtisseur est actuellement vide.
          */
         public boolean isEmpty() {
-            return elements.isEmpty();
+            return size == 0;
         }
 
         /**
@@ -323,9 +570,7 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
          * @return le nombre d'éléments ajoutés au bâtisseur jusqu'à présent
          */
         public int size() {
-            return elements.values().stream()
-                    .mapToInt(Integer::intValue)
-                    .sum();
+            return size;
         }
 
         /**
@@ -333,7 +578,9 @@ public final class SortedBag<E extends Comparable<E>> implements Iterable<E> {
          * @return un multiensemble contenant les éléments ajoutés à <code>this</code>
          */
         public SortedBag<E> build() {
-            return new SortedBag<>(new TreeMap<>(elements));
+            return counts != null
+                    ? ofCounts(constants, counts.clone())
+                    : new SortedBag<>(new TreeMap<>(elements));
         }
     }
 }
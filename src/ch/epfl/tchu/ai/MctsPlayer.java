@@ -0,0 +1,442 @@
+package ch.epfl.tchu.ai;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.MutableGameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe publique et finale représentant un joueur automatique de tCHu,
+ * qui choisit chacun de ses coups au moyen d'une recherche arborescente Monte-Carlo.
+ *
+ * Pour chaque décision, le joueur évalue tous les coups possibles en jouant un grand nombre
+ * de parties simulées jusqu'à leur terme, en répartissant ces simulations entre les coups
+ * au moyen de la formule UCB1. Comme il ne connaît que la partie publique de l'état
+ * de la partie, les informations qui lui sont cachées (cartes et billets de son adversaire,
+ * ordre des pioches) sont régulièrement tirées au hasard parmi celles compatibles
+ * avec ce qu'il sait (<i>déterminisation</i>).
+ *
+ * Les simulations sont réparties entre le fil appelant et des tâches exécutées
+ * par l'exécuteur donné, qui peut être partagé entre de nombreux joueurs (et donc
+ * de nombreuses parties), et s'arrêtent dès que le temps imparti à la décision est écoulé.
+ * Le coup finalement choisi est celui qui a été le plus simulé.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class MctsPlayer implements Player {
+
+    // Constante d'exploration de la formule UCB1
+    private static final double EXPLORATION = Math.sqrt(2);
+    // Nombre de parties simulées à partir d'une même déterminisation
+    private static final int ROLLOUTS_PER_DETERMINIZATION = 8;
+
+    private final SortedBag<Ticket> tickets;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long timeBudgetNanos;
+    private final Random rng;
+
+    private PlayerId ownId;
+    private PublicGameState gameState;
+    private PlayerState ownState;
+
+    // Billets vus par le joueur, dont il connaît donc l'emplacement (ou la disparition)
+    private SortedBag<Ticket> seenTickets = SortedBag.of();
+    private SortedBag<Ticket> initialTicketChoice;
+
+    private Route plannedRoute;
+    private SortedBag<Card> plannedCards;
+    private int drawnCardsCount;
+
+    /**
+     * Construit un joueur automatique.
+     *
+     * @param tickets
+     *          les billets de la partie
+     * @param executor
+     *          l'exécuteur utilisé pour les simulations, éventuellement partagé entre plusieurs joueurs
+     * @param parallelism
+     *          le nombre de fils de simulation utilisés pour chaque décision, fil appelant compris
+     * @param timeBudgetMillis
+     *          le temps de réflexion accordé à chaque décision, en millisecondes
+     * @param rng
+     *          le générateur aléatoire du joueur
+     * @throws IllegalArgumentException
+     *          si le nombre de fils ou le temps de réflexion n'est pas strictement positif
+     * @throws NullPointerException
+     *          si l'un des arguments est <code>null</code>
+     */
+    public MctsPlayer(SortedBag<Ticket> tickets, ExecutorService executor, int parallelism,
+                      long timeBudgetMillis, Random rng) {
+        Preconditions.checkArgument(parallelism > 0);
+        Preconditions.checkArgument(timeBudgetMillis > 0);
+
+        this.tickets = Objects.requireNonNull(tickets);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.rng = Objects.requireNonNull(rng);
+    }
+
+    // MARK:- Informations reçues
+
+    @Override
+    public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {
+        this.ownId = ownId;
+    }
+
+    @Override
+    public void receiveInfo(String info) {}
+
+    @Override
+    public void updateState(PublicGameState newState, PlayerState ownState) {
+        this.gameState = newState;
+        this.ownState = ownState;
+    }
+
+    @Override
+    public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+        initialTicketChoice = tickets;
+        seenTickets = seenTickets.union(tickets);
+    }
+
+    // MARK:- Décisions
+
+    @Override
+    public SortedBag<Ticket> chooseInitialTickets() {
+        int minCount = Constants.INITIAL_TICKETS_COUNT - Constants.DISCARDABLE_TICKETS_COUNT;
+        List<SortedBag<Ticket>> choices = ticketChoices(initialTicketChoice, minCount);
+
+        List<Move> moves = new ArrayList<>();
+        for (SortedBag<Ticket> chosen : choices) {
+            moves.add((state, rng) -> {
+                state.addInitiallyChosenTickets(ownId, chosen);
+                // Les adversaires n'ayant pas encore choisi leurs billets en reçoivent au hasard
+                for (PlayerId id : PlayerId.ALL) {
+                    if (state.ticketCount(id) == 0 && state.ticketsCount() >= minCount) {
+                        SortedBag<Ticket> drawn = state.topTickets(minCount);
+                        state.removeTopTickets(minCount);
+                        state.addInitiallyChosenTickets(id, drawn);
+                    }
+                }
+                return RolloutPolicy.playGame(state, ownId, rng);
+            });
+        }
+
+        return choices.get(search(moves, SortedBag.of()));
+    }
+
+    @Override
+    public TurnKind nextTurn() {
+        MutableGameState state = determinize(SortedBag.of(), rng);
+        List<TurnKind> kinds = new ArrayList<>();
+        List<Route> routes = new ArrayList<>();
+        List<SortedBag<Card>> cards = new ArrayList<>();
+        List<Move> moves = new ArrayList<>();
+
+        for (Route r : RolloutPolicy.ROUTES) {
+            if (RolloutPolicy.isClaimable(state, r)) {
+                SortedBag<Card> claimCards = RolloutPolicy.claimCards(state, r);
+                kinds.add(TurnKind.CLAIM_ROUTE);
+                routes.add(r);
+                cards.add(claimCards);
+                moves.add((s, rng) -> {
+                    RolloutPolicy.claimRoute(s, r, claimCards, rng);
+                    return RolloutPolicy.finishGame(s, ownId, rng);
+                });
+            }
+        }
+
+        if (state.canDrawCards()) {
+            kinds.add(TurnKind.DRAW_CARDS);
+            moves.add((s, rng) -> {
+                for (int i = 0; i < RolloutPolicy.IN_GAME_DRAW_CARDS_COUNT; ++i)
+                    RolloutPolicy.drawRandomCard(s, rng);
+                return RolloutPolicy.finishGame(s, ownId, rng);
+            });
+        }
+
+        if (state.ticketsCount() >= Constants.IN_GAME_TICKETS_COUNT) {
+            kinds.add(TurnKind.DRAW_TICKETS);
+            moves.add((s, rng) -> {
+                RolloutPolicy.drawTickets(s);
+                return RolloutPolicy.finishGame(s, ownId, rng);
+            });
+        }
+
+        // Aucun coup n'est possible : le tirage de billets est le moins dommageable
+        if (moves.isEmpty())
+            return TurnKind.DRAW_TICKETS;
+
+        int best = search(moves, SortedBag.of());
+        TurnKind kind = kinds.get(best);
+        if (kind == TurnKind.CLAIM_ROUTE) {
+            plannedRoute = routes.get(best);
+            plannedCards = cards.get(best);
+        }
+        drawnCardsCount = 0;
+
+        return kind;
+    }
+
+    @Override
+    public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+        seenTickets = seenTickets.union(options);
+        List<SortedBag<Ticket>> choices = ticketChoices(options, 1);
+
+        List<Move> moves = new ArrayList<>();
+        for (SortedBag<Ticket> chosen : choices) {
+            moves.add((state, rng) -> {
+                state.addChosenAdditionalTickets(options, chosen);
+                return RolloutPolicy.finishGame(state, ownId, rng);
+            });
+        }
+
+        return choices.get(search(moves, options));
+    }
+
+    private static List<SortedBag<Ticket>> ticketChoices(SortedBag<Ticket> options, int minCount) {
+        List<SortedBag<Ticket>> choices = new ArrayList<>();
+        for (int count = minCount; count <= options.size(); ++count)
+            choices.addAll(options.subsetsOfSize(count));
+
+        return choices;
+    }
+
+    @Override
+    public int drawSlot() {
+        boolean isLastDraw = ++drawnCardsCount == RolloutPolicy.IN_GAME_DRAW_CARDS_COUNT;
+
+        List<Integer> slots = new ArrayList<>();
+        slots.add(Constants.DECK_SLOT);
+        slots.addAll(Constants.FACE_UP_CARD_SLOTS);
+
+        List<Move> moves = new ArrayList<>();
+        for (int slot : slots) {
+            moves.add((state, rng) -> {
+                RolloutPolicy.drawCard(state, slot, rng);
+                if (! isLastDraw)
+                    RolloutPolicy.drawRandomCard(state, rng);
+                return RolloutPolicy.finishGame(state, ownId, rng);
+            });
+        }
+
+        return slots.get(search(moves, SortedBag.of()));
+    }
+
+    @Override
+    public Route claimedRoute() {
+        return plannedRoute;
+    }
+
+    @Override
+    public SortedBag<Card> initialClaimCards() {
+        return plannedCards;
+    }
+
+    @Override
+    public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+        List<SortedBag<Card>> choices = new ArrayList<>(options);
+        choices.add(SortedBag.of());
+
+        List<Move> moves = new ArrayList<>();
+        for (SortedBag<Card> additional : choices) {
+            moves.add((state, rng) -> {
+                // Les cartes tirées sont encore dans la pioche de l'état connu du joueur
+                SortedBag<Card> drawnCards = RolloutPolicy.drawTunnelCards(state, rng);
+                if (! additional.isEmpty())
+                    state.claimRoute(plannedRoute, plannedCards.union(additional));
+                state.addDiscardedCards(drawnCards);
+                return RolloutPolicy.finishGame(state, ownId, rng);
+            });
+        }
+
+        return choices.get(search(moves, SortedBag.of()));
+    }
+
+    // MARK:- Recherche
+
+    /**
+     * Coup évalué par la recherche : il est joué sur l'état donné, dont la partie est ensuite
+     * simulée jusqu'à son terme, et retourne le résultat obtenu par le joueur.
+     */
+    @FunctionalInterface
+    private interface Move {
+        double play(MutableGameState state, Random rng);
+    }
+
+    private MutableGameState determinize(SortedBag<Ticket> topTickets, Random rng) {
+        return MutableGameState.determinized(
+                gameState,
+                ownId,
+                ownState,
+                tickets.difference(seenTickets),
+                topTickets,
+                rng
+        );
+    }
+
+    private int search(List<Move> moves, SortedBag<Ticket> topTickets) {
+        if (moves.size() == 1)
+            return 0;
+
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        SearchStats stats = new SearchStats(moves.size());
+
+        List<Future<?>> workers = new ArrayList<>(parallelism - 1);
+        for (int i = 1; i < parallelism; ++i) {
+            long seed = rng.nextLong();
+            workers.add(executor.submit(() -> simulate(moves, topTickets, deadline, new Random(seed), stats)));
+        }
+        int best;
+        try {
+            simulate(moves, topTickets, deadline, new Random(rng.nextLong()), stats);
+        } finally {
+            best = stats.close();
+        }
+
+        // Les tâches qui n'ont pas encore commencé se terminent immédiatement, la recherche
+        // étant close ; attendre chacune d'elles permet de transmettre leurs éventuelles exceptions
+        for (Future<?> w : workers)
+            awaitWorker(w);
+        return best;
+    }
+
+    private static void awaitWorker(Future<?> worker) {
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new Error(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error(e);
+        }
+    }
+
+    private void simulate(List<Move> moves, SortedBag<Ticket> topTickets, long deadline,
+                          Random rng, SearchStats stats) {
+        if (! stats.enter())
+            return;
+
+        int moveCount = moves.size();
+        double[] rewards = new double[moveCount];
+        int[] visits = new int[moveCount];
+
+        MutableGameState state = null;
+        int root = 0;
+        // Les visites sont cumulées même en cas d'exception, afin que la recherche
+        // ne reste pas en attente d'un fil de simulation qui ne se terminera jamais
+        try {
+            // Chaque coup est simulé au moins une fois, même si le temps est écoulé
+            for (int total = 0; total < moveCount || System.nanoTime() < deadline; ++total) {
+                if (total % ROLLOUTS_PER_DETERMINIZATION == 0) {
+                    state = determinize(topTickets, rng);
+                    root = state.checkpoint();
+                }
+
+                int move = select(rewards, visits, total);
+                rewards[move] += moves.get(move).play(state, rng);
+                visits[move] += 1;
+                state.rollback(root);
+            }
+        } finally {
+            stats.merge(visits);
+        }
+    }
+
+    private static int select(double[] rewards, int[] visits, int total) {
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < visits.length; ++i) {
+            if (visits[i] == 0)
+                return i;
+
+            double value = rewards[i] / visits[i] + EXPLORATION * Math.sqrt(Math.log(total) / visits[i]);
+            if (value > bestValue) {
+                best = i;
+                bestValue = value;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Statistiques d'une recherche, cumulées sur l'ensemble des fils de simulation.
+     * Une fois la recherche terminée, les tâches de simulation qui n'ont pas encore
+     * commencé se terminent sans simuler.
+     */
+    private static final class SearchStats {
+
+        private final int[] visits;
+        private int runningCount;
+        private boolean isClosed;
+
+        private SearchStats(int moveCount) {
+            this.visits = new int[moveCount];
+        }
+
+        // Retourne vrai ssi la recherche n'est pas terminée, auquel cas le fil appelant y participe
+        private synchronized boolean enter() {
+            if (! isClosed)
+                ++runningCount;
+            return ! isClosed;
+        }
+
+        private synchronized void merge(int[] visits) {
+            for (int i = 0; i < visits.length; ++i)
+                this.visits[i] += visits[i];
+
+            --runningCount;
+            notifyAll();
+        }
+
+        // Termine la recherche, attend les fils de simulation en cours
+        // et retourne l'index du coup le plus simulé
+        private synchronized int close() {
+            isClosed = true;
+            boolean interrupted = false;
+            while (runningCount > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+
+            int best = 0;
+            for (int i = 1; i < visits.length; ++i) {
+                if (visits[i] > visits[best])
+                    best = i;
+            }
+            return best;
+        }
+
+    }
+
+}
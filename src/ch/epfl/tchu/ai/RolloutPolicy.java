@@ -0,0 +1,354 @@
+package ch.epfl.tchu.ai;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.MutableGameState;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.RouteSet;
+import ch.epfl.tchu.game.Station;
+import ch.epfl.tchu.game.StationConnectivity;
+import ch.epfl.tchu.game.StationDistances;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.tchu.game.Trip;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Classe finale et non instanciable contenant la stratégie rapide et légèrement aléatoire
+ * utilisée pour jouer les parties simulées (<i>rollouts</i>) du joueur automatique,
+ * directement sur un {@link MutableGameState}.
+ *
+ * Les coups joués respectent les mêmes règles que <code>Game.play</code>,
+ * y compris l'interdiction de s'emparer des deux routes d'une route double.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class RolloutPolicy {
+
+    private RolloutPolicy() {}
+
+    static final List<Route> ROUTES = ChMap.routes();
+    // Copie des routes sous forme de tableau, plus rapide à parcourir
+    private static final Route[] ROUTES_ARRAY = ROUTES.toArray(new Route[0]);
+
+    private static final int STATION_COUNT = ChMap.stations().stream()
+            .mapToInt(Station::id)
+            .max()
+            .orElse(0) + 1;
+
+    private static final StationDistances DISTANCES = StationDistances.chMap();
+
+    static final int IN_GAME_DRAW_CARDS_COUNT = 2;
+
+    // Nombre maximum de tours joués par partie simulée, afin de garantir qu'elle se termine
+    private static final int MAX_TURN_COUNT = 300;
+    // Bonus attribué aux routes situées sur un plus court chemin d'un billet non encore réalisé
+    private static final int TICKET_STATION_BONUS = 6;
+    private static final int SCORE_NOISE = 3;
+    // Longueur à partir de laquelle une route est toujours prise dès que possible
+    private static final int LONG_ROUTE_LENGTH = 3;
+    // Une autre route est prise une fois sur OTHER_ROUTE_ODDS plutôt que de tirer des cartes
+    private static final int OTHER_ROUTE_ODDS = 3;
+    // Écart de points correspondant à un résultat d'environ 0.88 (ou 0.12)
+    private static final double POINTS_SCALE = 20;
+
+    // MARK:- Coups possibles
+
+    /**
+     * Retourne vrai si et seulement si le joueur courant peut s'emparer de la route donnée,
+     * c'est-à-dire si ni elle ni sa voisine (s'il s'agit d'une route double) n'appartiennent
+     * à un joueur, et qu'il a assez de wagons et de cartes pour cela.
+     * Pour un tunnel, il doit de plus rester au moins 3 cartes à tirer.
+     */
+    static boolean isClaimable(MutableGameState state, Route route) {
+        // Les vérifications les moins coûteuses sont faites en premier
+        if (! state.canClaimRoute(route))
+            return false;
+        if (route.level() == Route.Level.UNDERGROUND
+                && state.deckSize() + state.discardsSize() < Constants.ADDITIONAL_TUNNEL_CARDS)
+            return false;
+
+        Route sibling = RouteSet.sibling(route);
+        return state.owner(route) == null
+                && (sibling == null || state.owner(sibling) == null);
+    }
+
+    /**
+     * Retourne les cartes que le joueur courant utilise pour tenter de s'emparer de la route donnée :
+     * la couleur qu'il possède en plus grand nombre, complétée si nécessaire par des locomotives.
+     * Le joueur doit pouvoir s'emparer de la route.
+     */
+    static SortedBag<Card> claimCards(MutableGameState state, Route route) {
+        PlayerId id = state.currentPlayerId();
+        int length = route.length();
+
+        Card best = null;
+        int bestCount = -1;
+        if (route.color() != null) {
+            best = Card.of(route.color());
+            bestCount = state.cardCount(id, best);
+        } else {
+            for (Card c : Card.CARS) {
+                int count = state.cardCount(id, c);
+                if (count > bestCount) {
+                    best = c;
+                    bestCount = count;
+                }
+            }
+        }
+
+        int colorCount = Math.min(length, bestCount);
+        return colorCount == 0
+                ? SortedBag.of(length, Card.LOCOMOTIVE)
+                : SortedBag.of(colorCount, best, length - colorCount, Card.LOCOMOTIVE);
+    }
+
+    /**
+     * Retourne les cartes additionnelles les moins coûteuses que le joueur courant peut jouer
+     * pour s'emparer d'un tunnel, ou <code>null</code> s'il ne peut pas en jouer assez.
+     */
+    static SortedBag<Card> additionalCards(MutableGameState state, SortedBag<Card> initialCards, int count) {
+        PlayerId id = state.currentPlayerId();
+        int locomotives = state.cardCount(id, Card.LOCOMOTIVE) - initialCards.countOf(Card.LOCOMOTIVE);
+
+        Card color = null;
+        int colorCount = 0;
+        for (Card c : Card.CARS) {
+            if (initialCards.countOf(c) > 0) {
+                color = c;
+                colorCount = Math.min(count, state.cardCount(id, c) - initialCards.countOf(c));
+            }
+        }
+
+        if (colorCount + locomotives < count)
+            return null;
+        return color == null
+                ? SortedBag.of(count, Card.LOCOMOTIVE)
+                : SortedBag.of(colorCount, color, count - colorCount, Card.LOCOMOTIVE);
+    }
+
+    // MARK:- Actions
+
+    /**
+     * Fait tenter au joueur courant de s'emparer de la route donnée au moyen des cartes données,
+     * en tirant les 3 cartes additionnelles s'il s'agit d'un tunnel.
+     */
+    static void claimRoute(MutableGameState state, Route route, SortedBag<Card> initialCards, Random rng) {
+        if (route.level() == Route.Level.OVERGROUND) {
+            state.claimRoute(route, initialCards);
+            return;
+        }
+
+        SortedBag<Card> drawnCards = drawTunnelCards(state, rng);
+        int additionalCount = route.additionalClaimCardsCount(initialCards, drawnCards);
+        if (additionalCount == 0) {
+            state.claimRoute(route, initialCards);
+        } else {
+            SortedBag<Card> additional = additionalCards(state, initialCards, additionalCount);
+            if (additional != null)
+                state.claimRoute(route, initialCards.union(additional));
+        }
+        state.addDiscardedCards(drawnCards);
+    }
+
+    /**
+     * Retire et retourne les 3 cartes du sommet de la pioche, comme lors de la tentative
+     * de prise de possession d'un tunnel. Ces cartes doivent être ensuite ajoutées à la défausse.
+     */
+    static SortedBag<Card> drawTunnelCards(MutableGameState state, Random rng) {
+        SortedBag.Builder<Card> drawnB = new SortedBag.Builder<>();
+        for (int i = 0; i < Constants.ADDITIONAL_TUNNEL_CARDS; ++i) {
+            state.recreateCardsDeckIfNeeded(rng);
+            drawnB.add(state.topCard());
+            state.removeTopCard();
+        }
+
+        return drawnB.build();
+    }
+
+    /**
+     * Fait tirer au joueur courant la carte de l'emplacement donné,
+     * la pioche étant au préalable recréée si nécessaire.
+     */
+    static void drawCard(MutableGameState state, int slot, Random rng) {
+        state.recreateCardsDeckIfNeeded(rng);
+        if (slot == Constants.DECK_SLOT)
+            state.drawBlindCard();
+        else
+            state.drawFaceUpCard(slot);
+    }
+
+    /**
+     * Fait tirer au joueur courant une carte, choisie au hasard
+     * parmi celles face visible et celle du sommet de la pioche.
+     */
+    static void drawRandomCard(MutableGameState state, Random rng) {
+        drawCard(state, rng.nextInt(Constants.FACE_UP_CARDS_COUNT + 1) - 1, rng);
+    }
+
+    /**
+     * Fait tirer des billets au joueur courant, qui garde celui demandant le moins de wagons
+     * pour être réalisé, et à égalité celui rapportant le moins de points.
+     */
+    static void drawTickets(MutableGameState state) {
+        PlayerId id = state.currentPlayerId();
+        SortedBag<Ticket> drawn = state.topTickets(Math.min(Constants.IN_GAME_TICKETS_COUNT, state.ticketsCount()));
+        StationConnectivity connectivity = state.connectivity(id);
+
+        Ticket kept = drawn.get(0);
+        int keptCars = DISTANCES.remainingCars(kept, connectivity);
+        for (Ticket t : drawn) {
+            int cars = DISTANCES.remainingCars(t, connectivity);
+            if (cars < keptCars || (cars == keptCars && maxPoints(t) < maxPoints(kept))) {
+                kept = t;
+                keptCars = cars;
+            }
+        }
+        state.addChosenAdditionalTickets(drawn, SortedBag.of(kept));
+    }
+
+    private static int maxPoints(Ticket ticket) {
+        int points = 0;
+        for (Trip trip : ticket.trips())
+            points = Math.max(points, trip.points());
+
+        return points;
+    }
+
+    // MARK:- Parties simulées
+
+    /**
+     * Joue un tour complet pour le joueur courant.
+     *
+     * Celui-ci s'empare de préférence d'une longue route ou d'une route située sur un plus court
+     * chemin d'un de ses billets non encore réalisés, et sinon tire des cartes,
+     * ou parfois s'empare d'une autre route.
+     * Il ne tire des billets que s'il ne peut rien faire d'autre.
+     */
+    static void playTurn(MutableGameState state, Random rng) {
+        boolean[] wanted = wantedStations(state, state.currentPlayerId());
+
+        Route best = null;
+        int bestScore = Integer.MIN_VALUE;
+        boolean bestWanted = false;
+        for (Route r : ROUTES_ARRAY) {
+            if (! isClaimable(state, r))
+                continue;
+
+            boolean isWanted = wanted[r.station1().id()] && wanted[r.station2().id()];
+            int score = r.claimPoints() + (isWanted ? TICKET_STATION_BONUS : 0) + rng.nextInt(SCORE_NOISE);
+            if (score > bestScore) {
+                best = r;
+                bestScore = score;
+                bestWanted = isWanted;
+            }
+        }
+
+        boolean claims = best != null && (bestWanted
+                || best.length() >= LONG_ROUTE_LENGTH
+                || ! state.canDrawCards()
+                || rng.nextInt(OTHER_ROUTE_ODDS) == 0);
+        if (claims) {
+            claimRoute(state, best, claimCards(state, best), rng);
+        } else if (state.canDrawCards()) {
+            for (int i = 0; i < IN_GAME_DRAW_CARDS_COUNT; ++i)
+                drawRandomCard(state, rng);
+        } else if (state.canDrawTickets()) {
+            drawTickets(state);
+        }
+    }
+
+    private static boolean[] wantedStations(MutableGameState state, PlayerId id) {
+        boolean[] wanted = new boolean[STATION_COUNT];
+        StationConnectivity connectivity = state.connectivity(id);
+
+        for (Ticket t : state.tickets(id)) {
+            if (isCompleted(t, connectivity))
+                continue;
+
+            // Seul le plus court des trajets d'un billet vers un pays est visé
+            Trip shortest = null;
+            int shortestDistance = StationDistances.UNREACHABLE;
+            for (Trip trip : t.trips()) {
+                int distance = DISTANCES.distance(trip.from(), trip.to());
+                if (distance < shortestDistance) {
+                    shortest = trip;
+                    shortestDistance = distance;
+                }
+            }
+            if (shortest == null)
+                continue;
+
+            Station to = shortest.to();
+            for (Station s = shortest.from(); s != to; s = DISTANCES.nextHop(s, to))
+                wanted[s.id()] = true;
+            wanted[to.id()] = true;
+        }
+
+        return wanted;
+    }
+
+    private static boolean isCompleted(Ticket ticket, StationConnectivity connectivity) {
+        for (Trip trip : ticket.trips()) {
+            if (connectivity.connected(trip.from(), trip.to()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Termine le tour du joueur courant, comme <code>Game.play</code>,
+     * et retourne vrai si et seulement si la partie continue.
+     */
+    static boolean endTurn(MutableGameState state) {
+        if (state.currentPlayerId() == state.lastPlayer())
+            return false;
+
+        state.nextTurn();
+        return true;
+    }
+
+    /**
+     * Termine la partie simulée, le tour du joueur courant étant déjà joué,
+     * et retourne le résultat obtenu par le joueur donné.
+     */
+    static double finishGame(MutableGameState state, PlayerId id, Random rng) {
+        for (int i = 0; i < MAX_TURN_COUNT && endTurn(state); ++i)
+            playTurn(state, rng);
+
+        return result(state, id);
+    }
+
+    /**
+     * Joue la partie simulée en entier, à partir du tour du joueur courant,
+     * et retourne le résultat obtenu par le joueur donné.
+     */
+    static double playGame(MutableGameState state, PlayerId id, Random rng) {
+        playTurn(state, rng);
+        return finishGame(state, id, rng);
+    }
+
+    /**
+     * Retourne le résultat de la partie pour le joueur donné, compris entre 0 et 1 et d'autant plus
+     * grand que son avance sur son meilleur adversaire est grande (0.5 en cas d'égalité).
+     * Tenir compte de l'écart de points plutôt que de la seule victoire rend l'évaluation
+     * des coups bien moins bruitée. Le bonus du plus long chemin est ignoré, son calcul
+     * étant bien trop coûteux pour être fait à la fin de chaque partie simulée.
+     */
+    static double result(MutableGameState state, PlayerId id) {
+        int points = state.finalPoints(id);
+        int bestOther = Integer.MIN_VALUE;
+        for (PlayerId other : PlayerId.ALL) {
+            if (other != id)
+                bestOther = Math.max(bestOther, state.finalPoints(other));
+        }
+
+        return 0.5 + 0.5 * Math.tanh((points - bestOther) / POINTS_SCALE);
+    }
+
+}
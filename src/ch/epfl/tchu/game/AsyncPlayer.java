@@ -0,0 +1,170 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.SerialExecutor;
+import ch.epfl.tchu.SortedBag;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Classe finale et instanciable représentant un joueur dont toutes les méthodes
+ * sont exécutées, dans l'ordre de leur appel, sur les fils d'un exécuteur partagé
+ * par plusieurs joueurs.
+ *
+ * Les méthodes ne retournant aucune valeur (informations, états, etc.) sont simplement
+ * placées dans la file d'attente du joueur, et retournent immédiatement : les envois
+ * à plusieurs joueurs se font ainsi en parallèle, et un joueur lent ne retarde pas les autres.
+ * Les méthodes retournant une valeur attendent que toutes les précédentes aient été exécutées.
+ *
+ * Une exception levée par une méthode placée en attente est relancée
+ * lors de l'appel suivant.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class AsyncPlayer implements Player {
+
+    private final Player player;
+    private final SerialExecutor executor;
+
+    // Première exception levée par une méthode placée en attente, à relancer
+    private volatile RuntimeException failure;
+
+    /**
+     * Construit un joueur exécutant les méthodes du joueur donné, l'une après l'autre,
+     * sur les fils de l'exécuteur donné.
+     *
+     * L'exécuteur doit pouvoir occuper un fil pour chacun des joueurs qui l'utilisent
+     * en même temps, puisqu'un joueur peut bloquer son fil en attendant une réponse.
+     *
+     * @param player
+     *          le joueur
+     * @param executor
+     *          l'exécuteur partagé
+     * @throws NullPointerException
+     *          si le joueur ou l'exécuteur vaut <code>null</code>
+     */
+    AsyncPlayer(Player player, Executor executor) {
+        this.player = Objects.requireNonNull(player);
+        this.executor = new SerialExecutor(executor);
+    }
+
+    /**
+     * Attend que toutes les méthodes placées en attente aient été exécutées.
+     * Les exceptions levées par ces dernières méthodes sont ignorées.
+     */
+    void close() {
+        executor.awaitCompletion();
+    }
+
+    private void enqueue(Runnable action) {
+        throwFailure();
+        executor.execute(() -> {
+            // Après un échec, les méthodes suivantes ne sont plus exécutées
+            if (failure != null)
+                return;
+
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        });
+    }
+
+    private <T> T await(Supplier<T> request) {
+        throwFailure();
+        FutureTask<T> response = new FutureTask<>(() -> {
+            throwFailure();
+            return request.get();
+        });
+        executor.execute(response);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new Error(cause);
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException e = failure;
+        if (e != null)
+            throw e;
+    }
+
+    // MARK:- Méthodes de Player
+
+    @Override
+    public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {
+        enqueue(() -> player.initPlayers(ownId, playerNames));
+    }
+
+    @Override
+    public void receiveInfo(String info) {
+        enqueue(() -> player.receiveInfo(info));
+    }
+
+    @Override
+    public void updateState(PublicGameState newState, PlayerState ownState) {
+        enqueue(() -> player.updateState(newState, ownState));
+    }
+
+    @Override
+    public void flush() {
+        enqueue(player::flush);
+    }
+
+    @Override
+    public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+        enqueue(() -> player.setInitialTicketChoice(tickets));
+    }
+
+    @Override
+    public SortedBag<Ticket> chooseInitialTickets() {
+        return await(player::chooseInitialTickets);
+    }
+
+    @Override
+    public TurnKind nextTurn() {
+        return await(player::nextTurn);
+    }
+
+    @Override
+    public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+        return await(() -> player.chooseTickets(options));
+    }
+
+    @Override
+    public int drawSlot() {
+        return await(player::drawSlot);
+    }
+
+    @Override
+    public Route claimedRoute() {
+        return await(player::claimedRoute);
+    }
+
+    @Override
+    public SortedBag<Card> initialClaimCards() {
+        return await(player::initialClaimCards);
+    }
+
+    @Override
+    public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+        return await(() -> player.chooseAdditionalCards(options));
+    }
+
+}
@@ -24,13 +24,23 @@ public final class CardState extends PublicCardState {
     private final Deck<Card> deck;
     private final SortedBag<Card> discards;
     
-    private CardState(List<Card> faceUpCards, Deck<Card> deck, SortedBag<Card> discards) {
+    CardState(List<Card> faceUpCards, Deck<Card> deck, SortedBag<Card> discards) {
         super(faceUpCards, deck.size(), discards.size());
         
         this.deck = deck;
         this.discards = discards;
     }
     
+    // Retourne la pioche
+    Deck<Card> deck() {
+        return deck;
+    }
+
+    // Retourne la défausse
+    SortedBag<Card> discards() {
+        return discards;
+    }
+
     /**
      * Retourne un état dans lequel les 5 cartes disposées faces visibles sont les 5 premières du tas donné,
      * la pioche est constituée des cartes du tas restantes, et la défausse est vide.
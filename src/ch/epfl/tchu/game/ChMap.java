@@ -3,7 +3,10 @@ package ch.epfl.tchu.game;
 import ch.epfl.tchu.game.Route.Level;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 @SuppressWarnings("ALL")
 public final class ChMap {
@@ -88,7 +91,7 @@ public final class ChMap {
             DE1, DE2, DE3, DE4, DE5, AT1, AT2, AT3, IT1, IT2, IT3, IT4, IT5, FR1, FR2, FR3, FR4);
 
     // Routes
-    private static final List<Route> ALL_ROUTES = List.of(
+    private static final List<Route> ALL_ROUTES = indexed(Route::new, List.of(
             new Route("AT1_STG_1", AT1, STG, 4, Level.UNDERGROUND, null),
             new Route("AT2_VAD_1", AT2, VAD, 1, Level.UNDERGROUND, Color.RED),
             new Route("BAD_BAL_1", BAD, BAL, 3, Level.UNDERGROUND, Color.RED),
@@ -176,7 +179,7 @@ public final class ChMap {
             new Route("WIN_ZUR_1", WIN, ZUR, 1, Level.OVERGROUND, Color.BLUE),
             new Route("WIN_ZUR_2", WIN, ZUR, 1, Level.OVERGROUND, Color.VIOLET),
             new Route("ZOU_ZUR_1", ZOU, ZUR, 1, Level.OVERGROUND, Color.GREEN),
-            new Route("ZOU_ZUR_2", ZOU, ZUR, 1, Level.OVERGROUND, Color.RED));
+            new Route("ZOU_ZUR_2", ZOU, ZUR, 1, Level.OVERGROUND, Color.RED)));
 
     // Tickets
     private static final Ticket deToNeighbors = ticketToNeighbors(DE, 0, 5, 13, 5);
@@ -184,7 +187,7 @@ public final class ChMap {
     private static final Ticket itToNeighbors = ticketToNeighbors(IT, 13, 6, 0, 11);
     private static final Ticket frToNeighbors = ticketToNeighbors(FR, 5, 14, 11, 0);
 
-    private static final List<Ticket> ALL_TICKETS = List.of(
+    private static final List<Ticket> ALL_TICKETS = indexed(Ticket::new, List.of(
             // City-to-city tickets
             new Ticket(BAL, BER, 5),
             new Ticket(BAL, BRI, 10),
@@ -231,7 +234,7 @@ public final class ChMap {
             deToNeighbors, deToNeighbors,
             atToNeighbors, atToNeighbors,
             itToNeighbors, itToNeighbors,
-            frToNeighbors, frToNeighbors);
+            frToNeighbors, frToNeighbors));
 
     private static Ticket ticketToNeighbors(List<Station> from, int de, int at, int it, int fr) {
         var trips = new ArrayList<Trip>();
@@ -241,4 +244,13 @@ public final class ChMap {
         if (fr != 0) trips.addAll(Trip.all(from, FR, fr));
         return new Ticket(trips);
     }
+
+    // Remplace chaque élément par une copie portant l'index de sa première occurrence
+    private static <T> List<T> indexed(BiFunction<T, Integer, T> withIndex, List<T> elements) {
+        Map<T, T> copies = new IdentityHashMap<>();
+        List<T> indexed = new ArrayList<>(elements.size());
+        for (T e : elements)
+            indexed.add(copies.computeIfAbsent(e, x -> withIndex.apply(x, indexed.size())));
+        return List.copyOf(indexed);
+    }
 }
@@ -3,6 +3,7 @@ package ch.epfl.tchu.game;
 import ch.epfl.tchu.Preconditions;
 import ch.epfl.tchu.SortedBag;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -13,15 +14,23 @@ import java.util.Random;
  *
  * Elle est générique, le type de cartes n'étant pas fixé à l'avance.
  *
+ * Tous les tas obtenus à partir d'un même tas mélangé partagent son tableau de cartes,
+ * chacun n'en connaissant que la taille : retirer des cartes du sommet d'un tas
+ * se fait donc en temps constant, sans aucune copie.
+ *
  * @author Mallory Henriet (311258)
  * @author Louis Hervé (312937)
  */
 public final class Deck<C extends Comparable<C>> {
 
-    private final List<C> cards;
+    // Cartes partagées entre les tas, le sommet du tas étant à l'index size - 1.
+    // Attention: le tableau ne doit jamais être modifié !
+    private final C[] cards;
+    private final int size;
     
-    private Deck(List<C> cards) {
-        this.cards = List.copyOf(cards);
+    private Deck(C[] cards, int size) {
+        this.cards = cards;
+        this.size = size;
     }
 
     /**
@@ -41,7 +50,21 @@ public final class Deck<C extends Comparable<C>> {
         List<C> toBeShuffled = cards.toList();
         Collections.shuffle(toBeShuffled, rng);
 
-        return new Deck<>(toBeShuffled);
+        @SuppressWarnings("unchecked")
+        C[] shuffled = (C[]) toBeShuffled.toArray(new Comparable<?>[0]);
+        return new Deck<>(shuffled, shuffled.length);
+    }
+
+    // Retourne un tas contenant les cartes données, dans l'ordre, le sommet étant la dernière
+    static <C extends Comparable<C>> Deck<C> ofOrdered(List<C> cards) {
+        @SuppressWarnings("unchecked")
+        C[] ordered = (C[]) cards.toArray(new Comparable<?>[0]);
+        return new Deck<>(ordered, ordered.length);
+    }
+
+    // Retourne les cartes du tas, dans l'ordre, le sommet étant la dernière
+    List<C> cards() {
+        return Collections.unmodifiableList(Arrays.asList(cards).subList(0, size));
     }
 
     /**
@@ -50,7 +73,7 @@ public final class Deck<C extends Comparable<C>> {
      * @return la taille du tas
      */
     public int size() {
-        return cards.size();
+        return size;
     }
 
     /**
@@ -61,13 +84,13 @@ public final class Deck<C extends Comparable<C>> {
      *          faux dans le cas contraire
      */
     public boolean isEmpty() {
-        return cards.isEmpty();
+        return size == 0;
     }
 
     /**
      * Retourne la carte au sommet du tas.
      *
-     * @implNote Le sommet du tas se situe à la fin de la liste.
+     * @implNote Le sommet du tas se situe à la fin du tableau.
      * @throws IllegalArgumentException
      *          si le tas de cartes est vide
      * @return
@@ -75,7 +98,7 @@ public final class Deck<C extends Comparable<C>> {
      */
     public C topCard() {
         Preconditions.checkArgument(! isEmpty());
-        return cards.get(size() - 1);
+        return cards[size - 1];
     }
 
     /**
@@ -103,7 +126,11 @@ public final class Deck<C extends Comparable<C>> {
      */
     public SortedBag<C> topCards(int count) {
         Preconditions.checkArgument(count >= 0 && count <= size());
-        return SortedBag.of(cards.subList(size() - count, size()));
+        SortedBag.Builder<C> topCardsB = new SortedBag.Builder<>();
+        for (int i = size - count; i < size; ++i)
+            topCardsB.add(cards[i]);
+        
+        return topCardsB.build();
     }
 
     /**
@@ -118,7 +145,7 @@ public final class Deck<C extends Comparable<C>> {
      */
     public Deck<C> withoutTopCards(int count) {
         Preconditions.checkArgument(count >= 0 && count <= size());
-        return new Deck<>(cards.subList(0, size() - count));
+        return new Deck<>(cards, size - count);
     }
 
 }
@@ -5,10 +5,18 @@ import ch.epfl.tchu.SortedBag;
 import ch.epfl.tchu.gui.Info;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +31,14 @@ public final class Game {
     
     private static final int IN_GAME_DRAW_CARDS_COUNT = 2;
     
+    // Exécuteur partagé par les joueurs des parties auxquelles aucun exécuteur n'est donné,
+    // dont les fils inactifs sont libérés après un certain temps
+    private static final ExecutorService DEFAULT_PLAYER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
+    
     private static void broadcastInfo(String info, Map<PlayerId, Player> players) {
         players.forEach((id, player) -> player.receiveInfo(info));
     }
@@ -31,12 +47,19 @@ public final class Game {
         players.forEach((id, player) -> player.updateState(newState, newState.playerState(id)));
     }
     
+    private static void flushAll(Map<PlayerId, Player> players) {
+        players.values().forEach(Player::flush);
+    }
+    
     /**
      * Méthode qui fait jouer une partie de tCHu aux joueurs donnés,
      * dont les noms figurent dans la table <code>playerNames</code>.
      * Les billets disponibles pour cette partie sont ceux de <code>tickets</code>,
      * et le générateur aléatoire <code>rng</code> est utilisé pour créer l'état initial du jeu ainsi que
      * pour mélanger les cartes de la défausse pour en faire une nouvelle pioche quand cela est nécessaire.
+     * Les méthodes de chaque joueur sont appelées, dans l'ordre, sur les fils d'un exécuteur
+     * partagé par toutes les parties, de sorte qu'un joueur lent à recevoir les informations
+     * ne retarde pas les autres.
      * 
      * @param players
      *          la table associative qui fait correspondre l'identité d'un joueur
@@ -50,22 +73,236 @@ public final class Game {
      *          le générateur aléatoire utilisé pour créer l'état initial du jeu ainsi que
      *          pour mélanger les cartes de la défausse pour en faire une nouvelle pioche
      * @throws IllegalArgumentException
-     *          si l'une des deux tables associatives a une taille différente de 2
+     *          si l'une des deux tables associatives a une taille différente de 2,
+     *          ou si un joueur tente de s'emparer d'une route déjà prise
+     *          ou dont la voisine l'est
      */
     public static void play(Map<PlayerId, Player> players, Map<PlayerId, String> playerNames, SortedBag<Ticket> tickets, Random rng) {
+        play(players, playerNames, tickets, rng, DEFAULT_PLAYER_EXECUTOR);
+    }
+    
+    /**
+     * Méthode qui fait jouer une partie de tCHu aux joueurs donnés, comme <code>play</code>,
+     * en appelant les méthodes de chaque joueur sur les fils de l'exécuteur donné.
+     * Cet exécuteur peut être partagé par plusieurs parties, mais doit pouvoir occuper
+     * simultanément un fil pour chacun de leurs joueurs.
+     *
+     * @param players
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à sa représentation dans la partie de tCHu en cours
+     * @param playerNames
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à la chaîne de caractères représentant son nom
+     * @param tickets
+     *          les billets disponibles de cette partie de tCHu
+     * @param rng
+     *          le générateur aléatoire utilisé pour créer l'état initial du jeu ainsi que
+     *          pour mélanger les cartes de la défausse pour en faire une nouvelle pioche
+     * @param playerExecutor
+     *          l'exécuteur sur lequel les méthodes des joueurs sont appelées
+     * @throws IllegalArgumentException
+     *          si l'une des deux tables associatives a une taille différente de 2,
+     *          ou si un joueur tente de s'emparer d'une route déjà prise
+     *          ou dont la voisine l'est
+     * @throws NullPointerException
+     *          si l'exécuteur vaut <code>null</code>
+     */
+    public static void play(
+            Map<PlayerId, Player> players,
+            Map<PlayerId, String> playerNames,
+            SortedBag<Ticket> tickets,
+            Random rng,
+            Executor playerExecutor
+    ) {
+        Preconditions.checkArgument(players.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(playerNames.size() == PlayerId.COUNT);
+        Objects.requireNonNull(playerExecutor);
+        
+        playAsync(players, playerExecutor, asyncPlayers -> playGame(asyncPlayers, playerNames, tickets, rng, true, 0, null));
+    }
+    
+    /**
+     * Méthode qui fait jouer une partie de tCHu aux joueurs donnés, comme <code>play</code>,
+     * et qui communique au consommateur donné un instantané de la partie au début de chaque tour
+     * dont le numéro est un multiple de <code>snapshotInterval</code>. Les instantanés des autres
+     * tours ne sont pas pris, la copie du générateur aléatoire n'étant pas gratuite.
+     * Le consommateur est appelé par le fil d'exécution de la partie, et doit donc
+     * retourner rapidement. Les méthodes des joueurs sont appelées sur les fils de
+     * l'exécuteur donné, comme avec <code>play</code>.
+     *
+     * @param players
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à sa représentation dans la partie de tCHu en cours
+     * @param playerNames
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à la chaîne de caractères représentant son nom
+     * @param tickets
+     *          les billets disponibles de cette partie de tCHu
+     * @param rng
+     *          le générateur aléatoire utilisé pour créer l'état initial du jeu ainsi que
+     *          pour mélanger les cartes de la défausse pour en faire une nouvelle pioche,
+     *          qui doit être une instance de <code>Random</code> elle-même
+     * @param snapshotInterval
+     *          le nombre de tours séparant deux instantanés
+     * @param snapshots
+     *          le consommateur des instantanés de la partie
+     * @param playerExecutor
+     *          l'exécuteur sur lequel les méthodes des joueurs sont appelées
+     * @throws IllegalArgumentException
+     *          si l'une des deux tables associatives a une taille différente de 2,
+     *          si <code>snapshotInterval</code> n'est pas strictement positif,
+     *          ou si un joueur tente de s'emparer d'une route déjà prise
+     *          ou dont la voisine l'est
+     * @throws NullPointerException
+     *          si le consommateur des instantanés ou l'exécuteur vaut <code>null</code>
+     */
+    public static void play(
+            Map<PlayerId, Player> players,
+            Map<PlayerId, String> playerNames,
+            SortedBag<Ticket> tickets,
+            Random rng,
+            int snapshotInterval,
+            Consumer<GameSnapshot> snapshots,
+            Executor playerExecutor
+    ) {
+        Preconditions.checkArgument(players.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(playerNames.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(snapshotInterval > 0);
+        Objects.requireNonNull(snapshots);
+        Objects.requireNonNull(playerExecutor);
+        
+        playAsync(players, playerExecutor, asyncPlayers -> playGame(asyncPlayers, playerNames, tickets, rng, true, snapshotInterval, snapshots));
+    }
+    
+    /**
+     * Méthode qui reprend, avec les joueurs donnés, la partie de tCHu dont un instantané
+     * est donné, par exemple après le redémarrage du serveur.
+     * Les joueurs sont initialisés comme au début d'une partie, puis la partie reprend
+     * au début du tour de l'instantané, et se poursuit comme avec <code>play</code>.
+     *
+     * @param players
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à sa représentation dans la partie de tCHu reprise
+     * @param playerNames
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à la chaîne de caractères représentant son nom
+     * @param snapshot
+     *          l'instantané de la partie à reprendre
+     * @param snapshotInterval
+     *          le nombre de tours séparant deux instantanés
+     * @param snapshots
+     *          le consommateur des instantanés pris au début des tours suivants
+     * @param playerExecutor
+     *          l'exécuteur sur lequel les méthodes des joueurs sont appelées
+     * @throws IllegalArgumentException
+     *          si l'une des deux tables associatives a une taille différente de 2,
+     *          si <code>snapshotInterval</code> n'est pas strictement positif,
+     *          ou si un joueur tente de s'emparer d'une route déjà prise
+     *          ou dont la voisine l'est
+     * @throws NullPointerException
+     *          si l'instantané, le consommateur des instantanés ou l'exécuteur vaut <code>null</code>
+     */
+    public static void resume(
+            Map<PlayerId, Player> players,
+            Map<PlayerId, String> playerNames,
+            GameSnapshot snapshot,
+            int snapshotInterval,
+            Consumer<GameSnapshot> snapshots,
+            Executor playerExecutor
+    ) {
         Preconditions.checkArgument(players.size() == PlayerId.COUNT);
         Preconditions.checkArgument(playerNames.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(snapshotInterval > 0);
+        Objects.requireNonNull(snapshots);
+        Objects.requireNonNull(playerExecutor);
+        
+        playAsync(players, playerExecutor, asyncPlayers -> {
+            asyncPlayers.forEach((playerId, player) -> player.initPlayers(playerId, playerNames));
+            return playTurns(asyncPlayers, playerNames, snapshot.state(), snapshot.rng(), snapshot.turn(), true, snapshotInterval, snapshots);
+        });
+    }
+    
+    // Fait jouer la partie donnée en appelant les méthodes de chaque joueur, dans l'ordre,
+    // sur les fils de l'exécuteur donné, afin que les informations et les états
+    // soient communiqués à tous les joueurs en parallèle
+    private static void playAsync(Map<PlayerId, Player> players, Executor playerExecutor, Function<Map<PlayerId, Player>, GameResult> game) {
+        Map<PlayerId, AsyncPlayer> asyncPlayers = new EnumMap<>(PlayerId.class);
+        players.forEach((id, player) -> asyncPlayers.put(id, new AsyncPlayer(player, playerExecutor)));
+        
+        try {
+            game.apply(Collections.unmodifiableMap(asyncPlayers));
+        } finally {
+            asyncPlayers.values().forEach(AsyncPlayer::close);
+        }
+    }
+    
+    /**
+     * Méthode qui fait jouer une partie de tCHu aux joueurs donnés sans leur communiquer
+     * aucune information textuelle sur son déroulement, et qui en retourne le résultat.
+     * Aucun message n'étant généré, elle est destinée aux simulations de parties
+     * entre joueurs automatiques.
+     * Les noms communiqués aux joueurs sont ceux de leur identité.
+     *
+     * @param players
+     *          la table associative qui fait correspondre l'identité d'un joueur
+     *          à sa représentation dans la partie de tCHu en cours
+     * @param tickets
+     *          les billets disponibles de cette partie de tCHu
+     * @param rng
+     *          le générateur aléatoire utilisé pour créer l'état initial du jeu ainsi que
+     *          pour mélanger les cartes de la défausse pour en faire une nouvelle pioche
+     * @throws IllegalArgumentException
+     *          si la table associative des joueurs a une taille différente de 2,
+     *          ou si un joueur tente de s'emparer d'une route déjà prise
+     *          ou dont la voisine l'est
+     * @return
+     *          le résultat de la partie
+     */
+    public static GameResult simulate(Map<PlayerId, Player> players, SortedBag<Ticket> tickets, Random rng) {
+        Preconditions.checkArgument(players.size() == PlayerId.COUNT);
+        
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            playerNames.put(id, id.name());
+        
+        return playGame(players, playerNames, tickets, rng, false, 0, null);
+    }
+    
+    // Retourne la fonction communiquant les informations aux joueurs,
+    // qui ne sont générées que si elles sont effectivement communiquées
+    private static Consumer<Supplier<String>> informer(Map<PlayerId, Player> players, boolean withInfos) {
+        return withInfos
+                ? info -> broadcastInfo(info.get(), players)
+                : info -> {};
+    }
+    
+    private static Map<PlayerId, Info> infosOf(Map<PlayerId, String> playerNames) {
+        Map<PlayerId, Info> infos = new EnumMap<>(PlayerId.class);
+        playerNames.forEach((id, name) -> infos.put(id, new Info(name)));
+        return infos;
+    }
+    
+    private static GameResult playGame(
+            Map<PlayerId, Player> players,
+            Map<PlayerId, String> playerNames,
+            SortedBag<Ticket> tickets,
+            Random rng,
+            boolean withInfos,
+            int snapshotInterval,
+            Consumer<GameSnapshot> snapshots
+    ) {
+        Consumer<Supplier<String>> inform = informer(players, withInfos);
         
         /* == Initialisation d'une partie de tCHu == */
         GameState state = GameState.initial(tickets, rng);
         
         players.forEach((playerId, player) -> player.initPlayers(playerId, playerNames));
     
-        Map<PlayerId, Info> infos = new EnumMap<>(PlayerId.class);
-        players.forEach((id, player) -> infos.put(id, new Info(playerNames.get(id))));
+        Map<PlayerId, Info> infos = infosOf(playerNames);
         
         // Annonce du joueur qui jouera en premier
-        broadcastInfo(infos.get(state.currentPlayerId()).willPlayFirst(), players);
+        PlayerId firstPlayerId = state.currentPlayerId();
+        inform.accept(() -> infos.get(firstPlayerId).willPlayFirst());
     
         // Choix initial des billets
         for (Player player : players.values()) {
@@ -78,39 +315,62 @@ public final class Game {
             Player player = entry.getValue();
             
             broadcastStateChange(state, players);
+            flushAll(players);
             state = state.withInitiallyChosenTickets(id, player.chooseInitialTickets());
         }
         
         // Annonce des billets gardés par chaque joueur
         GameState tempState = state;
-        infos.forEach((playerId, info) -> broadcastInfo(
-                info.keptTickets(tempState.playerState(playerId).ticketCount()),
-                players
+        infos.forEach((playerId, info) -> inform.accept(
+                () -> info.keptTickets(tempState.playerState(playerId).ticketCount())
         ));
         
+        return playTurns(players, playerNames, state, rng, 0, withInfos, snapshotInterval, snapshots);
+    }
+    
+    // Fait jouer les tours de la partie à partir de l'état donné, puis la termine
+    private static GameResult playTurns(
+            Map<PlayerId, Player> players,
+            Map<PlayerId, String> playerNames,
+            GameState state,
+            Random rng,
+            int turnCount,
+            boolean withInfos,
+            int snapshotInterval,
+            Consumer<GameSnapshot> snapshots
+    ) {
+        Consumer<Supplier<String>> inform = informer(players, withInfos);
+        Map<PlayerId, Info> infos = infosOf(playerNames);
+        
         /* == Logique d'une partie de tCHu == */
         boolean isPlaying = true;
         
         while (isPlaying) {
+            if (snapshots != null && turnCount % snapshotInterval == 0)
+                snapshots.accept(GameSnapshot.of(state, rng, turnCount));
+            
             PlayerId currentPlayerId = state.currentPlayerId();
             Player currentPlayer = players.get(currentPlayerId);
             Info currentPlayerInfo = infos.get(currentPlayerId);
+            ++turnCount;
             
             broadcastStateChange(state, players);
             // Annonce du joueur qui joue ce tour
-            broadcastInfo(currentPlayerInfo.canPlay(), players);
+            inform.accept(currentPlayerInfo::canPlay);
+            // Les joueurs qui attendent reçoivent d'un coup ce qui s'est passé depuis le tour précédent
+            flushAll(players);
             
             switch (currentPlayer.nextTurn()) {
                 case DRAW_TICKETS:
                     // Annonce du tirage de billets
-                    broadcastInfo(currentPlayerInfo.drewTickets(Constants.IN_GAME_TICKETS_COUNT), players);
+                    inform.accept(() -> currentPlayerInfo.drewTickets(Constants.IN_GAME_TICKETS_COUNT));
                     
                     SortedBag<Ticket> drawnTickets = state.topTickets(Constants.IN_GAME_TICKETS_COUNT);
                     SortedBag<Ticket> chosenTickets = currentPlayer.chooseTickets(drawnTickets);
                     state = state.withChosenAdditionalTickets(drawnTickets, chosenTickets);
                     
                     // Annonce des billets gardés par le joueur
-                    broadcastInfo(currentPlayerInfo.keptTickets(chosenTickets.size()), players);
+                    inform.accept(() -> currentPlayerInfo.keptTickets(chosenTickets.size()));
                     break;
                     
                 case DRAW_CARDS:
@@ -121,12 +381,12 @@ public final class Game {
                         if (slot == Constants.DECK_SLOT) {
                             state = state.withBlindlyDrawnCard();
                             // Annonce de la pioche d'une carte face cachée
-                            broadcastInfo(currentPlayerInfo.drewBlindCard(), players);
+                            inform.accept(currentPlayerInfo::drewBlindCard);
                         } else {
                             Card drawnCard = state.cardState().faceUpCard(slot);
                             state = state.withDrawnFaceUpCard(slot);
                             // Annonce de la pioche d'une carte face visible
-                            broadcastInfo(currentPlayerInfo.drewVisibleCard(drawnCard), players);
+                            inform.accept(() -> currentPlayerInfo.drewVisibleCard(drawnCard));
                         }
                         
                         // Mise à jour de l'état sauf lors du dernier tirage,
@@ -143,10 +403,10 @@ public final class Game {
                     if (route.level() == Route.Level.OVERGROUND) { // Route en surface
                         state = state.withClaimedRoute(route, initialCards);
                         // Annonce de la prise de possession de la route convoitée
-                        broadcastInfo(currentPlayerInfo.claimedRoute(route, initialCards), players);
+                        inform.accept(() -> currentPlayerInfo.claimedRoute(route, initialCards));
                     } else { // Route en tunnel
                         // Annonce de la tentative de prise de possession d'un tunnel
-                        broadcastInfo(currentPlayerInfo.attemptsTunnelClaim(route, initialCards), players);
+                        inform.accept(() -> currentPlayerInfo.attemptsTunnelClaim(route, initialCards));
                         
                         SortedBag.Builder<Card> drawnB = new SortedBag.Builder<>();
                         for (int i = 0; i < Constants.ADDITIONAL_TUNNEL_CARDS; ++i) {
@@ -158,12 +418,12 @@ public final class Game {
     
                         int addtitionalCardsCount = route.additionalClaimCardsCount(initialCards, drawnCards);
                         // Annonce de la pioche de cartes additionnelles
-                        broadcastInfo(currentPlayerInfo.drewAdditionalCards(drawnCards, addtitionalCardsCount), players);
+                        inform.accept(() -> currentPlayerInfo.drewAdditionalCards(drawnCards, addtitionalCardsCount));
     
                         if (addtitionalCardsCount == 0) {
                             // Les cartes tirées n'impliquent aucune carte additionnelle
                             state = state.withClaimedRoute(route, initialCards);
-                            broadcastInfo(currentPlayerInfo.claimedRoute(route, initialCards), players);
+                            inform.accept(() -> currentPlayerInfo.claimedRoute(route, initialCards));
                         } else {
                             // Les cartes tirées impliquent au moins une carte additionnelle
                             List<SortedBag<Card>> options = state
@@ -173,17 +433,17 @@ public final class Game {
                             if (options.isEmpty()) {
                                 // Annonce de l'échec de prise de possession du tunnel
                                 // TODO: enlever la duplication de la ligne
-                                broadcastInfo(currentPlayerInfo.didNotClaimRoute(route), players);
+                                inform.accept(() -> currentPlayerInfo.didNotClaimRoute(route));
                             } else if (addtitionalCardsCount > 0) {
                                 SortedBag<Card> chosenAdditional = currentPlayer.chooseAdditionalCards(options);
                                 if (! chosenAdditional.isEmpty()) {
                                     SortedBag<Card> totalCards = initialCards.union(chosenAdditional);
                                     state = state.withClaimedRoute(route, totalCards);
                                     // Annonce de la prise de possession du tunnel convoité
-                                    broadcastInfo(currentPlayerInfo.claimedRoute(route, totalCards), players);
+                                    inform.accept(() -> currentPlayerInfo.claimedRoute(route, totalCards));
                                 } else {
                                     // Annonce de l'échec de prise de possession du tunnel
-                                    broadcastInfo(currentPlayerInfo.didNotClaimRoute(route), players);
+                                    inform.accept(() -> currentPlayerInfo.didNotClaimRoute(route));
                                 }
                             }
                         }
@@ -198,11 +458,8 @@ public final class Game {
             
             if (state.lastTurnBegins()) {
                 // Annonce du début du dernier tour
-                broadcastInfo(
-                        currentPlayerInfo.lastTurnBegins(
-                                state.currentPlayerState().carCount()
-                        ), players
-                );
+                int carCount = state.currentPlayerState().carCount();
+                inform.accept(() -> currentPlayerInfo.lastTurnBegins(carCount));
             }
             
             if (currentPlayerId == state.lastPlayer())
@@ -250,10 +507,7 @@ public final class Game {
     
         // Annonce du (des) vainqueur(s) du bonus
         for (PlayerId bWinner : bonusWinners) {
-            broadcastInfo(
-                    infos.get(bWinner).getsLongestTrailBonus(longestTrails.get(bWinner)),
-                    players
-            );
+            inform.accept(() -> infos.get(bWinner).getsLongestTrailBonus(longestTrails.get(bWinner)));
         }
         
         // Annonce du (des) vainqueur(s)
@@ -264,11 +518,16 @@ public final class Game {
                     .map(playerNames::get)
                     .collect(Collectors.toUnmodifiableList());
             
-            broadcastInfo(Info.draw(winnerNames, winnerPoints), players);
+            int drawPoints = winnerPoints;
+            inform.accept(() -> Info.draw(winnerNames, drawPoints));
         } else {
             PlayerId winner = winners.get(0);
-            broadcastInfo(infos.get(winner).won(winnerPoints, results.get(winner.next())), players);
+            int points = winnerPoints;
+            inform.accept(() -> infos.get(winner).won(points, results.get(winner.next())));
         }
+        flushAll(players);
+        
+        return new GameResult(results, longestTrails, winners, bonusWinners, turnCount);
     }
         
 }
@@ -0,0 +1,115 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe publique, finale et immuable représentant le résultat
+ * d'une partie de tCHu terminée.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class GameResult {
+
+    private final Map<PlayerId, Integer> points;
+    private final Map<PlayerId, Trail> longestTrails;
+    private final List<PlayerId> winners, bonusWinners;
+    private final int turnCount;
+
+    /**
+     * Construit le résultat d'une partie de tCHu.
+     *
+     * @param points
+     *          le nombre de points final de chaque joueur, bonus compris
+     * @param longestTrails
+     *          le plus long chemin de chaque joueur
+     * @param winners
+     *          le (ou les, en cas d'égalité) vainqueur(s) de la partie
+     * @param bonusWinners
+     *          le (ou les) joueur(s) ayant obtenu le bonus du plus long chemin
+     * @param turnCount
+     *          le nombre de tours joués
+     * @throws IllegalArgumentException
+     *          si l'une des tables ne contient pas exactement un élément par joueur,
+     *          si la liste des vainqueurs est vide,
+     *          ou si le nombre de tours est strictement négatif
+     */
+    public GameResult(Map<PlayerId, Integer> points, Map<PlayerId, Trail> longestTrails,
+                      List<PlayerId> winners, List<PlayerId> bonusWinners, int turnCount) {
+        Preconditions.checkArgument(points.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(longestTrails.size() == PlayerId.COUNT);
+        Preconditions.checkArgument(! winners.isEmpty());
+        Preconditions.checkArgument(turnCount >= 0);
+
+        this.points = Map.copyOf(points);
+        this.longestTrails = Map.copyOf(longestTrails);
+        this.winners = List.copyOf(winners);
+        this.bonusWinners = List.copyOf(bonusWinners);
+        this.turnCount = turnCount;
+    }
+
+    /**
+     * Retourne le nombre de points final du joueur donné, bonus compris.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre de points final du joueur
+     */
+    public int points(PlayerId id) {
+        return points.get(id);
+    }
+
+    /**
+     * Retourne le plus long chemin du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le plus long chemin du joueur
+     */
+    public Trail longestTrail(PlayerId id) {
+        return longestTrails.get(id);
+    }
+
+    /**
+     * Retourne la liste des vainqueurs de la partie,
+     * qui en contient plusieurs en cas d'égalité.
+     *
+     * @return la liste des vainqueurs de la partie
+     */
+    public List<PlayerId> winners() {
+        return winners;
+    }
+
+    /**
+     * Retourne vrai si et seulement si la partie s'est terminée sur une égalité.
+     *
+     * @return vrai si et seulement si la partie s'est terminée sur une égalité
+     */
+    public boolean isDraw() {
+        return winners.size() > 1;
+    }
+
+    /**
+     * Retourne la liste des joueurs ayant obtenu le bonus du plus long chemin.
+     *
+     * @return la liste des joueurs ayant obtenu le bonus du plus long chemin
+     */
+    public List<PlayerId> bonusWinners() {
+        return bonusWinners;
+    }
+
+    /**
+     * Retourne le nombre de tours joués durant la partie.
+     *
+     * @return le nombre de tours joués durant la partie
+     */
+    public int turnCount() {
+        return turnCount;
+    }
+
+}
@@ -0,0 +1,277 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Classe publique, finale et immuable représentant un instantané d'une partie en cours,
+ * pris au début d'un tour : l'état complet du jeu (y compris l'ordre de la pioche
+ * et des billets), l'état du générateur aléatoire de la partie et le numéro du tour.
+ * Il suffit à reprendre la partie là où elle en était (voir <code>Game.resume</code>).
+ *
+ * Un instantané peut être sérialisé sous une forme binaire compacte et versionnée,
+ * dans laquelle les routes et les billets sont représentés par leur index
+ * dans les listes de {@link ChMap}, et les cartes par leur index dans <code>Card.ALL</code>.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x74434853; // "tCHS"
+    private static final byte VERSION = 1;
+
+    private static final List<Route> ROUTES = ChMap.routes();
+    private static final List<Ticket> TICKETS = ChMap.tickets();
+
+    // Valeur utilisée pour encoder l'absence de dernier joueur
+    private static final int NO_PLAYER = PlayerId.COUNT;
+
+    // Seule la classe Random peut être désérialisée : un instantané lu depuis le disque
+    // ne doit pas pouvoir faire instancier d'autres classes
+    private static final ObjectInputFilter RNG_FILTER =
+            ObjectInputFilter.Config.createFilter("maxdepth=1;maxrefs=1;java.util.Random;!*");
+
+    private final GameState state;
+    // Générateur aléatoire sérialisé, copié à chaque utilisation afin de rester immuable
+    private final byte[] rng;
+    private final int turn;
+
+    private GameSnapshot(GameState state, byte[] rng, int turn) {
+        this.state = state;
+        this.rng = rng;
+        this.turn = turn;
+    }
+
+    // Les routes et les billets n'appartenant pas au réseau ne peuvent pas être encodés
+    private static int indexOf(Route route) {
+        return Objects.checkIndex(route.index(), ROUTES.size());
+    }
+
+    private static int indexOf(Ticket ticket) {
+        return Objects.checkIndex(ticket.index(), TICKETS.size());
+    }
+
+    /**
+     * Retourne un instantané de la partie ayant l'état et le générateur aléatoire donnés
+     * au début du tour donné. Le générateur est copié, et peut donc continuer
+     * à être utilisé par la partie.
+     *
+     * @param state
+     *          l'état de la partie
+     * @param rng
+     *          le générateur aléatoire de la partie, qui doit être une instance
+     *          de <code>Random</code> elle-même
+     * @param turn
+     *          le numéro du tour, à partir de 0
+     * @throws IllegalArgumentException
+     *          si le numéro du tour est négatif, ou si le générateur est
+     *          une instance d'une sous-classe de <code>Random</code>
+     * @throws NullPointerException
+     *          si l'état ou le générateur vaut <code>null</code>
+     * @return
+     *          l'instantané de la partie
+     */
+    public static GameSnapshot of(GameState state, Random rng, int turn) {
+        Preconditions.checkArgument(turn >= 0);
+        Preconditions.checkArgument(rng.getClass() == Random.class);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rng);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new GameSnapshot(Objects.requireNonNull(state), bytes.toByteArray(), turn);
+    }
+
+    /**
+     * Retourne l'état de la partie.
+     *
+     * @return l'état de la partie
+     */
+    public GameState state() {
+        return state;
+    }
+
+    /**
+     * Retourne une nouvelle copie du générateur aléatoire de la partie,
+     * dans l'état où il était lors de la prise de l'instantané.
+     *
+     * @return une copie du générateur aléatoire de la partie
+     */
+    public Random rng() {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(rng))) {
+            in.setObjectInputFilter(RNG_FILTER);
+            return (Random) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new Error(e);
+        }
+    }
+
+    /**
+     * Retourne le numéro du tour au début duquel l'instantané a été pris, à partir de 0.
+     *
+     * @return le numéro du tour
+     */
+    public int turn() {
+        return turn;
+    }
+
+    // MARK:- Sérialisation
+
+    /**
+     * Retourne la forme sérialisée de l'instantané.
+     *
+     * @return la forme sérialisée de l'instantané
+     */
+    public byte[] serialize() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(turn);
+            out.writeShort(rng.length);
+            out.write(rng);
+
+            writeTickets(state.tickets().cards(), out);
+            CardState cardState = state.fullCardState();
+            for (Card c : cardState.faceUpCards())
+                out.writeByte(c.ordinal());
+            writeCards(cardState.deck().cards(), out);
+            writeCards(cardState.discards().toList(), out);
+
+            out.writeByte(state.currentPlayerId().ordinal());
+            out.writeByte(state.lastPlayer() == null ? NO_PLAYER : state.lastPlayer().ordinal());
+            for (PlayerId id : PlayerId.ALL) {
+                PlayerState playerState = state.playerState(id);
+                writeTickets(playerState.tickets().toList(), out);
+                writeCards(playerState.cards().toList(), out);
+
+                out.writeByte(playerState.routes().size());
+                for (Route r : playerState.routes())
+                    out.writeByte(indexOf(r));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Retourne l'instantané dont la forme sérialisée est donnée.
+     *
+     * @param serialized
+     *          la forme sérialisée de l'instantané
+     * @throws IllegalArgumentException
+     *          si la forme sérialisée n'est pas celle d'un instantané valide,
+     *          ou a été produite par une version différente
+     * @return
+     *          l'instantané correspondant
+     */
+    public static GameSnapshot deserialize(byte[] serialized) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+            Preconditions.checkArgument(in.readInt() == MAGIC);
+            Preconditions.checkArgument(in.readByte() == VERSION);
+            int turn = in.readInt();
+            Preconditions.checkArgument(turn >= 0);
+            byte[] rng = new byte[in.readUnsignedShort()];
+            in.readFully(rng);
+
+            Deck<Ticket> tickets = Deck.ofOrdered(readTickets(in));
+            List<Card> faceUpCards = new ArrayList<>(Constants.FACE_UP_CARDS_COUNT);
+            for (int i = 0; i < Constants.FACE_UP_CARDS_COUNT; ++i)
+                faceUpCards.add(readCard(in));
+            Deck<Card> deck = Deck.ofOrdered(readCards(in));
+            SortedBag<Card> discards = SortedBag.of(readCards(in));
+
+            PlayerId currentPlayerId = readPlayer(in);
+            int lastPlayer = in.readUnsignedByte();
+            Map<PlayerId, PlayerState> playerStates = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL) {
+                SortedBag<Ticket> playerTickets = SortedBag.of(readTickets(in));
+                SortedBag<Card> cards = SortedBag.of(readCards(in));
+
+                List<Route> routes = new ArrayList<>();
+                for (int i = in.readUnsignedByte(); i > 0; --i) {
+                    int index = in.readUnsignedByte();
+                    Preconditions.checkArgument(index < ROUTES.size());
+                    routes.add(ROUTES.get(index));
+                }
+                playerStates.put(id, new PlayerState(playerTickets, cards, routes));
+            }
+            Preconditions.checkArgument(in.read() == -1);
+
+            GameState state = new GameState(
+                    tickets,
+                    new CardState(faceUpCards, deck, discards),
+                    currentPlayerId,
+                    playerStates,
+                    lastPlayer == NO_PLAYER ? null : PlayerId.ALL.get(Objects.checkIndex(lastPlayer, PlayerId.COUNT))
+            );
+            GameSnapshot snapshot = new GameSnapshot(state, rng, turn);
+            // Vérifie que le générateur aléatoire peut être reconstruit
+            snapshot.rng();
+            return snapshot;
+        } catch (IOException | UncheckedIOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void writeTickets(List<Ticket> tickets, DataOutputStream out) throws IOException {
+        out.writeByte(tickets.size());
+        for (Ticket t : tickets)
+            out.writeByte(indexOf(t));
+    }
+
+    private static List<Ticket> readTickets(DataInputStream in) throws IOException {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = in.readUnsignedByte(); i > 0; --i)
+            tickets.add(TICKETS.get(in.readUnsignedByte()));
+
+        return tickets;
+    }
+
+    private static void writeCards(List<Card> cards, DataOutputStream out) throws IOException {
+        out.writeShort(cards.size());
+        for (Card c : cards)
+            out.writeByte(c.ordinal());
+    }
+
+    private static List<Card> readCards(DataInputStream in) throws IOException {
+        List<Card> cards = new ArrayList<>();
+        for (int i = in.readUnsignedShort(); i > 0; --i)
+            cards.add(readCard(in));
+
+        return cards;
+    }
+
+    private static Card readCard(DataInputStream in) throws IOException {
+        return Card.ALL.get(in.readUnsignedByte());
+    }
+
+    private static PlayerId readPlayer(DataInputStream in) throws IOException {
+        return PlayerId.ALL.get(in.readUnsignedByte());
+    }
+
+}
@@ -63,7 +63,7 @@ public final class GameState extends PublicGameState {
         );
     }
     
-    private GameState(Deck<Ticket> tickets, CardState cardState, PlayerId currentPlayerId, Map<PlayerId, PlayerState> playerState, PlayerId lastPlayer) {
+    GameState(Deck<Ticket> tickets, CardState cardState, PlayerId currentPlayerId, Map<PlayerId, PlayerState> playerState, PlayerId lastPlayer) {
         super(tickets.size(), cardState, currentPlayerId, Map.copyOf(playerState), lastPlayer);
         
         this.tickets = Objects.requireNonNull(tickets);
@@ -94,6 +94,16 @@ public final class GameState extends PublicGameState {
         return playerState(currentPlayerId());
     }
     
+    // Retourne la pioche des billets
+    Deck<Ticket> tickets() {
+        return tickets;
+    }
+
+    // Retourne l'état complet des cartes wagon/locomotive
+    CardState fullCardState() {
+        return cardState;
+    }
+
     // MARK:- Billets et cartes
     
     /**
@@ -327,11 +337,16 @@ public final class GameState extends PublicGameState {
      * @param cards
      *          les cartes au moyen desquelles le joueur courant
      *          s'est emparé de la route donnée
+     * @throws IllegalArgumentException
+     *          si la route appartient déjà à un joueur, ou si sa voisine
+     *          lui appartient s'il s'agit d'une route double
      * @return
      *          un état identique au récepteur où le joueur courant
      *          s'est emparé de la route donnée au moyen des cartes données
      */
     public GameState withClaimedRoute(Route route, SortedBag<Card> cards) {
+        Preconditions.checkArgument(claimedRouteSet().isFree(route));
+        
         Map<PlayerId, PlayerState> newPlayerState = new EnumMap<>(playerState);
         newPlayerState.put(
                 currentPlayerId(),
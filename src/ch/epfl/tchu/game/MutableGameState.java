@@ -0,0 +1,952 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Classe publique et finale représentant l'état complet d'une partie de tCHu,
+ * mais de manière modifiable, afin de pouvoir simuler un très grand nombre de coups
+ * (p. ex. lors de simulations ou de la réflexion d'un joueur automatique)
+ * sans allouer de nouvel état à chaque coup.
+ *
+ * Ses méthodes de modification suivent exactement les règles
+ * des méthodes <code>withX</code> de {@link GameState} correspondantes, et chacune
+ * d'elles peut être annulée au moyen de {@link #undo()} ou {@link #rollback(int)}.
+ * Un état modifiable peut être construit à partir d'un {@link GameState}
+ * et reconverti en {@link GameState} à tout moment.
+ *
+ * Cette classe n'est pas sûre vis-à-vis des fils d'exécution (<i>thread safe</i>) :
+ * chaque fil doit travailler sur son propre état.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class MutableGameState {
+
+    private static final int LAST_TURN_CAR_COUNT_THRESHOLD = 2;
+    private static final int MIN_TOTAL_CARDS_COUNT_TO_DRAW = 5;
+    private static final int NO_PLAYER = -1;
+
+    // Opérations enregistrées dans le journal d'annulation
+    private static final int
+            OP_GROUP = 0,
+            OP_REMOVE_TICKETS = 1,
+            OP_ADD_TICKETS = 2,
+            OP_DRAW_FACE_UP_CARD = 3,
+            OP_DRAW_BLIND_CARD = 4,
+            OP_REMOVE_TOP_CARD = 5,
+            OP_DISCARD = 6,
+            OP_RECREATE_DECK = 7,
+            OP_CLAIM_ROUTE = 8,
+            OP_NEXT_TURN = 9;
+
+    // Pioche des billets, le sommet étant à l'index ticketsCount - 1
+    private final Ticket[] tickets;
+    private int ticketsCount;
+
+    // Pioche des cartes (sommet à l'index deckSize - 1), cartes face visible
+    // et défausse, représentée par le nombre d'exemplaires de chaque carte
+    private Card[] deck;
+    private int deckSize;
+    private final Card[] faceUpCards = new Card[Constants.FACE_UP_CARDS_COUNT];
+    private final int[] discards = new int[Card.COUNT];
+    private int discardsSize;
+
+    // État des joueurs, indexé par l'ordinal de leur identité
+    private final int[][] cards = new int[PlayerId.COUNT][Card.COUNT];
+    private final int[] cardCounts = new int[PlayerId.COUNT];
+    private final Ticket[][] playerTickets = new Ticket[PlayerId.COUNT][];
+    private final int[] playerTicketCounts = new int[PlayerId.COUNT];
+    private final Route[][] routes = new Route[PlayerId.COUNT][];
+    private final int[] routeCounts = new int[PlayerId.COUNT];
+    private final int[] carCounts = new int[PlayerId.COUNT];
+    private final StationPartition[] partitions = new StationPartition[PlayerId.COUNT];
+    private final RouteMap<PlayerId> owners = new RouteMap<>();
+
+    private int currentPlayer, lastPlayer;
+
+    // Journal d'annulation : les données d'une opération sont suivies de son code,
+    // les éventuels objets nécessaires à son annulation étant stockés à part
+    private int[] log = new int[64];
+    private int logSize;
+    private Object[] objectLog = new Object[16];
+    private int objectLogSize;
+
+    /**
+     * Construit un état modifiable identique à l'état donné.
+     *
+     * @param state
+     *          l'état de la partie à copier
+     * @throws NullPointerException
+     *          si l'état donné est <code>null</code>
+     */
+    public MutableGameState(GameState state) {
+        List<Ticket> ticketsList = state.tickets().cards();
+        this.tickets = ticketsList.toArray(new Ticket[0]);
+        this.ticketsCount = tickets.length;
+
+        CardState cardState = state.fullCardState();
+        List<Card> deckList = cardState.deck().cards();
+        this.deck = deckList.toArray(new Card[Constants.TOTAL_CARDS_COUNT]);
+        this.deckSize = deckList.size();
+        for (int slot : Constants.FACE_UP_CARD_SLOTS)
+            faceUpCards[slot] = cardState.faceUpCard(slot);
+        for (Card c : Card.ALL)
+            discards[c.ordinal()] = cardState.discards().countOf(c);
+        this.discardsSize = cardState.discardsSize();
+
+        for (PlayerId id : PlayerId.ALL) {
+            int p = id.ordinal();
+            PlayerState playerState = state.playerState(id);
+
+            for (Card c : Card.ALL)
+                cards[p][c.ordinal()] = playerState.cards().countOf(c);
+            cardCounts[p] = playerState.cardCount();
+
+            playerTickets[p] = playerState.tickets().toList().toArray(new Ticket[0]);
+            playerTicketCounts[p] = playerTickets[p].length;
+
+            routes[p] = playerState.routes().toArray(new Route[0]);
+            routeCounts[p] = routes[p].length;
+            for (Route r : routes[p])
+                owners.put(r, id);
+
+            carCounts[p] = playerState.carCount();
+            partitions[p] = playerState.partition();
+        }
+
+        this.currentPlayer = state.currentPlayerId().ordinal();
+        this.lastPlayer = state.lastPlayer() == null ? NO_PLAYER : state.lastPlayer().ordinal();
+    }
+
+    /**
+     * Retourne un état modifiable compatible avec tout ce que sait le joueur donné de la partie,
+     * les informations qui lui sont cachées étant tirées au hasard au moyen du générateur donné.
+     *
+     * Les cartes ne se trouvant ni dans la main du joueur ni face visible sont réparties au hasard
+     * entre les mains des autres joueurs, la pioche et la défausse.
+     * Les billets dont l'emplacement est inconnu du joueur sont quant à eux répartis au hasard
+     * entre les mains des autres joueurs et la pioche, au sommet de laquelle sont placés
+     * les billets connus donnés (p. ex. ceux que le joueur est en train de choisir).
+     *
+     * @param state
+     *          l'état public de la partie
+     * @param ownId
+     *          l'identité du joueur
+     * @param ownState
+     *          l'état complet du joueur
+     * @param unseenTickets
+     *          les billets dont l'emplacement est inconnu du joueur
+     * @param topTickets
+     *          les billets se trouvant au sommet de la pioche, connus du joueur
+     * @param rng
+     *          le générateur aléatoire utilisé pour tirer les informations cachées
+     * @throws IllegalArgumentException
+     *          si les cartes ou les billets inconnus ne correspondent pas
+     *          au nombre de cartes et de billets cachés de l'état public
+     * @return
+     *          un état modifiable compatible avec les informations du joueur
+     */
+    public static MutableGameState determinized(PublicGameState state, PlayerId ownId, PlayerState ownState,
+                                                 SortedBag<Ticket> unseenTickets, SortedBag<Ticket> topTickets,
+                                                 Random rng) {
+        PublicCardState publicCards = state.cardState();
+        List<Card> unseenCards = Constants.ALL_CARDS
+                .difference(ownState.cards())
+                .difference(SortedBag.of(publicCards.faceUpCards()))
+                .toList();
+        Collections.shuffle(unseenCards, rng);
+        List<Ticket> shuffledTickets = unseenTickets.toList();
+        Collections.shuffle(shuffledTickets, rng);
+
+        int hiddenCardsCount = publicCards.deckSize() + publicCards.discardsSize();
+        int hiddenTicketsCount = state.ticketsCount() - topTickets.size();
+        for (PlayerId id : PlayerId.ALL) {
+            if (id != ownId) {
+                hiddenCardsCount += state.playerState(id).cardCount();
+                hiddenTicketsCount += state.playerState(id).ticketCount();
+            }
+        }
+        Preconditions.checkArgument(hiddenCardsCount == unseenCards.size());
+        Preconditions.checkArgument(hiddenTicketsCount >= 0 && hiddenTicketsCount <= shuffledTickets.size());
+
+        int cardIndex = 0, ticketIndex = 0;
+        Map<PlayerId, PlayerState> playerState = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            if (id == ownId) {
+                playerState.put(id, ownState);
+            } else {
+                PublicPlayerState publicState = state.playerState(id);
+                int cardCount = publicState.cardCount(), ticketCount = publicState.ticketCount();
+
+                playerState.put(id, new PlayerState(
+                        SortedBag.of(shuffledTickets.subList(ticketIndex, ticketIndex + ticketCount)),
+                        SortedBag.of(unseenCards.subList(cardIndex, cardIndex + cardCount)),
+                        publicState.routes()
+                ));
+                cardIndex += cardCount;
+                ticketIndex += ticketCount;
+            }
+        }
+
+        List<Ticket> ticketDeck = new ArrayList<>(
+                shuffledTickets.subList(ticketIndex, ticketIndex + state.ticketsCount() - topTickets.size())
+        );
+        List<Ticket> shuffledTopTickets = topTickets.toList();
+        Collections.shuffle(shuffledTopTickets, rng);
+        ticketDeck.addAll(shuffledTopTickets);
+
+        List<Card> cardDeck = unseenCards.subList(cardIndex, cardIndex + publicCards.deckSize());
+        SortedBag<Card> discards = SortedBag.of(unseenCards.subList(cardIndex + publicCards.deckSize(), unseenCards.size()));
+
+        return new MutableGameState(new GameState(
+                Deck.ofOrdered(ticketDeck),
+                new CardState(publicCards.faceUpCards(), Deck.ofOrdered(cardDeck), discards),
+                state.currentPlayerId(),
+                playerState,
+                state.lastPlayer()
+        ));
+    }
+
+    /**
+     * Retourne un état immuable identique à l'état actuel du récepteur.
+     *
+     * @return un état immuable identique à l'état actuel du récepteur
+     */
+    public GameState toGameState() {
+        List<Card> faceUp = List.of(faceUpCards);
+        SortedBag.Builder<Card> discardsB = new SortedBag.Builder<>();
+        for (Card c : Card.ALL)
+            discardsB.add(discards[c.ordinal()], c);
+
+        Map<PlayerId, PlayerState> playerState = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            int p = id.ordinal();
+            playerState.put(id, new PlayerState(
+                    SortedBag.of(Arrays.asList(playerTickets[p]).subList(0, playerTicketCounts[p])),
+                    cards(id),
+                    List.of(Arrays.copyOf(routes[p], routeCounts[p])),
+                    partitions[p]
+            ));
+        }
+
+        return new GameState(
+                Deck.ofOrdered(Arrays.asList(tickets).subList(0, ticketsCount)),
+                new CardState(faceUp, Deck.ofOrdered(Arrays.asList(deck).subList(0, deckSize)), discardsB.build()),
+                currentPlayerId(),
+                playerState,
+                lastPlayer()
+        );
+    }
+
+    // MARK:- Consultation de l'état
+
+    /**
+     * Retourne l'identité du joueur courant.
+     *
+     * @return l'identité du joueur courant
+     */
+    public PlayerId currentPlayerId() {
+        return PlayerId.ALL.get(currentPlayer);
+    }
+
+    /**
+     * Retourne l'identité du dernier joueur, ou <code>null</code> si elle n'est pas encore connue.
+     *
+     * @return l'identité du dernier joueur, ou <code>null</code> si elle n'est pas encore connue
+     */
+    public PlayerId lastPlayer() {
+        return lastPlayer == NO_PLAYER ? null : PlayerId.ALL.get(lastPlayer);
+    }
+
+    /**
+     * Retourne le nombre de billets de la pioche.
+     *
+     * @return le nombre de billets de la pioche
+     */
+    public int ticketsCount() {
+        return ticketsCount;
+    }
+
+    /**
+     * Retourne les <code>count</code> billets du sommet de la pioche.
+     *
+     * @param count
+     *          le nombre de billets à retourner
+     * @throws IllegalArgumentException
+     *          si <code>count</code> n'est pas compris entre 0 et la taille de la pioche (inclus)
+     * @return
+     *          les <code>count</code> billets du sommet de la pioche
+     */
+    public SortedBag<Ticket> topTickets(int count) {
+        Preconditions.checkArgument(count >= 0 && count <= ticketsCount);
+        return SortedBag.of(Arrays.asList(tickets).subList(ticketsCount - count, ticketsCount));
+    }
+
+    /**
+     * Retourne vrai si et seulement s'il est possible de tirer des billets.
+     *
+     * @return vrai si et seulement si la pioche des billets n'est pas vide
+     */
+    public boolean canDrawTickets() {
+        return ticketsCount > 0;
+    }
+
+    /**
+     * Retourne vrai si et seulement s'il est possible de tirer des cartes,
+     * c'est-à-dire si la pioche et la défausse contiennent entre elles au moins 5 cartes.
+     *
+     * @return vrai si et seulement s'il est possible de tirer des cartes
+     */
+    public boolean canDrawCards() {
+        return deckSize + discardsSize >= MIN_TOTAL_CARDS_COUNT_TO_DRAW;
+    }
+
+    /**
+     * Retourne la carte face visible à l'emplacement donné.
+     *
+     * @param slot
+     *          l'emplacement de la carte
+     * @throws IndexOutOfBoundsException
+     *          si l'emplacement n'est pas compris entre 0 (inclus) et 5 (exclus)
+     * @return
+     *          la carte face visible à l'emplacement donné
+     */
+    public Card faceUpCard(int slot) {
+        return faceUpCards[Objects.checkIndex(slot, Constants.FACE_UP_CARDS_COUNT)];
+    }
+
+    /**
+     * Retourne la taille de la pioche de cartes.
+     *
+     * @return la taille de la pioche de cartes
+     */
+    public int deckSize() {
+        return deckSize;
+    }
+
+    /**
+     * Retourne la taille de la défausse.
+     *
+     * @return la taille de la défausse
+     */
+    public int discardsSize() {
+        return discardsSize;
+    }
+
+    /**
+     * Retourne la carte au sommet de la pioche.
+     *
+     * @throws IllegalArgumentException
+     *          si la pioche est vide
+     * @return
+     *          la carte au sommet de la pioche
+     */
+    public Card topCard() {
+        Preconditions.checkArgument(deckSize > 0);
+        return deck[deckSize - 1];
+    }
+
+    /**
+     * Retourne le nombre de cartes du type donné que possède le joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @param card
+     *          le type de carte
+     * @return
+     *          le nombre de cartes du type donné que possède le joueur
+     */
+    public int cardCount(PlayerId id, Card card) {
+        return cards[id.ordinal()][card.ordinal()];
+    }
+
+    /**
+     * Retourne les cartes du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          les cartes du joueur
+     */
+    public SortedBag<Card> cards(PlayerId id) {
+        SortedBag.Builder<Card> cardsB = new SortedBag.Builder<>();
+        for (Card c : Card.ALL)
+            cardsB.add(cards[id.ordinal()][c.ordinal()], c);
+
+        return cardsB.build();
+    }
+
+    /**
+     * Retourne le nombre total de cartes du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre total de cartes du joueur
+     */
+    public int cardCount(PlayerId id) {
+        return cardCounts[id.ordinal()];
+    }
+
+    /**
+     * Retourne le nombre de billets du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre de billets du joueur
+     */
+    public int ticketCount(PlayerId id) {
+        return playerTicketCounts[id.ordinal()];
+    }
+
+    /**
+     * Retourne le nombre de wagons restant au joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre de wagons restant au joueur
+     */
+    public int carCount(PlayerId id) {
+        return carCounts[id.ordinal()];
+    }
+
+    /**
+     * Retourne les routes dont le joueur donné s'est emparé, dans l'ordre de leur prise.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          les routes du joueur
+     */
+    public List<Route> routes(PlayerId id) {
+        return List.of(Arrays.copyOf(routes[id.ordinal()], routeCounts[id.ordinal()]));
+    }
+
+    /**
+     * Retourne les billets du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          les billets du joueur
+     */
+    public List<Ticket> tickets(PlayerId id) {
+        return List.of(Arrays.copyOf(playerTickets[id.ordinal()], playerTicketCounts[id.ordinal()]));
+    }
+
+    /**
+     * Retourne la connectivité actuelle du réseau du joueur donné.
+     * Celle-ci est immuable, et n'est donc pas affectée par les modifications ultérieures de l'état.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          la connectivité du réseau du joueur
+     */
+    public StationConnectivity connectivity(PlayerId id) {
+        return partitions[id.ordinal()];
+    }
+
+    /**
+     * Retourne l'identité du joueur possédant la route donnée,
+     * ou <code>null</code> si personne ne s'en est emparé.
+     *
+     * @param route
+     *          la route en question
+     * @return
+     *          le propriétaire de la route, ou <code>null</code> si elle est libre
+     */
+    public PlayerId owner(Route route) {
+        return owners.get(route);
+    }
+
+    /**
+     * Retourne vrai si et seulement si le joueur courant a assez de wagons
+     * et de cartes pour s'emparer de la route donnée.
+     * La disponibilité de la route n'est pas vérifiée, comme dans {@link PlayerState#canClaimRoute(Route)}.
+     *
+     * @param route
+     *          la route en question
+     * @return
+     *          vrai si et seulement si le joueur courant peut s'emparer de la route
+     */
+    public boolean canClaimRoute(Route route) {
+        int p = currentPlayer;
+        int length = route.length();
+        if (carCounts[p] < length)
+            return false;
+
+        // Les locomotives ne sont utilisables que pour les tunnels
+        int locomotives = route.level() == Route.Level.UNDERGROUND
+                ? cards[p][Card.LOCOMOTIVE.ordinal()]
+                : 0;
+        if (locomotives >= length)
+            return true;
+
+        if (route.color() != null)
+            return cards[p][Card.of(route.color()).ordinal()] + locomotives >= length;
+
+        // Les cartes wagon précèdent la locomotive dans l'énumération
+        for (int c = 0; c < Card.LOCOMOTIVE.ordinal(); ++c) {
+            if (cards[p][c] + locomotives >= length)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Retourne la liste des ensembles de cartes que le joueur courant
+     * pourrait utiliser pour s'emparer de la route donnée.
+     *
+     * @param route
+     *          la route en question
+     * @return
+     *          la liste des ensembles de cartes jouables pour s'emparer de la route
+     */
+    public List<SortedBag<Card>> possibleClaimCards(Route route) {
+        if (carCounts[currentPlayer] < route.length())
+            return List.of();
+
+        List<SortedBag<Card>> playable = new ArrayList<>();
+        for (SortedBag<Card> option : route.possibleClaimCards()) {
+            if (hasCards(currentPlayer, option))
+                playable.add(option);
+        }
+        return playable;
+    }
+
+    private boolean hasCards(int player, SortedBag<Card> bag) {
+        for (Card c : Card.ALL) {
+            if (cards[player][c.ordinal()] < bag.countOf(c))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retourne le nombre de points obtenus par le joueur donné grâce à ses billets.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre de points obtenus par le joueur grâce à ses billets
+     */
+    public int ticketPoints(PlayerId id) {
+        int p = id.ordinal();
+        int points = 0;
+        for (int i = 0; i < playerTicketCounts[p]; ++i)
+            points += playerTickets[p][i].points(partitions[p]);
+
+        return points;
+    }
+
+    /**
+     * Retourne la totalité des points obtenus par le joueur donné,
+     * sans le bonus du plus long chemin.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          la totalité des points du joueur, sans bonus
+     */
+    public int finalPoints(PlayerId id) {
+        int p = id.ordinal();
+        int points = ticketPoints(id);
+        for (int i = 0; i < routeCounts[p]; ++i)
+            points += routes[p][i].claimPoints();
+
+        return points;
+    }
+
+    /**
+     * Retourne vrai si et seulement si le dernier tour commence,
+     * comme {@link GameState#lastTurnBegins()}.
+     *
+     * @return vrai si et seulement si le dernier tour commence
+     */
+    public boolean lastTurnBegins() {
+        return lastPlayer == NO_PLAYER && carCounts[currentPlayer] <= LAST_TURN_CAR_COUNT_THRESHOLD;
+    }
+
+    // MARK:- Modification de l'état
+
+    /**
+     * Retire les <code>count</code> billets du sommet de la pioche,
+     * comme {@link GameState#withoutTopTickets(int)}.
+     *
+     * @param count
+     *          le nombre de billets à retirer
+     * @throws IllegalArgumentException
+     *          si <code>count</code> n'est pas compris entre 0 et la taille de la pioche (inclus)
+     */
+    public void removeTopTickets(int count) {
+        Preconditions.checkArgument(count >= 0 && count <= ticketsCount);
+        ticketsCount -= count;
+        log(count, OP_REMOVE_TICKETS);
+    }
+
+    /**
+     * Ajoute les billets donnés à la main du joueur donné,
+     * comme {@link GameState#withInitiallyChosenTickets(PlayerId, SortedBag)}.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @param chosenTickets
+     *          les billets à ajouter
+     * @throws IllegalArgumentException
+     *          si le joueur possède déjà au moins un billet
+     */
+    public void addInitiallyChosenTickets(PlayerId id, SortedBag<Ticket> chosenTickets) {
+        Preconditions.checkArgument(playerTicketCounts[id.ordinal()] <= 0);
+        addTickets(id.ordinal(), chosenTickets);
+    }
+
+    /**
+     * Retire les billets tirés de la pioche et ajoute ceux choisis à la main du joueur courant,
+     * comme {@link GameState#withChosenAdditionalTickets(SortedBag, SortedBag)}.
+     * Ces deux modifications sont annulées ensemble.
+     *
+     * @param drawnTickets
+     *          les billets tirés
+     * @param chosenTickets
+     *          les billets gardés
+     * @throws IllegalArgumentException
+     *          si les billets gardés ne sont pas inclus dans ceux tirés
+     */
+    public void addChosenAdditionalTickets(SortedBag<Ticket> drawnTickets, SortedBag<Ticket> chosenTickets) {
+        Preconditions.checkArgument(drawnTickets.contains(chosenTickets));
+        Preconditions.checkArgument(drawnTickets.size() <= ticketsCount);
+
+        ticketsCount -= drawnTickets.size();
+        log(drawnTickets.size(), OP_REMOVE_TICKETS);
+        addTickets(currentPlayer, chosenTickets);
+        // Les deux opérations ne forment qu'une seule modification
+        log(2, OP_GROUP);
+    }
+
+    private void addTickets(int player, SortedBag<Ticket> added) {
+        int count = playerTicketCounts[player];
+        if (count + added.size() > playerTickets[player].length)
+            playerTickets[player] = Arrays.copyOf(playerTickets[player], Math.max(2 * count, count + added.size()));
+
+        for (Ticket t : added)
+            playerTickets[player][count++] = t;
+        playerTicketCounts[player] = count;
+        log(player, added.size(), OP_ADD_TICKETS);
+    }
+
+    /**
+     * Place la carte face visible de l'emplacement donné dans la main du joueur courant,
+     * et la remplace par celle au sommet de la pioche,
+     * comme {@link GameState#withDrawnFaceUpCard(int)}.
+     *
+     * @param slot
+     *          l'emplacement de la carte
+     * @throws IndexOutOfBoundsException
+     *          si l'emplacement n'est pas compris entre 0 (inclus) et 5 (exclus)
+     * @throws IllegalArgumentException
+     *          si la pioche est vide
+     */
+    public void drawFaceUpCard(int slot) {
+        Objects.checkIndex(slot, Constants.FACE_UP_CARDS_COUNT);
+        Preconditions.checkArgument(deckSize > 0);
+
+        Card drawn = faceUpCards[slot];
+        faceUpCards[slot] = deck[--deckSize];
+        addCard(currentPlayer, drawn, 1);
+        log(slot, drawn.ordinal(), OP_DRAW_FACE_UP_CARD);
+    }
+
+    /**
+     * Place la carte au sommet de la pioche dans la main du joueur courant,
+     * comme {@link GameState#withBlindlyDrawnCard()}.
+     *
+     * @throws IllegalArgumentException
+     *          si la pioche est vide
+     */
+    public void drawBlindCard() {
+        Preconditions.checkArgument(deckSize > 0);
+
+        addCard(currentPlayer, deck[--deckSize], 1);
+        log(OP_DRAW_BLIND_CARD);
+    }
+
+    /**
+     * Retire la carte au sommet de la pioche, comme {@link GameState#withoutTopCard()}.
+     *
+     * @throws IllegalArgumentException
+     *          si la pioche est vide
+     */
+    public void removeTopCard() {
+        Preconditions.checkArgument(deckSize > 0);
+
+        --deckSize;
+        log(OP_REMOVE_TOP_CARD);
+    }
+
+    /**
+     * Ajoute les cartes données à la défausse, comme {@link GameState#withMoreDiscardedCards(SortedBag)}.
+     *
+     * @param discardedCards
+     *          les cartes à ajouter à la défausse
+     */
+    public void addDiscardedCards(SortedBag<Card> discardedCards) {
+        for (Card c : Card.ALL) {
+            int count = discardedCards.countOf(c);
+            discards[c.ordinal()] += count;
+            log(count);
+        }
+        discardsSize += discardedCards.size();
+        log(OP_DISCARD);
+    }
+
+    /**
+     * Recrée la pioche à partir de la défausse si elle est vide,
+     * en la mélangeant exactement comme {@link GameState#withCardsDeckRecreatedIfNeeded(Random)}.
+     * Pour un même générateur aléatoire, la pioche obtenue est donc identique.
+     *
+     * @param rng
+     *          le générateur aléatoire à utiliser pour mélanger les cartes
+     */
+    public void recreateCardsDeckIfNeeded(Random rng) {
+        if (deckSize > 0) {
+            // Groupe vide, afin que chaque appel corresponde à une modification
+            log(0, OP_GROUP);
+            return;
+        }
+
+        // Même ordre initial que SortedBag.toList(), afin que le mélange soit identique à Deck.of
+        List<Card> toBeShuffled = new ArrayList<>(discardsSize);
+        for (Card c : Card.ALL) {
+            int count = discards[c.ordinal()];
+            for (int i = 0; i < count; ++i)
+                toBeShuffled.add(c);
+            log(count);
+            discards[c.ordinal()] = 0;
+        }
+        Collections.shuffle(toBeShuffled, rng);
+
+        logObject(deck);
+        deck = toBeShuffled.toArray(new Card[Constants.TOTAL_CARDS_COUNT]);
+        deckSize = discardsSize;
+        discardsSize = 0;
+        log(OP_RECREATE_DECK);
+    }
+
+    /**
+     * Fait s'emparer le joueur courant de la route donnée au moyen des cartes données,
+     * qui sont ajoutées à la défausse, comme {@link GameState#withClaimedRoute(Route, SortedBag)}.
+     *
+     * @param route
+     *          la route dont le joueur courant s'empare
+     * @param claimCards
+     *          les cartes utilisées
+     * @throws IllegalArgumentException
+     *          si la route ou sa voisine appartient déjà à un joueur,
+     *          ou si le joueur courant ne possède pas les cartes données
+     */
+    public void claimRoute(Route route, SortedBag<Card> claimCards) {
+        Route sibling = RouteSet.sibling(route);
+        Preconditions.checkArgument(! owners.containsKey(route));
+        Preconditions.checkArgument(sibling == null || owners.get(sibling) == null);
+        Preconditions.checkArgument(hasCards(currentPlayer, claimCards));
+
+        int p = currentPlayer;
+        for (Card c : Card.ALL) {
+            int count = claimCards.countOf(c);
+            addCard(p, c, -count);
+            discards[c.ordinal()] += count;
+            log(count);
+        }
+        discardsSize += claimCards.size();
+
+        if (routeCounts[p] == routes[p].length)
+            routes[p] = Arrays.copyOf(routes[p], Math.max(8, 2 * routeCounts[p]));
+        routes[p][routeCounts[p]++] = route;
+        owners.put(route, PlayerId.ALL.get(p));
+        carCounts[p] -= route.length();
+
+        logObject(partitions[p]);
+        partitions[p] = partitions[p].withConnected(route.station1(), route.station2());
+        log(OP_CLAIM_ROUTE);
+    }
+
+    /**
+     * Termine le tour du joueur courant, comme {@link GameState#forNextTurn()}.
+     */
+    public void nextTurn() {
+        log(lastPlayer, OP_NEXT_TURN);
+        if (lastTurnBegins())
+            lastPlayer = currentPlayer;
+        currentPlayer = (currentPlayer + 1) % PlayerId.COUNT;
+    }
+
+    private void addCard(int player, Card card, int count) {
+        cards[player][card.ordinal()] += count;
+        cardCounts[player] += count;
+    }
+
+    // MARK:- Annulation
+
+    /**
+     * Retourne un point de restauration correspondant à l'état actuel,
+     * auquel il est possible de revenir au moyen de {@link #rollback(int)}.
+     *
+     * @return un point de restauration correspondant à l'état actuel
+     */
+    public int checkpoint() {
+        return logSize;
+    }
+
+    /**
+     * Annule toutes les modifications effectuées depuis le point de restauration donné.
+     *
+     * @param checkpoint
+     *          le point de restauration, obtenu au moyen de {@link #checkpoint()}
+     * @throws IllegalArgumentException
+     *          si le point de restauration est postérieur à l'état actuel
+     */
+    public void rollback(int checkpoint) {
+        Preconditions.checkArgument(checkpoint >= 0 && checkpoint <= logSize);
+        while (logSize > checkpoint)
+            undo();
+    }
+
+    /**
+     * Annule la dernière modification effectuée.
+     *
+     * @throws IllegalStateException
+     *          s'il n'y a aucune modification à annuler
+     */
+    public void undo() {
+        if (logSize == 0)
+            throw new IllegalStateException();
+
+        int op = log[--logSize];
+        switch (op) {
+            case OP_GROUP: {
+                // Le nombre de modifications regroupées est enregistré avant le code
+                int grouped = log[--logSize];
+                for (int i = 0; i < grouped; ++i)
+                    undo();
+                break;
+            }
+
+            case OP_REMOVE_TICKETS:
+                ticketsCount += log[--logSize];
+                break;
+
+            case OP_ADD_TICKETS: {
+                int count = log[--logSize];
+                int player = log[--logSize];
+                playerTicketCounts[player] -= count;
+                Arrays.fill(playerTickets[player], playerTicketCounts[player], playerTicketCounts[player] + count, null);
+                break;
+            }
+
+            case OP_DRAW_FACE_UP_CARD: {
+                Card drawn = Card.ALL.get(log[--logSize]);
+                int slot = log[--logSize];
+                // La carte face visible actuelle est celle qui se trouvait au sommet de la pioche
+                ++deckSize;
+                faceUpCards[slot] = drawn;
+                addCard(currentPlayer, drawn, -1);
+                break;
+            }
+
+            case OP_DRAW_BLIND_CARD:
+                addCard(currentPlayer, deck[deckSize++], -1);
+                break;
+
+            case OP_REMOVE_TOP_CARD:
+                ++deckSize;
+                break;
+
+            case OP_DISCARD:
+                for (int i = Card.COUNT - 1; i >= 0; --i) {
+                    int count = log[--logSize];
+                    discards[i] -= count;
+                    discardsSize -= count;
+                }
+                break;
+
+            case OP_RECREATE_DECK:
+                deck = (Card[]) popObject();
+                deckSize = 0;
+                for (int i = Card.COUNT - 1; i >= 0; --i) {
+                    int count = log[--logSize];
+                    discards[i] = count;
+                    discardsSize += count;
+                }
+                break;
+
+            case OP_CLAIM_ROUTE: {
+                int p = currentPlayer;
+                partitions[p] = (StationPartition) popObject();
+
+                Route route = routes[p][--routeCounts[p]];
+                routes[p][routeCounts[p]] = null;
+                owners.remove(route);
+                carCounts[p] += route.length();
+
+                for (int i = Card.COUNT - 1; i >= 0; --i) {
+                    int count = log[--logSize];
+                    addCard(p, Card.ALL.get(i), count);
+                    discards[i] -= count;
+                    discardsSize -= count;
+                }
+                break;
+            }
+
+            case OP_NEXT_TURN:
+                currentPlayer = (currentPlayer + PlayerId.COUNT - 1) % PlayerId.COUNT;
+                lastPlayer = log[--logSize];
+                break;
+
+            default:
+                throw new Error("Opération inconnue.");
+        }
+    }
+
+    private void log(int value) {
+        if (logSize == log.length)
+            log = Arrays.copyOf(log, 2 * log.length);
+        log[logSize++] = value;
+    }
+
+    private void log(int value, int op) {
+        log(value);
+        log(op);
+    }
+
+    private void log(int value1, int value2, int op) {
+        log(value1);
+        log(value2);
+        log(op);
+    }
+
+    private void logObject(Object o) {
+        if (objectLogSize == objectLog.length)
+            objectLog = Arrays.copyOf(objectLog, 2 * objectLog.length);
+        objectLog[objectLogSize++] = o;
+    }
+
+    private Object popObject() {
+        Object o = objectLog[--objectLogSize];
+        objectLog[objectLogSize] = null;
+        return o;
+    }
+
+}
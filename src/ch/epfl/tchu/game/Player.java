@@ -64,6 +64,15 @@ public interface Player {
      */
     void updateState(PublicGameState newState, PlayerState ownState);
     
+    /**
+     * Méthode appelée lorsque les informations et les états communiqués jusque-là au joueur
+     * doivent lui parvenir sans plus attendre, par exemple avant que le jeu n'attende
+     * l'action d'un autre joueur, ou à la fin de la partie.
+     * Les joueurs qui ne retardent pas ces communications n'ont rien à faire,
+     * ce qui est le comportement par défaut.
+     */
+    default void flush() {}
+    
     /**
      * Méthode appelée au début de la partie pour communiquer au joueur
      * les cinq billets qui lui ont été distribués.
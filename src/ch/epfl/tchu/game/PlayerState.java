@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Classe publique, finale et immuable qui représente l'état complet d'un joueur.
@@ -20,6 +19,8 @@ public final class PlayerState extends PublicPlayerState {
     
     private final SortedBag<Ticket> tickets;
     private final SortedBag<Card> cards;
+    // Partition des gares selon le réseau du joueur, mise à jour à chaque route ajoutée
+    private final StationPartition partition;
     
     // Nombre maximum de cartes différentes lors de la prise d'un tunnel
     private static final int MAX_CARD_TYPES_COUNT = 2;
@@ -51,10 +52,34 @@ public final class PlayerState extends PublicPlayerState {
      *          la liste des routes que le joueur possède
      */
     public PlayerState(SortedBag<Ticket> tickets, SortedBag<Card> cards, List<Route> routes) {
+        this(tickets, cards, routes, partitionOf(routes));
+    }
+    
+    // Constructeur réutilisant la partition donnée, qui doit correspondre aux routes données
+    PlayerState(SortedBag<Ticket> tickets, SortedBag<Card> cards, List<Route> routes, StationPartition partition) {
         super(tickets.size(), cards.size(), routes);
     
         this.tickets = tickets;
         this.cards = cards;
+        this.partition = partition;
+    }
+    
+    static StationPartition partitionOf(List<Route> routes) {
+        int maxStationId = routes.stream()
+                .flatMap(r -> r.stations().stream())
+                .mapToInt(Station::id)
+                .max()
+                .orElse(0);
+        
+        StationPartition.Builder partitionB = new StationPartition.Builder(maxStationId + 1);
+        routes.forEach(r -> partitionB.connect(r.station1(), r.station2()));
+        
+        return partitionB.build();
+    }
+
+    // Retourne la partition des gares reliées par les routes du joueur
+    StationPartition partition() {
+        return partition;
     }
 
     /**
@@ -79,7 +104,8 @@ public final class PlayerState extends PublicPlayerState {
         return new PlayerState(
                 tickets.union(newTickets),
                 cards,
-                routes()
+                routes(),
+                partition
         );
     }
 
@@ -105,7 +131,8 @@ public final class PlayerState extends PublicPlayerState {
         return new PlayerState(
                 tickets,
                 cards.union(SortedBag.of(card)),
-                routes()
+                routes(),
+                partition
         );
     }
 
@@ -115,15 +142,23 @@ public final class PlayerState extends PublicPlayerState {
      * 
      * @implNote
      *          Ne lançera pas d'<code>{@link IllegalArgumentException}</code> si le joueur
-     *          ne possède pas assez de cartes car la fonction retournera <code>false</code>
-     *          avant d'exécuter l'appel à <code>possibleClaimCards</code>.
+     *          ne possède pas assez de wagons, et n'alloue aucune liste : les ensembles
+     *          de cartes de la route sont directement comparés aux cartes du joueur.
      * @param route
      *          la route dont le joueur désire s'emparer
      * @return
      *          vrai si et seulement si il lui reste assez de wagons et qu'il possède les cartes nécessaires
      */
     public boolean canClaimRoute(Route route) {
-        return carCount() >= route.length() && ! possibleClaimCards(route).isEmpty();
+        if (carCount() < route.length() || cards.size() < route.length())
+            return false;
+        
+        for (SortedBag<Card> claimCards : route.possibleClaimCards()) {
+            if (cards.contains(claimCards))
+                return true;
+        }
+        
+        return false;
     }
     
     /**
@@ -141,9 +176,24 @@ public final class PlayerState extends PublicPlayerState {
     public List<SortedBag<Card>> possibleClaimCards(Route route) {
         Preconditions.checkArgument(carCount() >= route.length());
         
-        return route.possibleClaimCards().stream()
-                .filter(cards::contains)
-                .collect(Collectors.toUnmodifiableList());
+        // Tous les ensembles de cartes d'une route ont la longueur de celle-ci
+        if (cards.size() < route.length())
+            return List.of();
+        
+        List<SortedBag<Card>> options = route.possibleClaimCards();
+        List<SortedBag<Card>> claimCards = null;
+        for (int i = 0; i < options.size(); ++i) {
+            boolean owned = cards.contains(options.get(i));
+            
+            // La liste n'est construite qu'à la première option que le joueur ne peut pas jouer
+            if (claimCards == null && ! owned)
+                claimCards = new ArrayList<>(options.subList(0, i));
+            else if (claimCards != null && owned)
+                claimCards.add(options.get(i));
+        }
+        
+        // Si le joueur peut jouer toutes les options, la liste partagée de la route est retournée
+        return claimCards == null ? options : Collections.unmodifiableList(claimCards);
     }
     
     /**
@@ -211,29 +261,24 @@ public final class PlayerState extends PublicPlayerState {
         return new PlayerState(
                 tickets,
                 cards.difference(claimCards),
-                newRoutes
+                newRoutes,
+                partition.withConnected(route.station1(), route.station2())
         );
     }
     
     /**
      * Retourne le nombre de points (éventuellement négatif) obtenus par le joueur grâce à ses billets.
+     * La connectivité du réseau du joueur étant maintenue au fil des routes dont il s'empare,
+     * ce calcul ne dépend que du nombre de billets.
      * 
      * @return le nombre de points obtenus par le joueur grâce à ses billets
      */
     public int ticketPoints() {
-        int maxStationId = routes().stream()
-                .flatMap(r -> r.stations().stream())
-                .mapToInt(Station::id)
-                .max()
-                .orElse(0);
-    
-        StationPartition.Builder partitionB = new StationPartition.Builder(maxStationId + 1);
-        routes().forEach(r -> partitionB.connect(r.station1(), r.station2()));
+        int points = 0;
+        for (Ticket t : tickets)
+            points += t.points(partition);
         
-        StationPartition partition = partitionB.build();
-        return tickets.stream()
-                .mapToInt(t -> t.points(partition))
-                .sum();
+        return points;
     }
     
     /**
@@ -20,6 +20,8 @@ public class PublicGameState {
     private final PublicCardState cardState;
     private final PlayerId currentPlayerId, lastPlayer;
     private final Map<PlayerId, PublicPlayerState> playerState;
+    // Ensemble des routes prises, calculé lors de sa première utilisation
+    private RouteSet claimedRouteSet;
     
     private static final int MIN_TOTAL_CARDS_COUNT_TO_DRAW = 5;
     
@@ -138,6 +140,27 @@ public class PublicGameState {
                 .collect(Collectors.toUnmodifiableList());
     }
     
+    /**
+     * Retourne l'ensemble des routes dont l'un ou l'autre des joueurs s'est emparé,
+     * qui permet de savoir en temps constant si une route ou sa voisine est prise.
+     * 
+     * @return l'ensemble des routes dont l'un ou l'autre des joueurs s'est emparé
+     */
+    public RouteSet claimedRouteSet() {
+        // L'ensemble étant immuable, le calculer plusieurs fois en parallèle est sans danger
+        RouteSet set = claimedRouteSet;
+        if (set == null) {
+            set = RouteSet.EMPTY;
+            for (PublicPlayerState state : playerState.values()) {
+                for (Route r : state.routes())
+                    set = set.with(r);
+            }
+            claimedRouteSet = set;
+        }
+        
+        return set;
+    }
+    
     /**
      * Retourne l'identité du dernier joueur, ou <code>null</code>
      * si elle n'est pas encore connue car le dernier tour n'a pas commencé.
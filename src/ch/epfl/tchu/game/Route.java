@@ -21,6 +21,10 @@ public final class Route {
     private final int length;
     private final Level level;
     private final Color color;
+    // Ensembles de cartes permettant de s'emparer de la route, calculés une seule fois
+    private final List<SortedBag<Card>> possibleClaimCards;
+    // Index de la route dans le réseau, ou -1 si elle n'en fait pas partie
+    private final int index;
 
     /**
      * Type énuméré imbriqué représentant les deux niveaux auxquels une route peut se trouver.
@@ -68,6 +72,28 @@ public final class Route {
         this.length = length;
         this.level = Objects.requireNonNull(level);
         this.color = color;
+        this.possibleClaimCards = computePossibleClaimCards();
+        this.index = -1;
+    }
+
+    /**
+     * Construit une copie de la route donnée, ayant l'index donné dans le réseau.
+     * Utilisé uniquement par {@link ChMap} pour numéroter ses routes.
+     *
+     * @param route
+     *          la route à copier
+     * @param index
+     *          l'index de la route dans <code>ChMap.routes()</code>
+     */
+    Route(Route route, int index) {
+        this.id = route.id;
+        this.station1 = route.station1;
+        this.station2 = route.station2;
+        this.length = route.length;
+        this.level = route.level;
+        this.color = route.color;
+        this.possibleClaimCards = route.possibleClaimCards;
+        this.index = index;
     }
 
     /**
@@ -79,6 +105,18 @@ public final class Route {
         return id;
     }
 
+    /**
+     * Retourne l'index de la route dans la liste <code>ChMap.routes()</code>,
+     * ou -1 si elle n'appartient pas au réseau. Les routes du réseau sont ainsi
+     * numérotées de manière dense, à partir de 0, et peuvent servir d'index
+     * de tableau (voir {@link RouteMap}).
+     *
+     * @return l'index de la route dans le réseau, ou -1
+     */
+    public int index() {
+        return index;
+    }
+
     /**
      * Retourne la première gare de la route.
      *
@@ -165,6 +203,10 @@ public final class Route {
      *          qui peuvent être jouées pour s'emparer d'une route
      */
     public List<SortedBag<Card>> possibleClaimCards() {
+        return possibleClaimCards;
+    }
+    
+    private List<SortedBag<Card>> computePossibleClaimCards() {
         List<SortedBag<Card>> possibleClaimCards = new ArrayList<>();
     
         int maxLocoCount = (level == Level.OVERGROUND) ? 0 : length;
@@ -194,7 +236,7 @@ public final class Route {
             possibleClaimCards.add(SortedBag.of(length, Card.LOCOMOTIVE));
         }
         
-        return possibleClaimCards;
+        return List.copyOf(possibleClaimCards);
     }
 
     /**
@@ -0,0 +1,153 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Classe publique et finale représentant une table associative dont les clés
+ * sont des routes du réseau de {@link ChMap}. Les valeurs sont stockées dans
+ * un tableau indexé par l'index des routes (voir <code>Route.index()</code>),
+ * de sorte qu'aucune opération ne nécessite de hachage.
+ *
+ * Comme dans une <code>Map</code>, l'absence de valeur est représentée
+ * par <code>null</code>, qui ne peut donc pas être associé à une route.
+ *
+ * @param <V>
+ *          le type des valeurs de la table
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class RouteMap<V> {
+
+    private static final List<Route> ROUTES = ChMap.routes();
+
+    private final Object[] values = new Object[ROUTES.size()];
+    private int size = 0;
+
+    /**
+     * Construit une table vide.
+     */
+    public RouteMap() {}
+
+    /**
+     * Retourne une table associant à chaque route du réseau la valeur
+     * que lui associe la fonction donnée.
+     *
+     * @param valueFunction
+     *          la fonction donnant la valeur associée à chaque route
+     * @param <V>
+     *          le type des valeurs de la table
+     * @throws NullPointerException
+     *          si la fonction retourne <code>null</code> pour l'une des routes
+     * @return
+     *          une table associant une valeur à chaque route du réseau
+     */
+    public static <V> RouteMap<V> of(Function<Route, V> valueFunction) {
+        RouteMap<V> map = new RouteMap<>();
+        for (Route r : ROUTES)
+            map.put(r, valueFunction.apply(r));
+
+        return map;
+    }
+
+    /**
+     * Retourne la valeur associée à la route donnée, ou <code>null</code>
+     * si elle n'en a pas, ce qui est toujours le cas des routes
+     * n'appartenant pas au réseau.
+     *
+     * @param route
+     *          la route dont on souhaite connaître la valeur
+     * @return
+     *          la valeur associée à la route (ou <code>null</code>)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Route route) {
+        int index = route.index();
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Retourne vrai si et seulement si une valeur est associée à la route donnée.
+     *
+     * @param route
+     *          la route à tester
+     * @return
+     *          vrai si et seulement si une valeur est associée à la route
+     */
+    public boolean containsKey(Route route) {
+        return get(route) != null;
+    }
+
+    /**
+     * Associe la valeur donnée à la route donnée, et retourne la valeur
+     * qui lui était associée auparavant (ou <code>null</code>).
+     *
+     * @param route
+     *          la route à laquelle associer la valeur
+     * @param value
+     *          la valeur à associer
+     * @throws IllegalArgumentException
+     *          si la route n'appartient pas au réseau
+     * @throws NullPointerException
+     *          si la valeur vaut <code>null</code>
+     * @return
+     *          la valeur précédemment associée à la route (ou <code>null</code>)
+     */
+    public V put(Route route, V value) {
+        Preconditions.checkArgument(route.index() >= 0);
+        Preconditions.requireNonNull(value);
+
+        V previous = get(route);
+        values[route.index()] = value;
+        if (previous == null)
+            ++size;
+        return previous;
+    }
+
+    /**
+     * Supprime la valeur associée à la route donnée, et la retourne
+     * (ou <code>null</code> si elle n'en avait pas).
+     *
+     * @param route
+     *          la route dont la valeur est supprimée
+     * @return
+     *          la valeur précédemment associée à la route (ou <code>null</code>)
+     */
+    public V remove(Route route) {
+        V previous = get(route);
+        if (previous != null) {
+            values[route.index()] = null;
+            --size;
+        }
+        return previous;
+    }
+
+    /**
+     * Retourne le nombre de routes auxquelles une valeur est associée.
+     *
+     * @return le nombre de routes auxquelles une valeur est associée
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Applique l'action donnée à chaque paire route/valeur de la table,
+     * dans l'ordre des routes de <code>ChMap.routes()</code>.
+     *
+     * @param action
+     *          l'action à appliquer à chaque paire
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<Route, V> action) {
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != null)
+                action.accept(ROUTES.get(i), (V) values[i]);
+        }
+    }
+
+}
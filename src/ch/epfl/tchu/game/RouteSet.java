@@ -0,0 +1,162 @@
+package ch.epfl.tchu.game;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe publique, finale et immuable représentant un ensemble de routes
+ * du réseau de {@link ChMap}, stocké sous la forme d'un ensemble de bits
+ * indexé par l'index des routes (voir <code>Route.index()</code>).
+ *
+ * La route voisine de chaque route double est précalculée une fois pour toutes,
+ * de sorte que savoir si une route ou sa voisine appartient à l'ensemble
+ * se résume à un test de bit. Les routes n'appartenant pas au réseau
+ * ne sont jamais contenues dans un ensemble.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class RouteSet {
+
+    private static final List<Route> ROUTES = ChMap.routes();
+    // Index de la route voisine de chaque route double, -1 pour les routes simples
+    private static final int[] SIBLINGS = computeSiblings();
+
+    private static final int NO_SIBLING = -1;
+
+    /**
+     * L'ensemble de routes vide.
+     */
+    public static final RouteSet EMPTY = new RouteSet(new long[(ROUTES.size() + Long.SIZE - 1) / Long.SIZE], 0);
+
+    private final long[] bits;
+    private final int size;
+
+    private RouteSet(long[] bits, int size) {
+        this.bits = bits;
+        this.size = size;
+    }
+
+    private static int[] computeSiblings() {
+        Map<List<Station>, Integer> byStations = new HashMap<>();
+        int[] siblings = new int[ROUTES.size()];
+        Arrays.fill(siblings, NO_SIBLING);
+        for (int i = 0; i < ROUTES.size(); ++i) {
+            Integer sibling = byStations.putIfAbsent(ROUTES.get(i).stations(), i);
+            if (sibling != null) {
+                siblings[i] = sibling;
+                siblings[sibling] = i;
+            }
+        }
+
+        return siblings;
+    }
+
+    /**
+     * Retourne l'ensemble contenant les routes du réseau données.
+     *
+     * @param routes
+     *          les routes de l'ensemble
+     * @return
+     *          l'ensemble contenant les routes données
+     */
+    public static RouteSet of(Collection<Route> routes) {
+        RouteSet set = EMPTY;
+        for (Route r : routes)
+            set = set.with(r);
+
+        return set;
+    }
+
+    /**
+     * Retourne la route voisine de la route double donnée, c'est-à-dire
+     * celle reliant les mêmes gares, ou <code>null</code> si la route donnée
+     * est simple ou n'appartient pas au réseau.
+     *
+     * @param route
+     *          la route dont on souhaite connaître la voisine
+     * @return
+     *          la route voisine de la route donnée (ou <code>null</code>)
+     */
+    public static Route sibling(Route route) {
+        int index = route.index();
+        return index < 0 || SIBLINGS[index] == NO_SIBLING ? null : ROUTES.get(SIBLINGS[index]);
+    }
+
+    private boolean containsIndex(int index) {
+        return index >= 0 && (bits[index / Long.SIZE] & (1L << index)) != 0;
+    }
+
+    /**
+     * Retourne vrai si et seulement si l'ensemble contient la route donnée.
+     *
+     * @param route
+     *          la route à tester
+     * @return
+     *          vrai si et seulement si l'ensemble contient la route donnée
+     */
+    public boolean contains(Route route) {
+        return containsIndex(route.index());
+    }
+
+    /**
+     * Retourne vrai si et seulement si la route donnée est une route double
+     * dont l'ensemble contient la voisine.
+     *
+     * @param route
+     *          la route à tester
+     * @return
+     *          vrai si et seulement si l'ensemble contient la voisine de la route donnée
+     */
+    public boolean containsSibling(Route route) {
+        int index = route.index();
+        return index >= 0 && containsIndex(SIBLINGS[index]);
+    }
+
+    /**
+     * Retourne vrai si et seulement si l'ensemble ne contient ni la route donnée,
+     * ni sa voisine s'il s'agit d'une route double.
+     *
+     * @param route
+     *          la route à tester
+     * @return
+     *          vrai si et seulement si ni la route ni sa voisine n'appartiennent à l'ensemble
+     */
+    public boolean isFree(Route route) {
+        int index = route.index();
+        return index < 0 || ! (containsIndex(index) || containsIndex(SIBLINGS[index]));
+    }
+
+    /**
+     * Retourne un ensemble identique au récepteur, auquel la route donnée
+     * a été ajoutée (le récepteur lui-même si elle y est déjà, ou si elle
+     * n'appartient pas au réseau).
+     *
+     * @param route
+     *          la route à ajouter
+     * @return
+     *          un ensemble identique au récepteur contenant en plus la route donnée
+     */
+    public RouteSet with(Route route) {
+        int index = route.index();
+        if (index < 0 || containsIndex(index))
+            return this;
+
+        long[] newBits = bits.clone();
+        newBits[index / Long.SIZE] |= 1L << index;
+        return new RouteSet(newBits, size + 1);
+    }
+
+    /**
+     * Retourne le nombre de routes de l'ensemble.
+     *
+     * @return le nombre de routes de l'ensemble
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -31,7 +31,9 @@ public final class Station {
     }
     
     /**
-     * Retourne le numéro d'identification de la gare.
+     * Retourne le numéro d'identification de la gare. Les gares du réseau
+     * étant numérotées de manière dense à partir de 0, il peut servir
+     * d'index de tableau (voir {@link StationMap}).
      * 
      * @return le numéro d'identification de la gare
      */
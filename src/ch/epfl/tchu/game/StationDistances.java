@@ -0,0 +1,252 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Classe publique, finale et immuable contenant les plus courtes distances entre toutes
+ * les paires de gares d'une carte, la distance entre deux gares étant le nombre minimum
+ * de wagons nécessaires pour les relier.
+ *
+ * Les distances sont calculées une fois pour toutes à la construction (algorithme de
+ * Floyd-Warshall), en même temps qu'une table du prochain saut permettant de reconstruire
+ * les plus courts chemins. Ces deux tables sont stockées dans des tableaux d'entiers
+ * à plat, indexés par les identités des gares, si bien que toutes les requêtes
+ * sont très rapides et n'allouent (presque) rien.
+ *
+ * Les distances ne tiennent pas compte des routes dont se sont déjà emparés les joueurs.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class StationDistances {
+
+    /**
+     * Distance entre deux gares qu'aucun chemin ne relie.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Valeur interne de l'infini, choisie de manière à ce que la somme de deux distances
+    // ne puisse jamais déborder
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int NO_STATION = -1;
+
+    private static final StationDistances CH_MAP = of(ChMap.stations(), ChMap.routes());
+
+    // Gares indexées par leur identité
+    private final Station[] stations;
+    private final int stationCount;
+    // Distance de from à to, et identité de la gare suivant from sur un plus court chemin
+    // de from à to, à l'index from * stationCount + to
+    private final int[] distances;
+    private final int[] nextHops;
+
+    private StationDistances(Station[] stations, int[] distances, int[] nextHops) {
+        this.stations = stations;
+        this.stationCount = stations.length;
+        this.distances = distances;
+        this.nextHops = nextHops;
+    }
+
+    /**
+     * Retourne les distances entre les gares de la carte de la Suisse, calculées
+     * lors du chargement de la classe.
+     *
+     * @return les distances entre les gares de <code>{@link ChMap}</code>
+     */
+    public static StationDistances chMap() {
+        return CH_MAP;
+    }
+
+    /**
+     * Calcule et retourne les distances entre toutes les paires de gares données,
+     * reliées par les routes données.
+     *
+     * @param stations
+     *          les gares de la carte
+     * @param routes
+     *          les routes de la carte, qui ne doivent relier que les gares données
+     * @throws IllegalArgumentException
+     *          si deux gares ont la même identité,
+     *          ou si une route relie une gare qui ne fait pas partie de celles données
+     * @return
+     *          les distances entre toutes les paires de gares données
+     */
+    public static StationDistances of(List<Station> stations, List<Route> routes) {
+        int count = stations.stream()
+                .mapToInt(Station::id)
+                .max()
+                .orElse(-1) + 1;
+
+        Station[] byId = new Station[count];
+        for (Station s : stations) {
+            Preconditions.checkArgument(byId[s.id()] == null);
+            byId[s.id()] = s;
+        }
+
+        int[] distances = new int[count * count];
+        int[] nextHops = new int[count * count];
+        Arrays.fill(distances, INFINITY);
+        Arrays.fill(nextHops, NO_STATION);
+        for (int s = 0; s < count; ++s) {
+            distances[s * count + s] = 0;
+            nextHops[s * count + s] = s;
+        }
+
+        for (Route r : routes) {
+            int s1 = r.station1().id(), s2 = r.station2().id();
+            Preconditions.checkArgument(s1 < count && byId[s1] == r.station1());
+            Preconditions.checkArgument(s2 < count && byId[s2] == r.station2());
+
+            // Seule la plus courte des routes d'une route double compte
+            if (r.length() < distances[s1 * count + s2]) {
+                distances[s1 * count + s2] = distances[s2 * count + s1] = r.length();
+                nextHops[s1 * count + s2] = s2;
+                nextHops[s2 * count + s1] = s1;
+            }
+        }
+
+        for (int k = 0; k < count; ++k) {
+            for (int i = 0; i < count; ++i) {
+                int ik = distances[i * count + k];
+                if (ik == INFINITY)
+                    continue;
+
+                for (int j = 0; j < count; ++j) {
+                    int viaK = ik + distances[k * count + j];
+                    if (viaK < distances[i * count + j]) {
+                        distances[i * count + j] = viaK;
+                        nextHops[i * count + j] = nextHops[i * count + k];
+                    }
+                }
+            }
+        }
+
+        return new StationDistances(byId, distances, nextHops);
+    }
+
+    /**
+     * Retourne le nombre minimum de wagons nécessaires pour relier les deux gares données,
+     * ou <code>UNREACHABLE</code> si aucun chemin ne les relie.
+     *
+     * @param from
+     *          la gare de départ
+     * @param to
+     *          la gare d'arrivée
+     * @throws IndexOutOfBoundsException
+     *          si l'une des gares ne fait pas partie de la carte
+     * @return
+     *          la distance entre les deux gares, ou <code>UNREACHABLE</code>
+     */
+    public int distance(Station from, Station to) {
+        int distance = distances[index(from, to)];
+        return distance == INFINITY ? UNREACHABLE : distance;
+    }
+
+    /**
+     * Retourne la gare suivant <code>from</code> sur un plus court chemin de <code>from</code>
+     * à <code>to</code>, qui est <code>to</code> elle-même si les gares sont identiques,
+     * ou <code>null</code> si aucun chemin ne les relie.
+     *
+     * @param from
+     *          la gare de départ
+     * @param to
+     *          la gare d'arrivée
+     * @throws IndexOutOfBoundsException
+     *          si l'une des gares ne fait pas partie de la carte
+     * @return
+     *          la gare suivante sur un plus court chemin, ou <code>null</code>
+     */
+    public Station nextHop(Station from, Station to) {
+        int next = nextHops[index(from, to)];
+        return next == NO_STATION ? null : stations[next];
+    }
+
+    /**
+     * Retourne les gares d'un plus court chemin de <code>from</code> à <code>to</code>,
+     * extrémités comprises, ou une liste vide si aucun chemin ne les relie.
+     *
+     * @param from
+     *          la gare de départ
+     * @param to
+     *          la gare d'arrivée
+     * @throws IndexOutOfBoundsException
+     *          si l'une des gares ne fait pas partie de la carte
+     * @return
+     *          les gares d'un plus court chemin entre les deux gares
+     */
+    public List<Station> shortestPath(Station from, Station to) {
+        if (nextHops[index(from, to)] == NO_STATION)
+            return List.of();
+
+        List<Station> path = new ArrayList<>();
+        path.add(from);
+        for (int s = from.id(); s != to.id(); s = nextHops[s * stationCount + to.id()])
+            path.add(stations[nextHops[s * stationCount + to.id()]]);
+
+        return List.copyOf(path);
+    }
+
+    /**
+     * Retourne une estimation du nombre de wagons qu'il reste à poser pour réaliser le billet donné,
+     * sachant que le réseau du joueur a la connectivité donnée.
+     *
+     * Pour chaque trajet du billet, l'estimation est la plus courte distance entre une gare
+     * reliée au départ et une gare reliée à l'arrivée par le réseau du joueur ; celle du billet
+     * est la plus petite de celles de ses trajets. Elle vaut donc 0 si le billet est déjà réalisé,
+     * et majore le nombre de wagons réellement nécessaires tant que les routes concernées
+     * sont libres.
+     *
+     * @param ticket
+     *          le billet
+     * @param connectivity
+     *          la connectivité du réseau du joueur
+     * @return
+     *          une estimation du nombre de wagons nécessaires pour réaliser le billet,
+     *          ou <code>UNREACHABLE</code> si aucun de ses trajets ne peut être réalisé
+     */
+    public int remainingCars(Ticket ticket, StationConnectivity connectivity) {
+        int best = INFINITY;
+        for (Trip trip : ticket.trips()) {
+            best = Math.min(best, remainingCars(trip.from(), trip.to(), connectivity));
+            if (best == 0)
+                break;
+        }
+
+        return best == INFINITY ? UNREACHABLE : best;
+    }
+
+    private int remainingCars(Station from, Station to, StationConnectivity connectivity) {
+        if (connectivity.connected(from, to))
+            return 0;
+
+        // Gares reliées à l'arrivée par le réseau du joueur
+        int[] targets = new int[stationCount];
+        int targetCount = 0;
+        for (int b = 0; b < stationCount; ++b) {
+            if (stations[b] != null && connectivity.connected(to, stations[b]))
+                targets[targetCount++] = b;
+        }
+
+        int best = INFINITY;
+        for (int a = 0; a < stationCount; ++a) {
+            if (stations[a] == null || ! connectivity.connected(from, stations[a]))
+                continue;
+
+            for (int i = 0; i < targetCount; ++i)
+                best = Math.min(best, distances[a * stationCount + targets[i]]);
+        }
+
+        return best;
+    }
+
+    private int index(Station from, Station to) {
+        return Objects.checkIndex(from.id(), stationCount) * stationCount
+                + Objects.checkIndex(to.id(), stationCount);
+    }
+
+}
@@ -0,0 +1,83 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Classe publique et finale représentant une table associative dont les clés
+ * sont des gares. Les valeurs sont stockées dans un tableau indexé par
+ * le numéro d'identification des gares (voir <code>Station.id()</code>),
+ * de sorte qu'aucune opération ne nécessite de hachage.
+ *
+ * Le tableau est dimensionné pour les gares de {@link ChMap}, et agrandi
+ * si nécessaire pour d'autres gares. Comme dans une <code>Map</code>,
+ * l'absence de valeur est représentée par <code>null</code>.
+ *
+ * @param <V>
+ *          le type des valeurs de la table
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class StationMap<V> {
+
+    private Object[] values = new Object[ChMap.stations().size()];
+
+    /**
+     * Construit une table vide.
+     */
+    public StationMap() {}
+
+    /**
+     * Retourne la valeur associée à la gare donnée, ou <code>null</code> si elle n'en a pas.
+     *
+     * @param station
+     *          la gare dont on souhaite connaître la valeur
+     * @return
+     *          la valeur associée à la gare (ou <code>null</code>)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Station station) {
+        int id = station.id();
+        return id < values.length ? (V) values[id] : null;
+    }
+
+    /**
+     * Retourne vrai si et seulement si une valeur est associée à la gare donnée.
+     *
+     * @param station
+     *          la gare à tester
+     * @return
+     *          vrai si et seulement si une valeur est associée à la gare
+     */
+    public boolean containsKey(Station station) {
+        return get(station) != null;
+    }
+
+    /**
+     * Associe la valeur donnée à la gare donnée, et retourne la valeur
+     * qui lui était associée auparavant (ou <code>null</code>).
+     *
+     * @param station
+     *          la gare à laquelle associer la valeur
+     * @param value
+     *          la valeur à associer
+     * @throws NullPointerException
+     *          si la valeur vaut <code>null</code>
+     * @return
+     *          la valeur précédemment associée à la gare (ou <code>null</code>)
+     */
+    public V put(Station station, V value) {
+        Preconditions.requireNonNull(value);
+
+        int id = station.id();
+        if (id >= values.length)
+            values = Arrays.copyOf(values, Math.max(id + 1, 2 * values.length));
+
+        V previous = get(station);
+        values[id] = value;
+        return previous;
+    }
+
+}
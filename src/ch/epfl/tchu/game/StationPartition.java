@@ -2,6 +2,8 @@ package ch.epfl.tchu.game;
 
 import ch.epfl.tchu.Preconditions;
 
+import java.util.Arrays;
+
 /**
  * Classe publique, finale et immuable qui représente une partition (aplatie) de gares.
  *
@@ -15,8 +17,9 @@ public final class StationPartition implements StationConnectivity {
     
     private final int[] links;
     
+    // Le tableau donné n'est pas copié : il ne doit plus être modifié par l'appelant
     private StationPartition(int[] links) {
-        this.links = links.clone();
+        this.links = links;
     }
     
     /**
@@ -39,6 +42,39 @@ public final class StationPartition implements StationConnectivity {
             return links[s1.id()] == links[s2.id()];
     }
 
+    /**
+     * Retourne une partition identique à celle-ci, si ce n'est que les sous-ensembles
+     * contenant les deux gares données sont joints.
+     * La partition restant aplatie, cette opération est en O(n), où n est le nombre
+     * de gares de la partition, et la connectivité reste déterminée en O(1).
+     *
+     * @param s1
+     *          la première gare à joindre
+     * @param s2
+     *          la deuxième gare à joindre
+     * @return
+     *          la partition dans laquelle les deux gares sont reliées
+     *          (le récepteur lui-même si elles l'étaient déjà)
+     */
+    public StationPartition withConnected(Station s1, Station s2) {
+        if (connected(s1, s2))
+            return this;
+        
+        int[] newLinks = Arrays.copyOf(links, Math.max(links.length, Math.max(s1.id(), s2.id()) + 1));
+        for (int i = links.length; i < newLinks.length; ++i)
+            newLinks[i] = i;
+        
+        // Comme dans le bâtisseur, on choisit arbitrairement le représentant de s2
+        int oldRepresentative = newLinks[s1.id()];
+        int newRepresentative = newLinks[s2.id()];
+        for (int i = 0; i < newLinks.length; ++i) {
+            if (newLinks[i] == oldRepresentative)
+                newLinks[i] = newRepresentative;
+        }
+        
+        return new StationPartition(newLinks);
+    }
+
     /**
      * Classe publique et finale imbriquée statiquement dans <code>{@link StationPartition}</code>,
      * qui représente un bâtisseur de partition de gare qui construit la version profonde de la partition
@@ -94,7 +130,8 @@ public final class StationPartition implements StationConnectivity {
             for (int i = 0; i < links.length; ++i)
                 links[i] = representative(i);
             
-            return new StationPartition(links);
+            // Le bâtisseur pouvant encore être utilisé, la partition reçoit une copie de ses liens
+            return new StationPartition(links.clone());
         }
     
         private int representative(int id) {
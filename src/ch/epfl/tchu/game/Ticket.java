@@ -16,6 +16,8 @@ public final class Ticket implements Comparable<Ticket> {
     
     private final List<Trip> trips;
     private final String text;
+    // Index du billet dans la liste des billets du réseau, ou -1 s'il n'en fait pas partie
+    private final int index;
     
     /**
      * Méthode privée et statique qui retourne la représentation textuelle du billet
@@ -64,6 +66,22 @@ public final class Ticket implements Comparable<Ticket> {
         
         this.trips = List.copyOf(trips);
         this.text = computeText(trips);
+        this.index = -1;
+    }
+    
+    /**
+     * Construit une copie du billet donné, ayant l'index donné dans le réseau.
+     * Utilisé uniquement par {@link ChMap} pour numéroter ses billets.
+     * 
+     * @param ticket
+     *          le billet à copier
+     * @param index
+     *          l'index du billet dans <code>ChMap.tickets()</code>
+     */
+    Ticket(Ticket ticket, int index) {
+        this.trips = ticket.trips;
+        this.text = ticket.text;
+        this.index = index;
     }
     
     /**
@@ -91,6 +109,25 @@ public final class Ticket implements Comparable<Ticket> {
         return text;
     }
     
+    /**
+     * Retourne la liste immuable des trajets du billet.
+     * 
+     * @return la liste immuable des trajets du billet
+     */
+    public List<Trip> trips() {
+        return trips;
+    }
+    
+    /**
+     * Retourne l'index de la première occurrence du billet dans la liste
+     * <code>ChMap.tickets()</code>, ou -1 s'il n'appartient pas au réseau.
+     * 
+     * @return l'index du billet dans le réseau, ou -1
+     */
+    public int index() {
+        return index;
+    }
+    
     /**
      * Retourne le nombre de points que vaut le billet,
      * en prenant en compte la connectivité donnée.
@@ -20,8 +20,9 @@ public final class Trail {
 
     /**
      * Retourne le plus long chemin du réseau composé de routes parmi celles données.
-     * S'il y a plusieurs chemins de longueur maximale, celui qui est retourné est le
-     * premier qui aura été traité par l'algorithme de recherche.
+     * S'il y a plusieurs chemins de longueur maximale, celui qui est retourné est
+     * celui qui contient le moins de routes, puis le premier dans l'ordre des routes
+     * données (chaque route étant d'abord parcourue de sa première à sa seconde gare).
      *
      * @param routes
      *          la liste de routes
@@ -32,46 +33,9 @@ public final class Trail {
      *          dont les gares valent <code>null</code>
      */
     public static Trail longest(List<Route> routes) {
-        List<Trail> trails = new ArrayList<>();
-        // On ajoute tous les chemins constitués d'une seule route
-        for (Route r : routes) {
-            trails.add(new Trail(r.station1(), r.station2(), List.of(r)));
-            trails.add(new Trail(r.station2(), r.station1(), List.of(r)));
-        }
-        
-        // Par défaut, on initialise le chemin vide
-        // au chemin le plus long
-        Trail longestTrail = EMPTY_TRAIL;
-        
-        while (! trails.isEmpty()) {
-            List<Trail> tempTrails = new ArrayList<>();
-            
-            for (Trail t : trails) {
-                if (t.length > longestTrail.length)
-                    longestTrail = t;
-                
-                List<Route> newRoutes = new ArrayList<>(routes);
-                // On retire les routes qui appartiennent déjà au chemin...
-                newRoutes.removeAll(t.routes);
-                // ... ainsi que celles qui ne contiennent pas sa gare d'arrivée
-                newRoutes.removeIf(r -> ! r.stations().contains(t.station2));
-                
-                for (Route r : newRoutes) {
-                    List<Route> newTrailRoutes = new ArrayList<>(t.routes);
-                    newTrailRoutes.add(r);
-    
-                    // La gare de départ ne change pas, mais la nouvelle gare
-                    // d'arrivée est l'opposée de l'ancienne par rapport à la route ajoutée
-                    tempTrails.add(new Trail(
-                            t.station1, r.stationOpposite(t.station2), newTrailRoutes
-                    ));
-                }
-            }
-            
-            trails = tempTrails;
-        }
-    
-        return longestTrail;
+        return routes.isEmpty()
+                ? EMPTY_TRAIL
+                : new LongestTrailSearch(routes).run();
     }
     
     private Trail(Station station1, Station station2, List<Route> routes) {
@@ -144,4 +108,168 @@ public final class Trail {
         return sB.toString();
     }
     
+    /**
+     * Recherche en profondeur du plus long chemin.
+     *
+     * Les gares sont renumérotées de manière dense, chaque gare connaît les
+     * index des routes qui la touchent (dans l'ordre des routes données),
+     * et les routes déjà empruntées par le chemin en cours sont représentées
+     * par un masque de bits. Hormis la construction de ces tables,
+     * la recherche n'alloue aucun objet.
+     *
+     * Une branche est abandonnée dès qu'elle ne peut plus produire de chemin
+     * meilleur que le meilleur déjà trouvé, la longueur atteignable étant
+     * majorée par celle des routes libres accessibles depuis la gare d'arrivée,
+     * diminuée d'une unité par paire de gares de degré impair que le chemin
+     * ne pourra pas épuiser.
+     */
+    private static final class LongestTrailSearch {
+        
+        private final List<Route> routes;
+        private final List<Station> stations = new ArrayList<>();
+        // Gares (renumérotées) et longueur de chaque route
+        private final int[] routeStation1, routeStation2, routeLength;
+        // Index des routes touchant chaque gare (renumérotée)
+        private final int[][] adjacentRoutes;
+        // Masque des routes appartenant au chemin en cours
+        private final long[] used;
+        // Routes du chemin en cours et du plus long chemin trouvé
+        private final int[] path, bestPath;
+        // Pile et marques de visite utilisées pour calculer la borne
+        private final int[] stack, visited;
+        private int visitStamp;
+        
+        private int bestLength, bestSize, bestStart;
+        
+        private LongestTrailSearch(List<Route> routes) {
+            int count = routes.size();
+            this.routes = routes;
+            this.routeStation1 = new int[count];
+            this.routeStation2 = new int[count];
+            this.routeLength = new int[count];
+            this.used = new long[(count + Long.SIZE - 1) / Long.SIZE];
+            this.path = new int[count];
+            this.bestPath = new int[count];
+            
+            StationMap<Integer> indexes = new StationMap<>();
+            for (int r = 0; r < count; ++r) {
+                Route route = routes.get(r);
+                routeStation1[r] = indexOf(route.station1(), indexes);
+                routeStation2[r] = indexOf(route.station2(), indexes);
+                routeLength[r] = route.length();
+            }
+            
+            this.stack = new int[stations.size()];
+            this.visited = new int[stations.size()];
+            
+            int[] degrees = new int[stations.size()];
+            for (int r = 0; r < count; ++r) {
+                ++degrees[routeStation1[r]];
+                ++degrees[routeStation2[r]];
+            }
+            this.adjacentRoutes = new int[stations.size()][];
+            for (int s = 0; s < degrees.length; ++s) {
+                adjacentRoutes[s] = new int[degrees[s]];
+                degrees[s] = 0;
+            }
+            for (int r = 0; r < count; ++r) {
+                adjacentRoutes[routeStation1[r]][degrees[routeStation1[r]]++] = r;
+                adjacentRoutes[routeStation2[r]][degrees[routeStation2[r]]++] = r;
+            }
+        }
+        
+        private int indexOf(Station station, StationMap<Integer> indexes) {
+            Integer index = indexes.get(station);
+            if (index == null) {
+                index = stations.size();
+                stations.add(station);
+                indexes.put(station, index);
+            }
+            return index;
+        }
+        
+        private Trail run() {
+            for (int r = 0; r < routes.size(); ++r) {
+                used[r / Long.SIZE] |= 1L << r;
+                path[0] = r;
+                explore(routeStation1[r], routeStation2[r], 1, routeLength[r]);
+                explore(routeStation2[r], routeStation1[r], 1, routeLength[r]);
+                used[r / Long.SIZE] &= ~(1L << r);
+            }
+            
+            List<Route> trailRoutes = new ArrayList<>(bestSize);
+            int end = bestStart;
+            for (int i = 0; i < bestSize; ++i) {
+                int r = bestPath[i];
+                trailRoutes.add(routes.get(r));
+                end = routeStation1[r] == end ? routeStation2[r] : routeStation1[r];
+            }
+            
+            return new Trail(stations.get(bestStart), stations.get(end), trailRoutes);
+        }
+        
+        private void explore(int start, int end, int size, int length) {
+            // À longueur égale, le chemin le plus court en nombre de routes est préféré,
+            // les chemins étant par ailleurs visités dans l'ordre des routes données
+            if (length > bestLength || (length == bestLength && size < bestSize)) {
+                bestLength = length;
+                bestSize = size;
+                bestStart = start;
+                System.arraycopy(path, 0, bestPath, 0, size);
+            }
+            
+            // Une branche dont un descendant pourrait égaler la meilleure longueur
+            // n'est explorée que si ce descendant compterait moins de routes
+            int bound = length + reachableLength(end);
+            if (bound < bestLength || (bound == bestLength && size + 1 >= bestSize))
+                return;
+            
+            for (int r : adjacentRoutes[end]) {
+                long mask = 1L << r;
+                if ((used[r / Long.SIZE] & mask) != 0)
+                    continue;
+                
+                used[r / Long.SIZE] |= mask;
+                path[size] = r;
+                explore(start, routeStation1[r] == end ? routeStation2[r] : routeStation1[r], size + 1, length + routeLength[r]);
+                used[r / Long.SIZE] &= ~mask;
+            }
+        }
+        
+        // Majore la longueur qu'un chemin partant de la gare donnée peut encore ajouter
+        private int reachableLength(int from) {
+            ++visitStamp;
+            visited[from] = visitStamp;
+            stack[0] = from;
+            int top = 1;
+            int total = 0, oddCount = 0;
+            
+            while (top > 0) {
+                int s = stack[--top];
+                int freeDegree = 0;
+                for (int r : adjacentRoutes[s]) {
+                    if ((used[r / Long.SIZE] & (1L << r)) != 0)
+                        continue;
+                    
+                    ++freeDegree;
+                    int other = routeStation1[r] == s ? routeStation2[r] : routeStation1[r];
+                    // Chaque route libre est comptée depuis sa première gare
+                    if (routeStation1[r] == s)
+                        total += routeLength[r];
+                    if (visited[other] != visitStamp) {
+                        visited[other] = visitStamp;
+                        stack[top++] = other;
+                    }
+                }
+                oddCount += freeDegree % 2;
+            }
+            
+            // Le chemin épuise au plus deux gares de degré impair, et chaque autre paire
+            // de gares de degré impair laisse au moins une route libre, de longueur
+            // au moins égale à 1
+            return total - Math.max(0, (oddCount - 2) / 2);
+        }
+        
+    }
+    
 }
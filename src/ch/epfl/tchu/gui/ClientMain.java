@@ -42,7 +42,7 @@ public final class ClientMain extends Application {
         String host = parameters.get(0);
         int port = Integer.parseInt(parameters.get(1));
         
-        RemotePlayerClient client = new RemotePlayerClient(new GraphicalPlayerAdapter(), host, port);
+        RemotePlayerClient client = new RemotePlayerClient(new GraphicalPlayerAdapter(true), host, port);
         
         Thread gameThread = new Thread(client);
         gameThread.setDaemon(true);
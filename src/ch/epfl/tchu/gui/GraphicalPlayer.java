@@ -221,6 +221,18 @@ public final class GraphicalPlayer {
      *          l'information à ajouter
      */
     public void receiveInfo(String info) {
+        receiveInfos(List.of(info));
+    }
+    
+    /**
+     * Ajoute les messages donnés, dans l'ordre, au bas des informations sur le déroulement
+     * de la partie. Seules les <code>ConstantsGui.MAX_INFOS_COUNT</code> dernières
+     * informations sont conservées, et les textes ne sont modifiés qu'une seule fois.
+     *
+     * @param infos
+     *          les informations à ajouter
+     */
+    public void receiveInfos(List<String> infos) {
         assert isFxApplicationThread();
         
         List<String> messages = infosText.stream()
@@ -228,7 +240,7 @@ public final class GraphicalPlayer {
                 .filter(t -> ! t.isBlank())
                 .collect(Collectors.toList());
         
-        messages.add(info);
+        messages.addAll(infos);
         
         if (messages.size() > MAX_INFOS_COUNT) {
             messages = messages.subList(
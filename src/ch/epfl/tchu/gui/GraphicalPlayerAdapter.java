@@ -9,6 +9,7 @@ import ch.epfl.tchu.game.PublicGameState;
 import ch.epfl.tchu.game.Route;
 import ch.epfl.tchu.game.Ticket;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -19,6 +20,11 @@ import static javafx.application.Platform.runLater;
 /**
  * Classe publique, finale, instanciable qui a pour but d'adapter
  * une instance de {@link GraphicalPlayer} en une valeur de type {@link Player}.
+ *
+ * En mode regroupé, les informations et les états reçus ne sont pas transmis
+ * individuellement au fil JavaFX : ils sont accumulés jusqu'à ce que ce dernier
+ * les traite, et seul le dernier état est alors appliqué, les informations étant
+ * ajoutées en une seule fois.
  * 
  * @author Mallory Henriet (311258)
  * @author Louis Hervé (312937)
@@ -33,10 +39,73 @@ public final class GraphicalPlayerAdapter implements Player {
     
     private GraphicalPlayer graphicalPlayer;
     
+    private final boolean coalescing;
+    
+    // Mises à jour en attente d'être appliquées par le fil JavaFX, en mode regroupé
+    private final Object pendingLock = new Object();
+    private PublicGameState pendingGameState;
+    private PlayerState pendingPlayerState;
+    private final List<String> pendingInfos = new ArrayList<>();
+    private boolean updateScheduled = false;
+    
     private static <T> BlockingQueue<T> createQueue() {
         return new ArrayBlockingQueue<>(1);
     }
     
+    /**
+     * Construit un adaptateur transmettant chaque information
+     * et chaque état reçus au fil JavaFX.
+     */
+    public GraphicalPlayerAdapter() {
+        this(false);
+    }
+    
+    /**
+     * Construit un adaptateur, regroupant ou non les informations
+     * et les états reçus avant leur transmission au fil JavaFX.
+     *
+     * @param coalescing
+     *          vrai ssi les mises à jour doivent être regroupées
+     */
+    public GraphicalPlayerAdapter(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+    
+    // Doit être appelée en possession du verrou des mises à jour en attente
+    private void scheduleUpdate() {
+        if (! updateScheduled) {
+            updateScheduled = true;
+            runLater(this::applyPendingUpdates);
+        }
+    }
+    
+    /*
+        Les mises à jour en attente sont appliquées par une seule tâche, planifiée
+        lors de la première d'entre elles. Les tâches étant exécutées dans l'ordre
+        de leur planification, celles planifiées ensuite (début de tour, choix, etc.)
+        voient toujours un état au moins aussi récent que sans regroupement.
+     */
+    private void applyPendingUpdates() {
+        PublicGameState newGameState;
+        PlayerState newPlayerState;
+        List<String> newInfos;
+        synchronized (pendingLock) {
+            newGameState = pendingGameState;
+            newPlayerState = pendingPlayerState;
+            newInfos = List.copyOf(pendingInfos);
+            
+            pendingGameState = null;
+            pendingPlayerState = null;
+            pendingInfos.clear();
+            updateScheduled = false;
+        }
+        
+        if (newGameState != null)
+            graphicalPlayer.setState(newGameState, newPlayerState);
+        if (! newInfos.isEmpty())
+            graphicalPlayer.receiveInfos(newInfos);
+    }
+    
     // MARK:- Méthodes de Player
     
     @Override
@@ -46,12 +115,29 @@ public final class GraphicalPlayerAdapter implements Player {
     
     @Override
     public void receiveInfo(String info) {
-        runLater(() -> graphicalPlayer.receiveInfo(info));
+        if (! coalescing) {
+            runLater(() -> graphicalPlayer.receiveInfo(info));
+            return;
+        }
+        
+        synchronized (pendingLock) {
+            pendingInfos.add(info);
+            scheduleUpdate();
+        }
     }
     
     @Override
     public void updateState(PublicGameState newState, PlayerState ownState) {
-        runLater(() -> graphicalPlayer.setState(newState, ownState));
+        if (! coalescing) {
+            runLater(() -> graphicalPlayer.setState(newState, ownState));
+            return;
+        }
+        
+        synchronized (pendingLock) {
+            pendingGameState = newState;
+            pendingPlayerState = ownState;
+            scheduleUpdate();
+        }
     }
     
     @Override
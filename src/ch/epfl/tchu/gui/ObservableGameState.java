@@ -16,12 +16,9 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -33,13 +30,14 @@ import java.util.stream.Collectors;
  * de l'état du jeu, ainsi que la totalité de l'état du joueur
  * auquel l'interface graphique utilisant cette instance correspond.
  *
+ * Lors de chaque mise à jour, seules les propriétés dont la valeur dépend
+ * d'une partie de l'état qui a changé sont recalculées.
+ *
  * @author Mallory Henriet (311258)
  * @author Louis Hervé (312937)
  */
 public final class ObservableGameState {
     
-    private static final Set<List<Station>> DOUBLE_ROUTES_STATIONS = computeDoubleRoutesStations();
-    
     // MARK:- Attributs
     
     private final PlayerId playerId;
@@ -47,12 +45,15 @@ public final class ObservableGameState {
     private PublicGameState gameState;
     private PlayerState playerState;
     
+    // Routes dont un joueur s'est emparé lors de la dernière mise à jour
+    private RouteSet claimedRoutes = RouteSet.EMPTY;
+    
     // Propriétés de l'état de jeu observable
 
     private final IntegerProperty ticketsPercentageProperty;
     private final IntegerProperty cardsPercentageProperty;
     private final List<ObjectProperty<Card>> faceUpCards;
-    private final Map<Route, ObjectProperty<PlayerId>> routesOwners;
+    private final RouteMap<ObjectProperty<PlayerId>> routesOwners;
 
     private final Map<PlayerId, IntegerProperty> ticketCounts;
     private final Map<PlayerId, IntegerProperty> cardCounts;
@@ -61,7 +62,7 @@ public final class ObservableGameState {
 
     private final ObservableList<Ticket> ticketsProperty;
     private final Map<Card, IntegerProperty> cardCountsPerType;
-    private final Map<Route, BooleanProperty> routesClaimability;
+    private final RouteMap<BooleanProperty> routesClaimability;
     
     // MARK:- Méthodes utilitaires privées et statiques
     
@@ -93,20 +94,29 @@ public final class ObservableGameState {
         return createPropertiesMap(PlayerId.ALL, ObservableGameState::createIntProperty);
     }
     
-    private static Set<List<Station>> computeDoubleRoutesStations() {
-        Set<List<Station>> stationPairs = new HashSet<>();
-        Set<List<Station>> doubleRoutesStations = new HashSet<>();
-        for (Route r : ChMap.routes()) {
-            if (! stationPairs.add(r.stations()))
-                doubleRoutesStations.add(r.stations());
+    // MARK:- Méthodes privées utilisées pour mettre à jour les états courants
+    
+    // Retourne les routes dont un joueur s'est emparé depuis la dernière mise à jour, associées à leur propriétaire
+    private RouteMap<PlayerId> newClaimedRoutes(PublicGameState newGameState) {
+        RouteSet oldClaimedRoutes = claimedRoutes;
+        claimedRoutes = newGameState.claimedRouteSet();
+        
+        // Les routes ne pouvant pas être perdues, le nombre de routes prises suffit à détecter un changement
+        if (claimedRoutes.size() == oldClaimedRoutes.size())
+            return new RouteMap<>();
+        
+        RouteMap<PlayerId> newClaimedRoutes = new RouteMap<>();
+        for (PlayerId id : PlayerId.ALL) {
+            for (Route r : newGameState.playerState(id).routes()) {
+                if (! oldClaimedRoutes.contains(r))
+                    newClaimedRoutes.put(r, id);
+            }
         }
         
-        return Collections.unmodifiableSet(doubleRoutesStations);
+        return newClaimedRoutes;
     }
     
-    // MARK:- Méthodes privées utilisées pour mettre à jour les états courants
-    
-    private void setPublicGameStateProperties(PublicGameState newGameState) {
+    private void setPublicGameStateProperties(PublicGameState newGameState, RouteMap<PlayerId> newClaimedRoutes) {
         ticketsPercentageProperty.set(100 * newGameState.ticketsCount() / ChMap.tickets().size());
         cardsPercentageProperty.set(100 * newGameState.cardState().deckSize() / Constants.TOTAL_CARDS_COUNT);
         
@@ -115,20 +125,7 @@ public final class ObservableGameState {
             faceUpCards.get(slot).set(newCard);
         }
         
-        List<Route> newClaimedRoutes = new ArrayList<>(newGameState.claimedRoutes());
-        if (gameState != null)
-            newClaimedRoutes.removeAll(gameState.claimedRoutes());
-        
-        for (Route r : newClaimedRoutes) {
-            boolean ownerIsCurrentPlayer = newGameState.currentPlayerState()
-                    .routes()
-                    .contains(r);
-            
-            routesOwners.get(r).set(
-                    ownerIsCurrentPlayer
-                            ? newGameState.currentPlayerId()
-                            : newGameState.currentPlayerId().next());
-        }
+        newClaimedRoutes.forEach((r, owner) -> routesOwners.get(r).set(owner));
     }
     
     private void setPublicPlayerStatesProperties(PublicGameState newGameState) {
@@ -146,35 +143,54 @@ public final class ObservableGameState {
         }
     }
     
-    private void setPlayerStateProperties(PublicGameState newGameState, PlayerState newPlayerState) {
-        ticketsProperty.setAll(newPlayerState.tickets().toList());
+    private void setPlayerStateProperties(PublicGameState newGameState,
+                                          PlayerState newPlayerState,
+                                          RouteMap<PlayerId> newClaimedRoutes) {
+        // Les propriétés JavaFX ne notifiant pas leurs auditeurs lorsque leur valeur
+        // ne change pas, seuls les billets, dont la liste est toujours remplacée, sont comparés
+        if (playerState == null || ! playerState.tickets().equals(newPlayerState.tickets()))
+            ticketsProperty.setAll(newPlayerState.tickets().toList());
         
-        for (Card card : Card.ALL) {
-            cardCountsPerType.get(card)
-                    .set(newPlayerState.cards().countOf(card));
+        boolean handChanged = playerState == null
+                || playerState.carCount() != newPlayerState.carCount()
+                || ! playerState.cards().equals(newPlayerState.cards());
+        if (handChanged) {
+            for (Card card : Card.ALL) {
+                cardCountsPerType.get(card)
+                        .set(newPlayerState.cards().countOf(card));
+            }
         }
         
-        for (Route r : ChMap.routes()) {
-            boolean isClaimable;
-            isClaimable = (playerId == newGameState.currentPlayerId());
-            isClaimable &= newPlayerState.canClaimRoute(r);
-            isClaimable &= ! newGameState.claimedRoutes().contains(r);
-            
-            /*
-                Si à ce stade le joueur peut s'emparer de la route
-                et que c'est une route double, on vérifie que sa
-                route voisine n'est pas déjà prise.
-            */
-            if (isClaimable && DOUBLE_ROUTES_STATIONS.contains(r.stations())) {
-                isClaimable = newGameState.claimedRoutes()
-                        .stream()
-                        .noneMatch(claimed -> claimed.stations().containsAll(r.stations()));
-            }
-            
-            routesClaimability.get(r).set(isClaimable);
+        boolean canPlay = playerId == newGameState.currentPlayerId();
+        boolean couldPlay = gameState != null && playerId == gameState.currentPlayerId();
+        
+        /*
+            La possibilité de s'emparer d'une route ne dépend que du joueur courant,
+            des cartes et wagons du joueur, et des routes déjà prises. Si seules ces
+            dernières ont changé, seules les routes nouvellement prises et leurs
+            voisines sont mises à jour.
+        */
+        if (! canPlay) {
+            if (couldPlay)
+                routesClaimability.forEach((r, p) -> p.set(false));
+        } else if (! couldPlay || handChanged) {
+            for (Route r : ChMap.routes())
+                routesClaimability.get(r).set(isClaimable(r, newPlayerState));
+        } else {
+            newClaimedRoutes.forEach((r, owner) -> {
+                routesClaimability.get(r).set(false);
+                Route sibling = RouteSet.sibling(r);
+                if (sibling != null)
+                    routesClaimability.get(sibling).set(false);
+            });
         }
     }
     
+    private boolean isClaimable(Route route, PlayerState newPlayerState) {
+        // Une route double ne peut pas être prise si sa voisine l'est déjà
+        return claimedRoutes.isFree(route) && newPlayerState.canClaimRoute(route);
+    }
+    
     // MARK:- Contructeur et méthodes publiques
     
     /**
@@ -196,7 +212,7 @@ public final class ObservableGameState {
         this.ticketsPercentageProperty = createIntProperty();
         this.cardsPercentageProperty = createIntProperty();
         this.faceUpCards = createFaceUpCardsProperties();
-        this.routesOwners = createPropertiesMap(ChMap.routes(), ObservableGameState::createObjectProperty);
+        this.routesOwners = RouteMap.of(r -> createObjectProperty());
 
         this.ticketCounts = createCountProperties();
         this.cardCounts = createCountProperties();
@@ -205,12 +221,13 @@ public final class ObservableGameState {
 
         this.ticketsProperty = FXCollections.observableArrayList();
         this.cardCountsPerType = createPropertiesMap(Card.ALL, ObservableGameState::createIntProperty);
-        this.routesClaimability = createPropertiesMap(ChMap.routes(), () -> new SimpleBooleanProperty(false));
+        this.routesClaimability = RouteMap.of(r -> new SimpleBooleanProperty(false));
     }
     
     /**
-     * Met à jour la totalité des propriétés de l'état de jeu observable courant,
-     * en fonction des deux états passés en argument.
+     * Met à jour les propriétés de l'état de jeu observable courant
+     * en fonction des deux états passés en argument, en ne recalculant
+     * que celles dépendant d'une partie de l'état ayant changé.
      * 
      * @param newGameState
      *          le nouvel état public de jeu
@@ -220,9 +237,10 @@ public final class ObservableGameState {
     public void setState(PublicGameState newGameState, PlayerState newPlayerState) {
         Preconditions.requireNonNull(newGameState, newPlayerState);
         
-        setPublicGameStateProperties(newGameState);
+        RouteMap<PlayerId> newClaimedRoutes = newClaimedRoutes(newGameState);
+        setPublicGameStateProperties(newGameState, newClaimedRoutes);
         setPublicPlayerStatesProperties(newGameState);
-        setPlayerStateProperties(newGameState, newPlayerState);
+        setPlayerStateProperties(newGameState, newPlayerState, newClaimedRoutes);
     
         this.gameState = newGameState;
         this.playerState = newPlayerState;
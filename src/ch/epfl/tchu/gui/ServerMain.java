@@ -64,7 +64,7 @@ public final class ServerMain extends Application {
             ServerSocket serverSocket = new ServerSocket(DEFAULT_PORT);
             Socket socket = serverSocket.accept();
             
-            GraphicalPlayerAdapter graphicalPlayer = new GraphicalPlayerAdapter();
+            GraphicalPlayerAdapter graphicalPlayer = new GraphicalPlayerAdapter(true);
             Player playerProxy = new RemotePlayerProxy(socket);
             
             Thread gameThread = new Thread(() -> Game.play(
@@ -0,0 +1,207 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicCardState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.PublicPlayerState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Classe publique, finale et non instanciable contenant des serdes
+ * utilisant un encodage binaire compact des états de jeu.
+ *
+ * Les entiers sont encodés sous forme d'entiers de longueur variable
+ * (7 bits par octet), les cartes, routes et billets par leur index dans
+ * les mêmes listes que celles utilisées par {@link Serdes},
+ * et les routes possédées par un joueur sous forme d'ensemble de bits.
+ * L'encodage binaire est finalement transformé en Base64, afin que
+ * les messages restent des lignes de texte ASCII ; les états ainsi encodés
+ * sont environ deux fois plus courts que leur encodage textuel.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class BinarySerdes {
+
+    private BinarySerdes() {}
+
+    private static final List<Route> ROUTES = ChMap.routes();
+    private static final List<Ticket> TICKETS = ChMap.tickets();
+
+    // Valeur utilisée pour encoder l'absence de dernier joueur
+    private static final int NO_PLAYER = PlayerId.COUNT;
+
+    // Les routes et les billets n'appartenant pas au réseau ne peuvent pas être encodés
+    private static int indexOf(Route route) {
+        return Objects.checkIndex(route.index(), ROUTES.size());
+    }
+
+    private static int indexOf(Ticket ticket) {
+        return Objects.checkIndex(ticket.index(), TICKETS.size());
+    }
+
+    private static <T> Serde<T> binary(BiConsumer<T, ByteArrayOutputStream> encoder, Function<ByteBuffer, T> decoder) {
+        return Serde.of(
+                raw -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    encoder.accept(raw, out);
+                    return Base64.getEncoder().encodeToString(out.toByteArray());
+                },
+                serialized -> decoder.apply(ByteBuffer.wrap(Base64.getDecoder().decode(serialized)))
+        );
+    }
+
+    // MARK:- Entiers de longueur variable
+
+    private static void writeVarInt(int value, ByteArrayOutputStream out) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    // MARK:- Routes, cartes et billets
+
+    private static void writeRoutes(List<Route> routes, ByteArrayOutputStream out) {
+        BitSet owned = new BitSet(ROUTES.size());
+        for (Route r : routes)
+            owned.set(indexOf(r));
+
+        byte[] bytes = owned.toByteArray();
+        writeVarInt(bytes.length, out);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static List<Route> readRoutes(ByteBuffer in) {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+
+        BitSet owned = BitSet.valueOf(bytes);
+        List<Route> routes = new ArrayList<>(owned.cardinality());
+        for (int i = owned.nextSetBit(0); i >= 0; i = owned.nextSetBit(i + 1))
+            routes.add(ROUTES.get(i));
+
+        return routes;
+    }
+
+    private static void writeCards(SortedBag<Card> cards, ByteArrayOutputStream out) {
+        for (Card c : Card.ALL)
+            writeVarInt(cards.countOf(c), out);
+    }
+
+    private static SortedBag<Card> readCards(ByteBuffer in) {
+        SortedBag.Builder<Card> cardsB = new SortedBag.Builder<>();
+        for (Card c : Card.ALL)
+            cardsB.add(readVarInt(in), c);
+
+        return cardsB.build();
+    }
+
+    private static void writeTickets(SortedBag<Ticket> tickets, ByteArrayOutputStream out) {
+        writeVarInt(tickets.size(), out);
+        for (Ticket t : tickets)
+            writeVarInt(indexOf(t), out);
+    }
+
+    private static SortedBag<Ticket> readTickets(ByteBuffer in) {
+        SortedBag.Builder<Ticket> ticketsB = new SortedBag.Builder<>();
+        int count = readVarInt(in);
+        for (int i = 0; i < count; ++i)
+            ticketsB.add(TICKETS.get(readVarInt(in)));
+
+        return ticketsB.build();
+    }
+
+    // MARK:- Serdes de types composites
+
+    /**
+     * Serde binaire capable de sérialiser/désérialiser des états complets de joueur.
+     */
+    public static final Serde<PlayerState> PLAYER_STATE = binary(
+            (state, out) -> {
+                writeTickets(state.tickets(), out);
+                writeCards(state.cards(), out);
+                writeRoutes(state.routes(), out);
+            },
+            in -> new PlayerState(readTickets(in), readCards(in), readRoutes(in))
+    );
+
+    /**
+     * Serde binaire capable de sérialiser/désérialiser des états publics de jeu.
+     */
+    public static final Serde<PublicGameState> PUBLIC_GAME_STATE = binary(
+            (state, out) -> {
+                writeVarInt(state.ticketsCount(), out);
+
+                PublicCardState cardState = state.cardState();
+                for (Card c : cardState.faceUpCards())
+                    writeVarInt(c.ordinal(), out);
+                writeVarInt(cardState.deckSize(), out);
+                writeVarInt(cardState.discardsSize(), out);
+
+                writeVarInt(state.currentPlayerId().ordinal(), out);
+                for (PlayerId id : PlayerId.ALL) {
+                    PublicPlayerState playerState = state.playerState(id);
+                    writeVarInt(playerState.ticketCount(), out);
+                    writeVarInt(playerState.cardCount(), out);
+                    writeRoutes(playerState.routes(), out);
+                }
+                writeVarInt(state.lastPlayer() == null ? NO_PLAYER : state.lastPlayer().ordinal(), out);
+            },
+            in -> {
+                int ticketsCount = readVarInt(in);
+
+                List<Card> faceUpCards = new ArrayList<>(Constants.FACE_UP_CARDS_COUNT);
+                for (int i = 0; i < Constants.FACE_UP_CARDS_COUNT; ++i)
+                    faceUpCards.add(Card.ALL.get(readVarInt(in)));
+                PublicCardState cardState = new PublicCardState(faceUpCards, readVarInt(in), readVarInt(in));
+
+                PlayerId currentPlayerId = PlayerId.ALL.get(readVarInt(in));
+                Map<PlayerId, PublicPlayerState> playerState = new EnumMap<>(PlayerId.class);
+                for (PlayerId id : PlayerId.ALL)
+                    playerState.put(id, new PublicPlayerState(readVarInt(in), readVarInt(in), readRoutes(in)));
+
+                int lastPlayer = readVarInt(in);
+                return new PublicGameState(
+                        ticketsCount,
+                        cardState,
+                        currentPlayerId,
+                        playerState,
+                        lastPlayer == NO_PLAYER ? null : PlayerId.ALL.get(lastPlayer)
+                );
+            }
+    );
+
+}
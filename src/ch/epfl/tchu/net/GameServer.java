@@ -0,0 +1,518 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.tchu.replay.GameReplay;
+import ch.epfl.tchu.replay.ReplayRecorder;
+import ch.epfl.tchu.replay.SnapshotWriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe publique et finale représentant un serveur de tCHu capable
+ * d'héberger simultanément un grand nombre de parties.
+ *
+ * Le serveur accepte continuellement de nouvelles connexions, regroupe
+ * les clients par paires, et fait jouer chaque paire dans une session
+ * indépendante, exécutée par un exécuteur de taille bornée. Les joueurs
+ * de toutes les sessions partagent eux aussi un exécuteur de taille bornée,
+ * et les instantanés de toutes les parties sont écrits par un unique fil.
+ * Une session qui échoue est isolée des autres : seules ses propres
+ * connexions sont fermées.
+ * Si un répertoire de journaux est donné, le journal de chaque partie
+ * y est enregistré (voir <code>{@link ReplayRecorder}</code>), avec le nom et un condensé
+ * du jeton de session de chaque joueur, ainsi qu'un instantané régulier des parties en cours.
+ * Au démarrage du serveur, les parties interrompues (par exemple par un arrêt brutal
+ * du serveur) sont reprises dès que leurs deux joueurs se sont reconnectés avec leur jeton,
+ * à partir de leur dernier instantané et de la fin de leur journal. Une partie interrompue
+ * n'est jamais confiée à d'autres joueurs.
+ *
+ * Chaque nouvelle connexion reçoit d'abord un message <code>SESSION</code>, auquel
+ * le client répond par son jeton de session, le nombre de messages de la session
+ * qu'il a reçus et sa dernière réponse. Un client sans jeton rejoint la prochaine
+ * partie ; un client dont la connexion a été perdue reprend sa session
+ * (voir <code>{@link RemotePlayerProxy}</code>), ou reçoit <code>END_SESSION</code>
+ * si elle est terminée. Les identifications sont faites par un nombre borné de fils,
+ * et la connexion d'un client qui ne répond pas à temps est fermée.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class GameServer implements Runnable {
+
+    private static final List<String> DEFAULT_PLAYERS = List.of("Ada", "Charles");
+    private static final int DEFAULT_PORT = 5108;
+    private static final int DEFAULT_MAX_SESSIONS = 1024;
+    private static final List<WireFormat> OFFERED_FORMATS = List.of(WireFormat.BINARY, WireFormat.TEXT);
+    private static final String LOG_EXTENSION = ".tchu";
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    // Nombre de tours séparant deux instantanés des parties en cours
+    private static final int SNAPSHOT_INTERVAL = 4;
+    // Durée maximale d'attente de l'adversaire d'un joueur reprenant une partie interrompue
+    private static final long REJOIN_TIMEOUT_SECONDS = 60;
+    // Durée maximale, depuis l'acceptation de la connexion, de l'identification d'un client
+    private static final long HANDSHAKE_TIMEOUT_SECONDS = 10;
+    private static final int HANDSHAKE_THREADS = 16;
+    private static final int SESSION_TOKEN_BYTES = 16;
+    // Durée après laquelle un fil inactif d'un exécuteur partagé est libéré
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final SecureRandom TOKEN_RNG = new SecureRandom();
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService sessions;
+    private final ExecutorService handshakes;
+    // Fermeture des connexions dont l'identification ou l'attente de l'adversaire dure trop longtemps
+    private final ScheduledThreadPoolExecutor timeouts;
+    private final ExecutorService playerExecutor;
+    private final ExecutorService snapshotExecutor;
+    private final Path replayDirectory;
+    // Parties interrompues pouvant être reprises, par clé de session de chacun de leurs joueurs
+    private final ConcurrentMap<String, InterruptedGame> interruptedGames = new ConcurrentHashMap<>();
+    private final AtomicLong sessionCount = new AtomicLong();
+
+    // Clients identifiés attendant un adversaire, et mandataires des sessions en cours par jeton
+    private final List<LineChannel> waiting = new ArrayList<>(PlayerId.COUNT);
+    private final ConcurrentMap<String, RemotePlayerProxy> proxies = new ConcurrentHashMap<>();
+
+    /**
+     * Lance un serveur de tCHu hébergeant plusieurs parties.
+     *
+     * @param args
+     *          numéro de port (facultatif), nombre maximum de parties simultanées (facultatif),
+     *          répertoire des journaux de parties (facultatif)
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+        Path replayDirectory = args.length > 2 ? Path.of(args[2]) : null;
+
+        new GameServer(port, maxSessions, replayDirectory).run();
+    }
+
+    /**
+     * Construit un serveur écoutant sur le port donné, et capable de faire jouer
+     * au plus <code>maxSessions</code> parties simultanément.
+     * Les paires de joueurs formées au-delà de cette limite
+     * attendent qu'une session se libère.
+     *
+     * @param port
+     *          le port sur lequel le serveur écoute
+     * @param maxSessions
+     *          le nombre maximum de parties jouées simultanément
+     * @throws IllegalArgumentException
+     *          si <code>maxSessions</code> n'est pas strictement positif
+     * @throws UncheckedIOException
+     *          si le port donné ne peut pas être ouvert
+     */
+    public GameServer(int port, int maxSessions) {
+        this(port, maxSessions, null);
+    }
+
+    /**
+     * Construit un serveur écoutant sur le port donné, capable de faire jouer
+     * au plus <code>maxSessions</code> parties simultanément, et enregistrant
+     * le journal de chaque partie dans le répertoire donné.
+     * Les parties interrompues dont le journal se trouve dans ce répertoire
+     * seront reprises lorsque leurs joueurs se reconnecteront.
+     *
+     * @param port
+     *          le port sur lequel le serveur écoute
+     * @param maxSessions
+     *          le nombre maximum de parties jouées simultanément
+     * @param replayDirectory
+     *          le répertoire des journaux de parties,
+     *          ou <code>null</code> si les parties ne doivent pas être enregistrées
+     * @throws IllegalArgumentException
+     *          si <code>maxSessions</code> n'est pas strictement positif
+     * @throws UncheckedIOException
+     *          si le port donné ne peut pas être ouvert,
+     *          ou si le répertoire des journaux ne peut pas être lu
+     */
+    public GameServer(int port, int maxSessions, Path replayDirectory) {
+        Preconditions.checkArgument(maxSessions > 0);
+        this.replayDirectory = replayDirectory;
+        if (replayDirectory != null) {
+            for (InterruptedGame game : interruptedGames(replayDirectory))
+                game.replay.sessionKeys().values().forEach(key -> interruptedGames.put(key, game));
+        }
+
+        try {
+            this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.sessions = Executors.newFixedThreadPool(maxSessions, GameServer::newDaemonThread);
+        this.handshakes = boundedPool(HANDSHAKE_THREADS);
+        this.timeouts = new ScheduledThreadPoolExecutor(1, GameServer::newDaemonThread);
+        timeouts.setRemoveOnCancelPolicy(true);
+        // Un joueur peut bloquer un fil en attendant sa réponse : il en faut un par joueur
+        this.playerExecutor = boundedPool(PlayerId.COUNT * maxSessions);
+        this.snapshotExecutor = boundedPool(1);
+    }
+
+    private static Thread newDaemonThread(Runnable r) {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    }
+
+    // Retourne un exécuteur d'au plus le nombre de fils donné, dont les fils inactifs
+    // sont libérés, et dont les tâches en excès attendent qu'un fil se libère
+    private static ExecutorService boundedPool(int size) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                size, size, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), GameServer::newDaemonThread);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Boucle principale du serveur.
+     *
+     * Elle accepte les connexions entrantes et identifie chaque client
+     * sur l'un des fils dédiés aux identifications. Dès que
+     * <code>PlayerId.COUNT</code> nouveaux clients sont en attente,
+     * elle les fait jouer ensemble dans une nouvelle session.
+     */
+    @Override
+    public void run() {
+        try {
+            while (serverChannel.isOpen()) {
+                LineChannel channel = new LineChannel(serverChannel.accept().socket());
+                // Le délai court dès l'acceptation, afin qu'un client ne puisse pas non plus
+                // occuper indéfiniment la file d'attente des identifications
+                ScheduledFuture<?> timeout = timeouts.schedule(
+                        () -> closeQuietly(channel), HANDSHAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                handshakes.execute(() -> handshake(channel, timeout));
+            }
+        } catch (IOException e) {
+            // Une fermeture volontaire du serveur n'est pas une erreur
+            if (serverChannel.isOpen())
+                throw new UncheckedIOException(e);
+        } finally {
+            synchronized (waiting) {
+                waiting.forEach(GameServer::closeQuietly);
+                waiting.clear();
+            }
+            handshakes.shutdown();
+            timeouts.shutdown();
+            // Les exécuteurs des joueurs et des instantanés ne sont pas arrêtés,
+            // afin que les parties en cours puissent se terminer ; leurs fils
+            // inactifs sont de toute manière libérés
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Ferme le serveur : plus aucune connexion n'est acceptée, mais
+     * les parties en cours se terminent normalement.
+     */
+    public void close() {
+        closeQuietly(serverChannel);
+    }
+
+    // Identifie le client de la connexion donnée, qui est fermée par la tâche donnée
+    // si le client n'a pas répondu à temps
+    private void handshake(LineChannel channel, ScheduledFuture<?> timeout) {
+        try {
+            channel.write(MessageId.SESSION.name());
+            channel.newLine();
+            channel.flush();
+
+            String response = channel.readLine();
+            // Une connexion fermée faute de réponse ne peut plus être utilisée
+            if (! timeout.cancel(false))
+                return;
+            if (response == null)
+                throw new UncheckedIOException(new EOFException());
+            String[] split = Serde.split(response, Serde.SPACE);
+            Preconditions.checkArgument(split.length == 3);
+
+            String token = Serdes.STRING.deserialize(split[0]);
+            if (token.isEmpty()) {
+                join(channel);
+                return;
+            }
+
+            int receivedCount = Serdes.INTEGER.deserialize(split[1]);
+            RemotePlayerProxy proxy = proxies.get(token);
+            if (proxy != null)
+                proxy.reconnect(channel, receivedCount, split[2]);
+            else if (! rejoin(channel, token, receivedCount))
+                // Une session inconnue est terminée
+                endSession(channel);
+        } catch (RuntimeException e) {
+            timeout.cancel(false);
+            closeQuietly(channel);
+        }
+    }
+
+    private static void endSession(LineChannel channel) {
+        try {
+            channel.write(MessageId.END_SESSION.name());
+            channel.newLine();
+            channel.flush();
+        } catch (RuntimeException ignored) {
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private void join(LineChannel channel) {
+        synchronized (waiting) {
+            // Un client parti pendant son attente ne doit pas priver le suivant d'adversaire
+            waiting.removeIf(c -> {
+                if (c.isAlive())
+                    return false;
+                closeQuietly(c);
+                return true;
+            });
+            waiting.add(channel);
+
+            if (waiting.size() == PlayerId.COUNT) {
+                Map<PlayerId, Connection> connections = new EnumMap<>(PlayerId.class);
+                for (PlayerId id : PlayerId.ALL)
+                    connections.put(id, new Connection(waiting.get(id.ordinal()), newSessionToken(), 0));
+                long sessionId = sessionCount.incrementAndGet();
+
+                sessions.execute(() -> playSession(sessionId, connections, null));
+                waiting.clear();
+            }
+        }
+    }
+
+    // Inscrit le client donné, qui jouait la partie interrompue à laquelle correspond son jeton,
+    // et reprend la partie si son adversaire s'est lui aussi reconnecté ; sinon, la session
+    // du client est terminée si l'adversaire ne se reconnecte pas à temps.
+    // Retourne faux si le jeton ne correspond à aucune partie interrompue
+    private boolean rejoin(LineChannel channel, String token, int receivedCount) {
+        String key = sessionKey(token);
+        InterruptedGame game = interruptedGames.get(key);
+        if (game == null)
+            return false;
+
+        PlayerId id = game.playerOf(key);
+        Connection connection = new Connection(channel, token, receivedCount);
+        synchronized (game) {
+            // La partie a pu être reprise depuis qu'elle a été trouvée
+            if (! interruptedGames.containsKey(key))
+                return false;
+
+            // Une reconnexion plus récente du même client remplace la précédente
+            Connection previous = game.connections.put(id, connection);
+            if (previous != null)
+                closeQuietly(previous.channel);
+
+            if (game.connections.size() == PlayerId.COUNT) {
+                game.replay.sessionKeys().values().forEach(interruptedGames::remove);
+                Map<PlayerId, Connection> connections = new EnumMap<>(game.connections);
+                long sessionId = sessionCount.incrementAndGet();
+
+                sessions.execute(() -> playSession(sessionId, connections, game));
+            } else {
+                timeouts.schedule(() -> expire(game, id, connection), REJOIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            return true;
+        }
+    }
+
+    // Termine la session du client donné, qui attend de reprendre la partie interrompue donnée,
+    // à moins que la partie n'ait été reprise ou que le client ne se soit reconnecté depuis
+    private void expire(InterruptedGame game, PlayerId id, Connection connection) {
+        synchronized (game) {
+            if (game.connections.get(id) != connection || ! interruptedGames.containsKey(sessionKey(connection.token)))
+                return;
+            game.connections.remove(id);
+        }
+        endSession(connection.channel);
+    }
+
+    // Fait jouer aux clients donnés une nouvelle partie, ou la partie interrompue donnée
+    private void playSession(long sessionId, Map<PlayerId, Connection> connections, InterruptedGame interrupted) {
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> tokens = new EnumMap<>(PlayerId.class);
+        Map<String, RemotePlayerProxy> sessionProxies = new HashMap<>();
+        connections.forEach((id, connection) -> {
+            RemotePlayerProxy proxy = new RemotePlayerProxy(connection.channel, OFFERED_FORMATS, connection.token, connection.receivedCount);
+            sessionProxies.put(connection.token, proxy);
+            players.put(id, proxy);
+            tokens.put(id, connection.token);
+        });
+        proxies.putAll(sessionProxies);
+
+        try {
+            if (interrupted != null)
+                resumeInterruptedGame(interrupted, players);
+            else if (replayDirectory == null)
+                Game.play(players, defaultPlayerNames(), SortedBag.of(ChMap.tickets()), new Random(), playerExecutor);
+            else
+                playRecordedGame(sessionId, players, tokens);
+        } catch (RuntimeException | IOException e) {
+            // L'échec d'une partie ne doit pas affecter les autres sessions
+            System.err.printf("Session %d interrompue : %s%n", sessionId, e);
+        } finally {
+            // Les clients doivent pouvoir se reconnecter pendant la fermeture de la session
+            sessionProxies.values().forEach(RemotePlayerProxy::close);
+            proxies.keySet().removeAll(sessionProxies.keySet());
+        }
+    }
+
+    private static Map<PlayerId, String> defaultPlayerNames() {
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            playerNames.put(id, DEFAULT_PLAYERS.get(id.ordinal()));
+        return playerNames;
+    }
+
+    private static String newSessionToken() {
+        byte[] token = new byte[SESSION_TOKEN_BYTES];
+        TOKEN_RNG.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    // Retourne la clé de session enregistrée dans le journal pour le jeton donné :
+    // un condensé du jeton, afin que la lecture d'un journal ne permette pas
+    // de reprendre la partie à la place de l'un de ses joueurs
+    private static String sessionKey(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+
+    private void playRecordedGame(long sessionId, Map<PlayerId, Player> players, Map<PlayerId, String> tokens) throws IOException {
+        // La graine est conservée afin que la partie puisse être rejouée
+        long seed = new Random().nextLong();
+        SortedBag<Ticket> tickets = SortedBag.of(ChMap.tickets());
+        Map<PlayerId, String> playerNames = defaultPlayerNames();
+        Map<PlayerId, String> sessionKeys = new EnumMap<>(PlayerId.class);
+        tokens.forEach((id, token) -> sessionKeys.put(id, sessionKey(token)));
+        Path log = replayDirectory.resolve(String.format("%d-%d%s", System.currentTimeMillis(), sessionId, LOG_EXTENSION));
+
+        try (ReplayRecorder recorder = ReplayRecorder.create(log, seed, tickets, playerNames, sessionKeys);
+             SnapshotWriter snapshots = new SnapshotWriter(snapshotPath(log), snapshotExecutor)) {
+            Game.play(recorder.record(players), playerNames, tickets, new Random(seed), SNAPSHOT_INTERVAL, snapshots, playerExecutor);
+        }
+        // Une partie terminée n'a plus à être reprise
+        Files.deleteIfExists(snapshotPath(log));
+    }
+
+    private void resumeInterruptedGame(InterruptedGame game, Map<PlayerId, Player> players) throws IOException {
+        GameReplay replay = game.replay;
+        try (ReplayRecorder recorder = ReplayRecorder.append(game.log, replay);
+             SnapshotWriter snapshots = new SnapshotWriter(snapshotPath(game.log), snapshotExecutor)) {
+            Game.resume(recorder.record(players), replay.playerNames(), replay.resumePoint(), SNAPSHOT_INTERVAL, snapshots, playerExecutor);
+        }
+        Files.deleteIfExists(snapshotPath(game.log));
+    }
+
+    private static Path snapshotPath(Path log) {
+        String name = log.getFileName().toString();
+        return log.resolveSibling(name.substring(0, name.length() - LOG_EXTENSION.length()) + SNAPSHOT_EXTENSION);
+    }
+
+    // Retourne les parties interrompues, c'est-à-dire celles dont le journal a un instantané,
+    // qui peuvent être reprises par leurs joueurs
+    private static List<InterruptedGame> interruptedGames(Path replayDirectory) {
+        List<InterruptedGame> games = new ArrayList<>();
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(replayDirectory, "*" + SNAPSHOT_EXTENSION)) {
+            for (Path snapshot : snapshots) {
+                String name = snapshot.getFileName().toString();
+                Path log = snapshot.resolveSibling(name.substring(0, name.length() - SNAPSHOT_EXTENSION.length()) + LOG_EXTENSION);
+                if (! Files.exists(log))
+                    continue;
+
+                GameReplay replay;
+                try {
+                    replay = GameReplay.read(log, snapshot);
+                } catch (RuntimeException e) {
+                    System.err.printf("Partie %s non reprise : %s%n", log, e);
+                    continue;
+                }
+                // Seules les parties dont chaque joueur peut être reconnu peuvent être reprises
+                if (replay.resumePoint() != null && ! replay.sessionKeys().containsValue(""))
+                    games.add(new InterruptedGame(log, replay));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return games;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {}
+    }
+
+    // Connexion d'un client, avec son jeton de session et le nombre de messages qu'il a reçus
+    private static final class Connection {
+        private final LineChannel channel;
+        private final String token;
+        private final int receivedCount;
+
+        private Connection(LineChannel channel, String token, int receivedCount) {
+            this.channel = channel;
+            this.token = token;
+            this.receivedCount = receivedCount;
+        }
+    }
+
+    // Partie interrompue, et connexions de ses joueurs qui attendent sa reprise
+    private static final class InterruptedGame {
+        private final Path log;
+        private final GameReplay replay;
+        private final Map<PlayerId, Connection> connections = new EnumMap<>(PlayerId.class);
+
+        private InterruptedGame(Path log, GameReplay replay) {
+            this.log = log;
+            this.replay = replay;
+        }
+
+        private PlayerId playerOf(String sessionKey) {
+            for (PlayerId id : PlayerId.ALL) {
+                if (replay.sessionKeys().get(id).equals(sessionKey))
+                    return id;
+            }
+            throw new IllegalArgumentException();
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package ch.epfl.tchu.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Classe finale et instanciable représentant un canal de communication
+ * textuel, découpé en lignes, entre le serveur et un client de tCHu.
+ *
+ * Les messages échangés sont uniquement composés de caractères ASCII
+ * et terminés par un retour à la ligne (<code>'\n'</code>).
+ * Les tampons de lecture et d'écriture sont alloués une seule fois
+ * et réutilisés pour tous les messages transitant par le canal.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class LineChannel implements Closeable {
+
+    private static final int BUFFER_CAPACITY = 1 << 14;
+    private static final int INITIAL_LINE_CAPACITY = 1 << 10;
+    private static final byte NEW_LINE = '\n';
+
+    private final Closeable closeable;
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+
+    // Tampon de lecture, toujours laissé en mode « lecture » (après flip)
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY).flip();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+
+    // Ligne en cours de lecture, agrandie au besoin
+    private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+
+    /**
+     * Construit un canal de lignes communiquant au travers du canal donné.
+     *
+     * @param channel
+     *          le canal de la connexion
+     * @throws NullPointerException
+     *          si le canal donné vaut <code>null</code>
+     */
+    LineChannel(SocketChannel channel) {
+        this.closeable = Objects.requireNonNull(channel);
+        this.in = channel;
+        this.out = channel;
+    }
+
+    /**
+     * Construit un canal de lignes communiquant au travers de la prise donnée.
+     * Si la prise a été obtenue à partir d'un {@link SocketChannel},
+     * ce dernier est directement utilisé.
+     *
+     * @param socket
+     *          la prise de la connexion
+     * @throws NullPointerException
+     *          si la prise donnée vaut <code>null</code>
+     * @throws UncheckedIOException
+     *          si les flots de la prise ne peuvent pas être obtenus
+     */
+    LineChannel(Socket socket) {
+        this.closeable = Objects.requireNonNull(socket);
+
+        SocketChannel channel = socket.getChannel();
+        if (channel != null) {
+            this.in = channel;
+            this.out = channel;
+        } else {
+            try {
+                this.in = Channels.newChannel(socket.getInputStream());
+                this.out = Channels.newChannel(socket.getOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Ajoute le texte donné au tampon d'écriture.
+     * Le tampon est vidé sur le canal uniquement lorsqu'il est plein.
+     *
+     * @param text
+     *          le texte, composé uniquement de caractères ASCII
+     * @throws UncheckedIOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    void write(String text) {
+        for (int i = 0; i < text.length(); ++i)
+            put((byte) text.charAt(i));
+    }
+
+    /**
+     * Ajoute un retour à la ligne au tampon d'écriture, terminant ainsi le message en cours.
+     *
+     * @throws UncheckedIOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    void newLine() {
+        put(NEW_LINE);
+    }
+
+    /**
+     * Envoie sur le canal la totalité des données en attente dans le tampon d'écriture.
+     *
+     * @throws UncheckedIOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    void flush() {
+        try {
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining())
+                out.write(writeBuffer);
+            writeBuffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lit la prochaine ligne du canal, sans son retour à la ligne.
+     *
+     * @throws UncheckedIOException
+     *          en cas d'erreur d'entrée/sortie
+     * @return
+     *          la ligne lue, ou <code>null</code> si la fin du flot
+     *          a été atteinte avant qu'un caractère ne soit lu
+     */
+    String readLine() {
+        int length = 0;
+
+        while (true) {
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == NEW_LINE)
+                    return new String(line, 0, length, US_ASCII);
+
+                if (length == line.length)
+                    line = Arrays.copyOf(line, 2 * length);
+                line[length++] = b;
+            }
+
+            if (! fill())
+                return length == 0 ? null : new String(line, 0, length, US_ASCII);
+        }
+    }
+
+    /**
+     * Retourne vrai ssi la connexion semble toujours ouverte, c'est-à-dire si elle n'a pas
+     * été fermée et si son autre extrémité ne l'a pas fermée non plus.
+     * Cette méthode ne bloque pas : les données éventuellement disponibles sont lues,
+     * et conservées pour les prochains appels à <code>readLine</code>.
+     * Elle ne doit pas être appelée pendant qu'un autre fil lit sur le canal.
+     * Si le canal n'est pas un {@link SocketChannel}, la connexion
+     * est considérée comme ouverte.
+     *
+     * @return vrai ssi la connexion semble toujours ouverte
+     */
+    boolean isAlive() {
+        if (! (in instanceof SocketChannel))
+            return true;
+
+        SocketChannel channel = (SocketChannel) in;
+        try {
+            channel.configureBlocking(false);
+            try {
+                readBuffer.compact();
+                int read = channel.read(readBuffer);
+                return read >= 0;
+            } finally {
+                readBuffer.flip();
+                channel.configureBlocking(true);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ferme la connexion sous-jacente.
+     *
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    @Override
+    public void close() throws IOException {
+        closeable.close();
+    }
+
+    private void put(byte b) {
+        if (! writeBuffer.hasRemaining())
+            flush();
+        writeBuffer.put(b);
+    }
+
+    // Remplit le tampon de lecture, et retourne faux ssi la fin du flot est atteinte
+    private boolean fill() {
+        try {
+            readBuffer.clear();
+            int read;
+            do {
+                read = in.read(readBuffer);
+            } while (read == 0);
+            readBuffer.flip();
+
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -19,6 +19,10 @@ public enum MessageId {
     DRAW_SLOT,
     ROUTE,
     CARDS,
-    CHOOSE_ADDITIONAL_CARDS
+    CHOOSE_ADDITIONAL_CARDS,
+    CHOOSE_FORMAT,
+    UPDATE_STATE_DELTA,
+    SESSION,
+    END_SESSION
 
 }
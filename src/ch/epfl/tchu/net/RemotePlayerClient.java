@@ -5,15 +5,15 @@ import ch.epfl.tchu.SortedBag;
 import ch.epfl.tchu.game.Card;
 import ch.epfl.tchu.game.Player;
 import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
 import ch.epfl.tchu.game.Ticket;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -21,31 +21,59 @@ import java.util.Objects;
 
 import static ch.epfl.tchu.net.Serde.SPACE;
 import static ch.epfl.tchu.net.Serde.split;
-import static java.nio.charset.StandardCharsets.US_ASCII;
 
 /**
- * Classe publique, finale et immuable représentant un client de joueur distant.
+ * Classe publique et finale représentant un client de joueur distant.
  * Elle implémente l'interface {@link Runnable}, son but étant que ses instances
  * soient passées en argument à un nouveau {@link Thread} destiné à
  * gérer la partie logique du jeu en réseau.
  *
+ * Si le serveur lui a transmis un jeton de session, le client se reconnecte
+ * automatiquement en cas de perte de la connexion, et reprend la session là
+ * où elle en était.
+ *
  * @author Mallory Henriet (311258)
  * @author Louis Hervé (312937)
  */
 public final class RemotePlayerClient implements Runnable {
     
+    // Nombre maximal de tentatives de reconnexion, et délai entre deux tentatives
+    private static final int RECONNECTION_ATTEMPTS = 30;
+    private static final long RECONNECTION_DELAY_MILLIS = 2000;
+    
     private final Player player;
-    private final Socket socket;
+    private final String host;
+    private final int port;
+    private LineChannel channel;
+    
+    // Format des états de jeu, choisi parmi ceux proposés par le mandataire
+    private WireFormat format = WireFormat.TEXT;
+    
+    // Identité du joueur et derniers états reçus, utilisés pour appliquer les différences d'états
+    private PlayerId ownId;
+    private PublicGameState lastGameState;
+    private PlayerState lastPlayerState;
+    
+    // Jeton de la session en cours, nombre de messages reçus et dernière réponse envoyée,
+    // transmis au serveur lors d'une reconnexion
+    private String sessionToken;
+    private int receivedCount = 0;
+    private String lastResponse = "";
+    // Nombre de tentatives de reconnexion depuis la dernière identification auprès du serveur
+    private int reconnectionAttempts = 0;
     
     private <T> void sendResponse(Serde<T> serde, T response) {
+        // La réponse est conservée avant son envoi, afin de pouvoir
+        // être transmise à nouveau si elle est perdue avec la connexion
+        lastResponse = serde.serialize(response);
+        channel.write(lastResponse);
+        channel.newLine();
+        channel.flush();
+    }
+    
+    private static LineChannel connect(String host, int port) {
         try {
-            BufferedWriter w =
-                    new BufferedWriter(
-                            new OutputStreamWriter(socket.getOutputStream(), US_ASCII));
-            
-            w.write(serde.serialize(response));
-            w.write('\n');
-            w.flush();
+            return new LineChannel(SocketChannel.open(new InetSocketAddress(host, port)));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -70,11 +98,9 @@ public final class RemotePlayerClient implements Runnable {
         Preconditions.checkArgument(! host.isBlank());
         
         this.player = Objects.requireNonNull(player);
-        try {
-            this.socket = new Socket(host, port);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        this.host = host;
+        this.port = port;
+        this.channel = connect(host, port);
     }
     
     /**
@@ -84,84 +110,178 @@ public final class RemotePlayerClient implements Runnable {
      * puis appelle la méthode correspondante du joueur.
      * Si cette méthode retourne un résultat,
      * elle le renvoie au mandataire en réponse.
+     * Si la connexion est perdue en cours de session, elle se reconnecte
+     * au serveur et continue de traiter les messages de la session.
      */
     @Override
     public void run() {
-        try (BufferedReader r =
-                     new BufferedReader(
-                             new InputStreamReader(socket.getInputStream(), US_ASCII))
-        ) {
+        try {
+            UncheckedIOException loss;
+            while ((loss = serve()) != null)
+                reconnect(loss);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+    
+    // Traite les messages de la connexion courante jusqu'à sa fin, et retourne
+    // l'erreur l'ayant interrompue si la session doit être reprise, null sinon
+    private UncheckedIOException serve() {
+        try {
             String line;
-            while ((line = r.readLine()) != null) {
-                String[] split = split(line, SPACE);
-                int i = 0, j;
-                MessageId message = MessageId.valueOf(split[i++]);
-                
-                switch (message) {
-                    case INIT_PLAYERS:
-                        j = i;
-                        PlayerId ownId = Serdes.PLAYER_ID.deserialize(split[j++]);
-                        List<String> names = Serdes.STRING_LIST.deserialize(split[j]);
-                        
-                        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
-                        for (PlayerId id : PlayerId.ALL)
-                            playerNames.put(id, names.get(id.ordinal()));
-                        
-                        player.initPlayers(ownId, playerNames);
-                        break;
-                        
-                    case RECEIVE_INFO:
-                        player.receiveInfo(Serdes.STRING.deserialize(split[i]));
-                        break;
-                        
-                    case UPDATE_STATE:
-                        j = i;
-                        player.updateState(
-                                Serdes.PUBLIC_GAME_STATE.deserialize(split[j++]),
-                                Serdes.PLAYER_STATE.deserialize(split[j])
-                        );
-                        break;
-                        
-                    case SET_INITIAL_TICKETS:
-                        player.setInitialTicketChoice(Serdes.TICKET_BAG.deserialize(split[i]));
-                        break;
-                        
-                    case CHOOSE_INITIAL_TICKETS:
-                        sendResponse(Serdes.TICKET_BAG, player.chooseInitialTickets());
-                        break;
-                        
-                    case NEXT_TURN:
-                        sendResponse(Serdes.TURN_KIND, player.nextTurn());
-                        break;
-                        
-                    case CHOOSE_TICKETS:
-                        SortedBag<Ticket> ticketOptions = Serdes.TICKET_BAG.deserialize(split[i]);
-                        sendResponse(Serdes.TICKET_BAG, player.chooseTickets(ticketOptions));
-                        break;
-                        
-                    case DRAW_SLOT:
-                        sendResponse(Serdes.INTEGER, player.drawSlot());
-                        break;
-                        
-                    case ROUTE:
-                        sendResponse(Serdes.ROUTE, player.claimedRoute());
-                        break;
-                        
-                    case CARDS:
-                        sendResponse(Serdes.CARD_BAG, player.initialClaimCards());
-                        break;
-                        
-                    case CHOOSE_ADDITIONAL_CARDS:
-                        List<SortedBag<Card>> cardOptions = Serdes.CARD_BAG_LIST.deserialize(split[i]);
-                        sendResponse(Serdes.CARD_BAG, player.chooseAdditionalCards(cardOptions));
-                        break;
-                        
-                    default:
-                        throw new Error();
+            while ((line = channel.readLine()) != null)
+                handle(line);
+        } catch (UncheckedIOException e) {
+            if (sessionToken == null)
+                throw e;
+            return e;
+        }
+        
+        return sessionToken == null ? null : new UncheckedIOException(new EOFException());
+    }
+    
+    private void reconnect(UncheckedIOException loss) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+        
+        while (true) {
+            if (reconnectionAttempts == RECONNECTION_ATTEMPTS)
+                throw loss;
+            
+            // La première tentative est immédiate, les suivantes sont espacées
+            if (reconnectionAttempts++ > 0) {
+                try {
+                    Thread.sleep(RECONNECTION_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new Error(e);
                 }
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            
+            try {
+                channel = connect(host, port);
+                return;
+            } catch (UncheckedIOException e) {
+                loss = e;
+            }
+        }
+    }
+    
+    private void handle(String line) {
+        String[] split = split(line, SPACE);
+        int i = 0, j;
+        MessageId message = MessageId.valueOf(split[i++]);
+        if (message != MessageId.SESSION && message != MessageId.END_SESSION)
+            ++receivedCount;
+        
+        switch (message) {
+            case INIT_PLAYERS:
+                j = i;
+                PlayerId initId = Serdes.PLAYER_ID.deserialize(split[j++]);
+                List<String> names = Serdes.STRING_LIST.deserialize(split[j++]);
+                // Le jeton de session n'est transmis que par les serveurs permettant la reprise
+                if (j < split.length)
+                    sessionToken = Serdes.STRING.deserialize(split[j]);
+                
+                // Une partie reprise après le redémarrage du serveur initialise à nouveau ses joueurs :
+                // celui de ce client l'est déjà, et le prochain état complet suffit à le mettre à jour
+                if (initId == ownId)
+                    break;
+                ownId = initId;
+                
+                Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+                for (PlayerId id : PlayerId.ALL)
+                    playerNames.put(id, names.get(id.ordinal()));
+                
+                player.initPlayers(ownId, playerNames);
+                break;
+                
+            case RECEIVE_INFO:
+                player.receiveInfo(Serdes.STRING.deserialize(split[i]));
+                break;
+                
+            case UPDATE_STATE:
+                j = i;
+                lastGameState = format.publicGameState().deserialize(split[j++]);
+                lastPlayerState = format.playerState().deserialize(split[j]);
+                player.updateState(lastGameState, lastPlayerState);
+                break;
+                
+            case UPDATE_STATE_DELTA:
+                j = i;
+                lastGameState = StateDelta.applyPublic(lastGameState, split[j++]);
+                lastPlayerState = StateDelta.applyOwn(
+                        lastPlayerState,
+                        lastGameState.playerState(ownId).routes(),
+                        split[j]
+                );
+                player.updateState(lastGameState, lastPlayerState);
+                break;
+                
+            case SET_INITIAL_TICKETS:
+                player.setInitialTicketChoice(Serdes.TICKET_BAG.deserialize(split[i]));
+                break;
+                
+            case CHOOSE_INITIAL_TICKETS:
+                sendResponse(Serdes.TICKET_BAG, player.chooseInitialTickets());
+                break;
+                
+            case NEXT_TURN:
+                sendResponse(Serdes.TURN_KIND, player.nextTurn());
+                break;
+                
+            case CHOOSE_TICKETS:
+                SortedBag<Ticket> ticketOptions = Serdes.TICKET_BAG.deserialize(split[i]);
+                sendResponse(Serdes.TICKET_BAG, player.chooseTickets(ticketOptions));
+                break;
+                
+            case DRAW_SLOT:
+                sendResponse(Serdes.INTEGER, player.drawSlot());
+                break;
+                
+            case ROUTE:
+                sendResponse(Serdes.ROUTE, player.claimedRoute());
+                break;
+                
+            case CARDS:
+                sendResponse(Serdes.CARD_BAG, player.initialClaimCards());
+                break;
+                
+            case CHOOSE_ADDITIONAL_CARDS:
+                List<SortedBag<Card>> cardOptions = Serdes.CARD_BAG_LIST.deserialize(split[i]);
+                sendResponse(Serdes.CARD_BAG, player.chooseAdditionalCards(cardOptions));
+                break;
+                
+            case CHOOSE_FORMAT:
+                // Tous les formats étant supportés, on choisit celui préféré par le mandataire
+                format = WireFormat.LIST_SERDE.deserialize(split[i]).get(0);
+                sendResponse(WireFormat.SERDE, format);
+                break;
+                
+            case SESSION:
+                // Identification auprès du serveur, qui ne fait pas partie de la session :
+                // un client sans jeton rejoint une nouvelle partie
+                channel.write(String.join(SPACE,
+                        Serdes.STRING.serialize(sessionToken == null ? "" : sessionToken),
+                        Serdes.INTEGER.serialize(receivedCount),
+                        lastResponse
+                ));
+                channel.newLine();
+                channel.flush();
+                // Le serveur ayant répondu, une nouvelle perte de connexion peut être reprise immédiatement
+                reconnectionAttempts = 0;
+                break;
+                
+            case END_SESSION:
+                // La session est terminée, la fin de la connexion ne doit donc pas être reprise
+                sessionToken = null;
+                break;
+                
+            default:
+                throw new Error();
         }
     }
     
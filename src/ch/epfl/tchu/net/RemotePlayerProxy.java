@@ -1,5 +1,6 @@
 package ch.epfl.tchu.net;
 
+import ch.epfl.tchu.Preconditions;
 import ch.epfl.tchu.SortedBag;
 import ch.epfl.tchu.game.Card;
 import ch.epfl.tchu.game.Player;
@@ -9,65 +10,213 @@ import ch.epfl.tchu.game.PublicGameState;
 import ch.epfl.tchu.game.Route;
 import ch.epfl.tchu.game.Ticket;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static ch.epfl.tchu.net.MessageId.*;
 import static ch.epfl.tchu.net.Serde.SPACE;
-import static java.nio.charset.StandardCharsets.US_ASCII;
 
 /**
- * Classe publique, finale et immuable représentant un mandataire de joueur distant.
+ * Classe publique et finale représentant un mandataire de joueur distant.
  * Elle implémente l'interface <code>{@link Player}</code>
  * et peut ainsi jouer le rôle d'un joueur.
+ *
+ * Si un jeton de session lui est donné, le mandataire le transmet au client lors
+ * de l'initialisation des joueurs, et survit aux pertes de connexion : il attend alors
+ * que le client se reconnecte (voir <code>{@link GameServer}</code>), lui renvoie
+ * les messages qu'il n'a pas reçus, puis lui transmet un état complet.
  * 
  * @author Mallory Henriet (311258)
  * @author Louis Hervé (312937)
  */
 public final class RemotePlayerProxy implements Player {
     
-    private final Socket socket;
+    // Durée maximale d'attente de la reconnexion d'un client
+    private static final long RECONNECTION_TIMEOUT_SECONDS = 60;
     
-    private void sendMessage(MessageId messageId, String message) {
-        try {
-            BufferedWriter w =
-                    new BufferedWriter(
-                            new OutputStreamWriter(socket.getOutputStream(), US_ASCII));
-                    
-            w.write(messageId.name());
-            if (message != null && ! message.isEmpty()) {
-                w.write(SPACE);
-                w.write(message);
+    private final List<WireFormat> offeredFormats;
+    private final String sessionToken;
+    
+    // Connexion courante, remplacée lors de chaque reconnexion du client
+    private volatile LineChannel channel;
+    private boolean disconnected = false;
+    // Vrai ssi le client ne s'est pas reconnecté à temps
+    private boolean abandoned = false;
+    private final BlockingQueue<Reconnection> reconnections = new LinkedBlockingQueue<>();
+    
+    // Messages envoyés depuis la dernière réponse reçue, et nombre de messages les précédant
+    private final List<String> unacknowledged = new ArrayList<>();
+    private int acknowledgedCount;
+    
+    // Format des états de jeu, négocié lors de l'initialisation des joueurs
+    private WireFormat format = WireFormat.TEXT;
+    // Vrai ssi le client a négocié le format, et accepte donc les différences d'états
+    private boolean deltasAccepted = false;
+    
+    // Derniers états transmis au client, à partir desquels les différences sont calculées
+    private PublicGameState lastGameState;
+    private PlayerState lastPlayerState;
+    
+    private static final class Reconnection {
+        private final LineChannel channel;
+        private final int receivedCount;
+        private final String lastResponse;
+        
+        private Reconnection(LineChannel channel, int receivedCount, String lastResponse) {
+            this.channel = channel;
+            this.receivedCount = receivedCount;
+            this.lastResponse = lastResponse;
+        }
+    }
+    
+    /*
+        Les messages n'attendant aucune réponse (informations, états, etc.) sont
+        simplement ajoutés au tampon du canal, et ne sont envoyés qu'avec le prochain
+        message attendant une réponse, ou lors d'un appel à flush.
+        Les messages d'un même tour sont ainsi envoyés en une seule écriture.
+        
+        Lorsque la session peut être reprise, chaque message est de plus conservé
+        jusqu'à la réception de la réponse suivante du client, qui atteste qu'il
+        l'a bien reçu. Une erreur de connexion n'est alors pas propagée : le mandataire
+        attend la reconnexion du client lors de la prochaine demande.
+     */
+    
+    private void bufferMessage(MessageId messageId, String message) {
+        String line = message == null || message.isEmpty()
+                ? messageId.name()
+                : messageId.name() + SPACE + message;
+        if (sessionToken != null)
+            unacknowledged.add(line);
+        
+        if (! disconnected) {
+            try {
+                channel.write(line);
+                channel.newLine();
+            } catch (UncheckedIOException e) {
+                disconnect(e);
+            }
+        }
+    }
+    
+    private void flushChannel() {
+        if (! disconnected) {
+            try {
+                channel.flush();
+            } catch (UncheckedIOException e) {
+                disconnect(e);
             }
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
     
-    private void sendMessage(MessageId messageId) {
-        sendMessage(messageId, null);
+    private <T> T request(MessageId messageId, String message, Serde<T> serde) {
+        bufferMessage(messageId, message);
+        
+        String response = null;
+        while (response == null) {
+            flushChannel();
+            if (! disconnected) {
+                try {
+                    response = channel.readLine();
+                    if (response == null)
+                        disconnect(new UncheckedIOException(new EOFException()));
+                } catch (UncheckedIOException e) {
+                    disconnect(e);
+                }
+            }
+            if (disconnected)
+                response = awaitReconnection(true);
+        }
+        
+        // La réponse atteste que le client a reçu tous les messages envoyés
+        acknowledgedCount += unacknowledged.size();
+        unacknowledged.clear();
+        return serde.deserialize(response);
+    }
+    
+    private <T> T request(MessageId messageId, Serde<T> serde) {
+        return request(messageId, null, serde);
     }
     
-    private <T> T receiveResponse(Serde<T> serde) {
+    private void disconnect(UncheckedIOException e) {
+        if (sessionToken == null)
+            throw e;
+        
+        disconnected = true;
+        closeQuietly(channel);
+    }
+    
+    // Force l'envoi d'un état complet lors de la prochaine mise à jour de l'état,
+    // plutôt que d'une différence par rapport au dernier état transmis
+    private void resync() {
+        lastGameState = null;
+        lastPlayerState = null;
+    }
+    
+    // Attend la reconnexion du client et lui renvoie les messages qu'il n'a pas reçus.
+    // Retourne la réponse à la demande en cours (s'il y en a une) si le client l'avait
+    // déjà envoyée, null sinon
+    private String awaitReconnection(boolean requestPending) {
+        Reconnection reconnection;
         try {
-            BufferedReader r =
-                    new BufferedReader(
-                            new InputStreamReader(socket.getInputStream(), US_ASCII));
+            reconnection = reconnections.poll(RECONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error(e);
+        }
+        if (reconnection == null) {
+            abandoned = true;
+            throw new UncheckedIOException(new SocketTimeoutException());
+        }
+        
+        // Seule la reconnexion la plus récente est utilisée
+        Reconnection newer;
+        while ((newer = reconnections.poll()) != null) {
+            closeQuietly(reconnection.channel);
+            reconnection = newer;
+        }
+        
+        int sentCount = acknowledgedCount + unacknowledged.size();
+        int received = reconnection.receivedCount;
+        if (received < acknowledgedCount || received > sentCount) {
+            closeQuietly(reconnection.channel);
+            return null;
+        }
+        
+        channel = reconnection.channel;
+        disconnected = false;
+        resync();
+        
+        // Le dernier message envoyé étant la demande en cours, le client
+        // y a déjà répondu ssi il a reçu tous les messages
+        if (requestPending && received == sentCount)
+            return reconnection.lastResponse;
         
-            return serde.deserialize(r.readLine());
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        for (String line : unacknowledged.subList(received - acknowledgedCount, unacknowledged.size())) {
+            try {
+                channel.write(line);
+                channel.newLine();
+            } catch (UncheckedIOException e) {
+                disconnect(e);
+                break;
+            }
         }
+        return null;
+    }
+    
+    private static void closeQuietly(LineChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
     }
     
     /**
@@ -82,7 +231,108 @@ public final class RemotePlayerProxy implements Player {
      *          vaut <code>null</code>
      */
     public RemotePlayerProxy(Socket socket) {
-        this.socket = Objects.requireNonNull(socket);
+        this(socket, List.of(WireFormat.TEXT));
+    }
+    
+    /**
+     * Construit un mandataire de joueur distant en utilisant
+     * le <code>{@link Socket}</code> donné, et proposant au client
+     * les formats d'états de jeu donnés, par ordre de préférence.
+     * Si seul le format textuel est proposé, aucune négociation n'a lieu,
+     * ce qui garantit la compatibilité avec les anciens clients.
+     *
+     * @param socket
+     *          la "prise" {@link Socket} utilisée pour communiquer à travers le réseau
+     *          avec le client, par échange de messages textuels
+     * @param offeredFormats
+     *          les formats proposés au client, par ordre de préférence
+     * @throws IllegalArgumentException
+     *          si la liste de formats est vide
+     * @throws NullPointerException
+     *          si l'instance de {@link Socket} donnée
+     *          vaut <code>null</code>
+     */
+    public RemotePlayerProxy(Socket socket, List<WireFormat> offeredFormats) {
+        this(new LineChannel(Objects.requireNonNull(socket)), offeredFormats, null, 0);
+    }
+    
+    /**
+     * Construit un mandataire de joueur distant communiquant au travers du canal donné,
+     * proposant au client les formats d'états de jeu donnés, et dont la session
+     * peut être reprise grâce au jeton donné.
+     *
+     * Lorsque la session poursuit une partie interrompue, le client compte déjà
+     * les messages qu'il a reçus avant l'interruption ; le mandataire reprend
+     * alors son décompte à partir de ce nombre.
+     *
+     * @param channel
+     *          le canal de la connexion initiale avec le client
+     * @param offeredFormats
+     *          les formats proposés au client, par ordre de préférence
+     * @param sessionToken
+     *          le jeton de session transmis au client, ou <code>null</code>
+     *          si la session ne peut pas être reprise
+     * @param receivedCount
+     *          le nombre de messages de la session déjà reçus par le client
+     * @throws IllegalArgumentException
+     *          si la liste de formats est vide, ou si <code>receivedCount</code> est négatif
+     * @throws NullPointerException
+     *          si le canal donné vaut <code>null</code>
+     */
+    RemotePlayerProxy(LineChannel channel, List<WireFormat> offeredFormats, String sessionToken, int receivedCount) {
+        Preconditions.checkArgument(! offeredFormats.isEmpty());
+        Preconditions.checkArgument(receivedCount >= 0);
+        
+        this.channel = Objects.requireNonNull(channel);
+        this.offeredFormats = List.copyOf(offeredFormats);
+        this.sessionToken = sessionToken;
+        this.acknowledgedCount = receivedCount;
+    }
+    
+    /**
+     * Reprend la session sur la nouvelle connexion donnée, établie par le client
+     * après la perte de la précédente. La connexion est utilisée dès que le fil
+     * de la partie en a besoin ; l'ancienne connexion est fermée.
+     *
+     * @param newChannel
+     *          le canal de la nouvelle connexion
+     * @param receivedCount
+     *          le nombre de messages de la session reçus par le client
+     * @param lastResponse
+     *          la dernière réponse envoyée par le client
+     */
+    void reconnect(LineChannel newChannel, int receivedCount, String lastResponse) {
+        // Débloque le fil de la partie s'il attend encore sur l'ancienne connexion
+        LineChannel oldChannel = channel;
+        reconnections.add(new Reconnection(newChannel, receivedCount, lastResponse));
+        closeQuietly(oldChannel);
+    }
+    
+    /**
+     * Remet au client les derniers messages de la session, en attendant si besoin
+     * qu'il se reconnecte, puis l'informe que la session est terminée.
+     * Ferme ensuite la connexion courante, ainsi que celles des éventuelles
+     * reconnexions inutilisées.
+     */
+    void close() {
+        if (sessionToken != null) {
+            try {
+                flushChannel();
+                while (disconnected && ! abandoned) {
+                    awaitReconnection(false);
+                    flushChannel();
+                }
+                if (! disconnected) {
+                    channel.write(END_SESSION.name());
+                    channel.newLine();
+                    channel.flush();
+                }
+            } catch (UncheckedIOException ignored) {}
+        }
+        closeQuietly(channel);
+        Reconnection reconnection;
+        while ((reconnection = reconnections.poll()) != null)
+            closeQuietly(reconnection.channel);
     }
     
     // MARK:- Méthodes de Player
@@ -97,70 +347,92 @@ public final class RemotePlayerProxy implements Player {
     
     @Override
     public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {
-        sendMessage(INIT_PLAYERS, String.join(SPACE,
+        if (! offeredFormats.equals(List.of(WireFormat.TEXT))) {
+            format = request(CHOOSE_FORMAT, WireFormat.LIST_SERDE.serialize(offeredFormats), WireFormat.SERDE);
+            deltasAccepted = true;
+        }
+        
+        // Les noms sont transmis dans l'ordre des identités, quel que soit celui de la table
+        List<String> names = new ArrayList<>(PlayerId.COUNT);
+        for (PlayerId id : PlayerId.ALL)
+            names.add(playerNames.get(id));
+        
+        String message = String.join(SPACE,
                 Serdes.PLAYER_ID.serialize(ownId),
-                Serdes.STRING_LIST.serialize(List.copyOf(playerNames.values()))
-        ));
+                Serdes.STRING_LIST.serialize(names)
+        );
+        // Le jeton est ajouté en dernier, et est donc ignoré par les anciens clients
+        if (sessionToken != null)
+            message = String.join(SPACE, message, Serdes.STRING.serialize(sessionToken));
+        bufferMessage(INIT_PLAYERS, message);
     }
     
     @Override
     public void receiveInfo(String info) {
-        sendMessage(RECEIVE_INFO, Serdes.STRING.serialize(info));
+        bufferMessage(RECEIVE_INFO, Serdes.STRING.serialize(info));
     }
     
     @Override
     public void updateState(PublicGameState newState, PlayerState ownState) {
-        sendMessage(UPDATE_STATE, String.join(SPACE,
-                Serdes.PUBLIC_GAME_STATE.serialize(newState),
-                Serdes.PLAYER_STATE.serialize(ownState)
-        ));
+        if (deltasAccepted && StateDelta.canEncode(lastGameState, lastPlayerState, newState, ownState)) {
+            bufferMessage(UPDATE_STATE_DELTA, String.join(SPACE,
+                    StateDelta.serializePublic(lastGameState, newState),
+                    StateDelta.serializeOwn(lastPlayerState, ownState)
+            ));
+        } else {
+            bufferMessage(UPDATE_STATE, String.join(SPACE,
+                    format.publicGameState().serialize(newState),
+                    format.playerState().serialize(ownState)
+            ));
+        }
+        
+        lastGameState = newState;
+        lastPlayerState = ownState;
+    }
+    
+    @Override
+    public void flush() {
+        flushChannel();
     }
     
     @Override
     public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
-        sendMessage(SET_INITIAL_TICKETS, Serdes.TICKET_BAG.serialize(tickets));
+        bufferMessage(SET_INITIAL_TICKETS, Serdes.TICKET_BAG.serialize(tickets));
     }
     
     @Override
     public SortedBag<Ticket> chooseInitialTickets() {
-        sendMessage(CHOOSE_INITIAL_TICKETS);
-        return receiveResponse(Serdes.TICKET_BAG);
+        return request(CHOOSE_INITIAL_TICKETS, Serdes.TICKET_BAG);
     }
     
     @Override
     public TurnKind nextTurn() {
-        sendMessage(NEXT_TURN);
-        return receiveResponse(Serdes.TURN_KIND);
+        return request(NEXT_TURN, Serdes.TURN_KIND);
     }
     
     @Override
     public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
-        sendMessage(CHOOSE_TICKETS, Serdes.TICKET_BAG.serialize(options));
-        return receiveResponse(Serdes.TICKET_BAG);
+        return request(CHOOSE_TICKETS, Serdes.TICKET_BAG.serialize(options), Serdes.TICKET_BAG);
     }
     
     @Override
     public int drawSlot() {
-        sendMessage(DRAW_SLOT);
-        return receiveResponse(Serdes.INTEGER);
+        return request(DRAW_SLOT, Serdes.INTEGER);
     }
     
     @Override
     public Route claimedRoute() {
-        sendMessage(ROUTE);
-        return receiveResponse(Serdes.ROUTE);
+        return request(ROUTE, Serdes.ROUTE);
     }
     
     @Override
     public SortedBag<Card> initialClaimCards() {
-        sendMessage(CARDS);
-        return receiveResponse(Serdes.CARD_BAG);
+        return request(CARDS, Serdes.CARD_BAG);
     }
     
     @Override
     public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
-        sendMessage(CHOOSE_ADDITIONAL_CARDS, Serdes.CARD_BAG_LIST.serialize(options));
-        return receiveResponse(Serdes.CARD_BAG);
+        return request(CHOOSE_ADDITIONAL_CARDS, Serdes.CARD_BAG_LIST.serialize(options), Serdes.CARD_BAG);
     }
     
 }
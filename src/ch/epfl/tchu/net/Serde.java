@@ -3,7 +3,9 @@ package ch.epfl.tchu.net;
 import ch.epfl.tchu.SortedBag;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -116,6 +118,10 @@ public interface Serde<T> {
      * Méthode générique prenant en argument la liste de toutes
      * les valeurs d'un ensemble de valeurs énuméré
      * et retournant le serde correspondant.
+     * Chaque valeur est sérialisée par l'index de sa première occurrence dans la liste
+     * (ou -1 si elle n'y figure pas). Les index et leurs formes sérialisées sont
+     * calculés une seule fois, à la construction du serde, de sorte que la sérialisation
+     * et la désérialisation d'une valeur se font en temps constant.
      * 
      * @param elements
      *          la liste de toutes les valeurs possibles
@@ -127,11 +133,33 @@ public interface Serde<T> {
      *          qui composent la liste passée en argument
      */
     static <T> Serde<T> oneOf(List<T> elements) {
+        List<T> values = List.copyOf(elements);
+        String[] serializedValues = new String[values.size()];
+        Map<T, String> serializedByValue = new HashMap<>();
+        for (int i = 0; i < values.size(); ++i) {
+            serializedValues[i] = String.valueOf(i);
+            serializedByValue.putIfAbsent(values.get(i), serializedValues[i]);
+        }
+        String absent = String.valueOf(-1);
+        
         return Serde.of(
-                raw -> String.valueOf(elements.indexOf(raw)),
-                serialized -> serialized.isEmpty()
-                        ? null
-                        : elements.get(Integer.parseInt(serialized))
+                raw -> serializedByValue.getOrDefault(raw, absent),
+                serialized -> {
+                    if (serialized.isEmpty())
+                        return null;
+                    
+                    // Les index étant petits, ils sont lus chiffre par chiffre plutôt qu'avec Integer.parseInt
+                    int index = 0;
+                    for (int i = 0; i < serialized.length(); ++i) {
+                        int digit = Character.digit(serialized.charAt(i), 10);
+                        if (digit < 0)
+                            throw new NumberFormatException(serialized);
+                        index = 10 * index + digit;
+                        if (index >= serializedValues.length)
+                            throw new IndexOutOfBoundsException(serialized);
+                    }
+                    return values.get(index);
+                }
         );
     }
     
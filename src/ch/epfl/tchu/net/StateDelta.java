@@ -0,0 +1,205 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicCardState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.PublicPlayerState;
+import ch.epfl.tchu.game.Route;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static ch.epfl.tchu.net.Serde.COLON;
+import static ch.epfl.tchu.net.Serde.SEMI_COLON;
+import static ch.epfl.tchu.net.Serde.split;
+
+/**
+ * Classe finale et non instanciable permettant d'encoder la différence
+ * entre deux états de jeu successifs, afin de n'envoyer aux clients
+ * que ce qui a changé depuis le dernier état transmis.
+ *
+ * La partie publique d'une différence contient les tailles des pioches
+ * et de la défausse, les cartes face visible (uniquement si elles ont changé),
+ * le joueur courant, le dernier joueur, ainsi que le nombre de billets et
+ * de cartes de chaque joueur et les routes dont il s'est emparé depuis
+ * le dernier état.
+ * La partie privée contient les billets ajoutés à la main du joueur,
+ * ainsi que les cartes ajoutées et retirées de sa main.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class StateDelta {
+
+    private StateDelta() {}
+
+    /**
+     * Retourne vrai ssi il est possible d'encoder le passage de l'état <code>from</code>
+     * à l'état <code>to</code> sous forme de différence, c'est-à-dire si les routes
+     * de chaque joueur et les billets du joueur n'ont pu qu'être complétés.
+     *
+     * @param from
+     *          le dernier état public transmis (peut être <code>null</code>)
+     * @param fromOwn
+     *          le dernier état du joueur transmis (peut être <code>null</code>)
+     * @param to
+     *          le nouvel état public
+     * @param toOwn
+     *          le nouvel état du joueur
+     * @return
+     *          vrai ssi le nouvel état peut être encodé comme différence par rapport au précédent
+     */
+    static boolean canEncode(PublicGameState from, PlayerState fromOwn, PublicGameState to, PlayerState toOwn) {
+        if (from == null || fromOwn == null)
+            return false;
+
+        for (PlayerId id : PlayerId.ALL) {
+            List<Route> fromRoutes = from.playerState(id).routes();
+            List<Route> toRoutes = to.playerState(id).routes();
+            if (toRoutes.size() < fromRoutes.size()
+                    || ! toRoutes.subList(0, fromRoutes.size()).equals(fromRoutes))
+                return false;
+        }
+
+        return toOwn.tickets().contains(fromOwn.tickets());
+    }
+
+    /**
+     * Retourne la partie publique de la différence entre les deux états donnés.
+     *
+     * @param from
+     *          le dernier état public transmis
+     * @param to
+     *          le nouvel état public
+     * @return
+     *          la différence sérialisée entre les deux états
+     */
+    static String serializePublic(PublicGameState from, PublicGameState to) {
+        StringJoiner sj = new StringJoiner(COLON);
+        PublicCardState toCards = to.cardState();
+
+        sj.add(Serdes.INTEGER.serialize(to.ticketsCount()));
+        sj.add(String.join(SEMI_COLON,
+                toCards.faceUpCards().equals(from.cardState().faceUpCards())
+                        ? ""
+                        : Serdes.CARD_LIST.serialize(toCards.faceUpCards()),
+                Serdes.INTEGER.serialize(toCards.deckSize()),
+                Serdes.INTEGER.serialize(toCards.discardsSize())
+        ));
+        sj.add(Serdes.PLAYER_ID.serialize(to.currentPlayerId()));
+        for (PlayerId id : PlayerId.ALL) {
+            PublicPlayerState fromPlayer = from.playerState(id);
+            PublicPlayerState toPlayer = to.playerState(id);
+            List<Route> toRoutes = toPlayer.routes();
+
+            sj.add(String.join(SEMI_COLON,
+                    Serdes.INTEGER.serialize(toPlayer.ticketCount()),
+                    Serdes.INTEGER.serialize(toPlayer.cardCount()),
+                    Serdes.ROUTE_LIST.serialize(toRoutes.subList(fromPlayer.routes().size(), toRoutes.size()))
+            ));
+        }
+        sj.add(Serdes.PLAYER_ID.serialize(to.lastPlayer()));
+
+        return sj.toString();
+    }
+
+    /**
+     * Retourne la partie privée de la différence entre les deux états de joueur donnés.
+     *
+     * @param from
+     *          le dernier état du joueur transmis
+     * @param to
+     *          le nouvel état du joueur
+     * @return
+     *          la différence sérialisée entre les deux états
+     */
+    static String serializeOwn(PlayerState from, PlayerState to) {
+        return String.join(SEMI_COLON,
+                Serdes.TICKET_BAG.serialize(to.tickets().difference(from.tickets())),
+                Serdes.CARD_BAG.serialize(to.cards().difference(from.cards())),
+                Serdes.CARD_BAG.serialize(from.cards().difference(to.cards()))
+        );
+    }
+
+    /**
+     * Retourne l'état public obtenu en appliquant la différence sérialisée donnée à l'état donné.
+     *
+     * @param from
+     *          le dernier état public reçu
+     * @param serialized
+     *          la partie publique de la différence
+     * @return
+     *          le nouvel état public
+     */
+    static PublicGameState applyPublic(PublicGameState from, String serialized) {
+        String[] tokens = split(serialized, COLON);
+        int i = 0;
+
+        int ticketsCount = Serdes.INTEGER.deserialize(tokens[i++]);
+
+        String[] cardTokens = split(tokens[i++]);
+        List<Card> faceUpCards = cardTokens[0].isEmpty()
+                ? from.cardState().faceUpCards()
+                : Serdes.CARD_LIST.deserialize(cardTokens[0]);
+        PublicCardState cardState = new PublicCardState(
+                faceUpCards,
+                Serdes.INTEGER.deserialize(cardTokens[1]),
+                Serdes.INTEGER.deserialize(cardTokens[2])
+        );
+
+        PlayerId currentPlayerId = Serdes.PLAYER_ID.deserialize(tokens[i++]);
+
+        Map<PlayerId, PublicPlayerState> playerState = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            String[] playerTokens = split(tokens[i++]);
+            List<Route> routes = new ArrayList<>(from.playerState(id).routes());
+            routes.addAll(Serdes.ROUTE_LIST.deserialize(playerTokens[2]));
+
+            playerState.put(id, new PublicPlayerState(
+                    Serdes.INTEGER.deserialize(playerTokens[0]),
+                    Serdes.INTEGER.deserialize(playerTokens[1]),
+                    routes
+            ));
+        }
+
+        return new PublicGameState(
+                ticketsCount,
+                cardState,
+                currentPlayerId,
+                playerState,
+                Serdes.PLAYER_ID.deserialize(tokens[i])
+        );
+    }
+
+    /**
+     * Retourne l'état du joueur obtenu en appliquant la différence sérialisée donnée
+     * à l'état donné.
+     *
+     * @param from
+     *          le dernier état du joueur reçu
+     * @param routes
+     *          les routes du joueur dans le nouvel état public
+     * @param serialized
+     *          la partie privée de la différence
+     * @return
+     *          le nouvel état du joueur
+     */
+    static PlayerState applyOwn(PlayerState from, List<Route> routes, String serialized) {
+        String[] tokens = split(serialized);
+        int i = 0;
+
+        return new PlayerState(
+                from.tickets().union(Serdes.TICKET_BAG.deserialize(tokens[i++])),
+                from.cards()
+                        .union(Serdes.CARD_BAG.deserialize(tokens[i++]))
+                        .difference(Serdes.CARD_BAG.deserialize(tokens[i])),
+                routes
+        );
+    }
+
+}
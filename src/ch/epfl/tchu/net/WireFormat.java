@@ -0,0 +1,65 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+
+import java.util.List;
+
+/**
+ * Type énuméré public représentant les formats dans lesquels les états
+ * de jeu peuvent être transmis entre le serveur et les clients.
+ *
+ * Le format utilisé est négocié au début de la partie, au moyen
+ * du message <code>{@link MessageId#CHOOSE_FORMAT}</code>.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public enum WireFormat {
+    
+    TEXT    (Serdes.PUBLIC_GAME_STATE, Serdes.PLAYER_STATE),
+    BINARY  (BinarySerdes.PUBLIC_GAME_STATE, BinarySerdes.PLAYER_STATE);
+    
+    /**
+     * Liste immuable contenant tous les formats du type énuméré,
+     * dans leur ordre de définition.
+     */
+    public static final List<WireFormat> ALL = List.of(values());
+    
+    /**
+     * Serde capable de sérialiser/désérialiser des formats.
+     */
+    static final Serde<WireFormat> SERDE = Serde.oneOf(ALL);
+    
+    /**
+     * Serde capable de sérialiser/désérialiser des listes de formats.
+     */
+    static final Serde<List<WireFormat>> LIST_SERDE = Serde.listOf(SERDE);
+    
+    private final Serde<PublicGameState> publicGameStateSerde;
+    private final Serde<PlayerState> playerStateSerde;
+    
+    WireFormat(Serde<PublicGameState> publicGameStateSerde, Serde<PlayerState> playerStateSerde) {
+        this.publicGameStateSerde = publicGameStateSerde;
+        this.playerStateSerde = playerStateSerde;
+    }
+    
+    /**
+     * Retourne le serde utilisé par ce format pour les états publics de jeu.
+     *
+     * @return le serde des états publics de jeu
+     */
+    public Serde<PublicGameState> publicGameState() {
+        return publicGameStateSerde;
+    }
+    
+    /**
+     * Retourne le serde utilisé par ce format pour les états complets de joueur.
+     *
+     * @return le serde des états complets de joueur
+     */
+    public Serde<PlayerState> playerState() {
+        return playerStateSerde;
+    }
+    
+}
@@ -0,0 +1,475 @@
+package ch.epfl.tchu.replay;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.GameSnapshot;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static ch.epfl.tchu.replay.ReplayFormat.*;
+
+/**
+ * Classe publique, finale et immuable représentant une partie rejouée à partir
+ * de son journal (voir <code>{@link ReplayRecorder}</code>).
+ *
+ * La partie est rejouée en appliquant aux états de jeu les réponses enregistrées
+ * des joueurs, exactement comme le fait <code>Game.play</code>, avec un générateur
+ * aléatoire créé à partir de la graine enregistrée. Tous les états intermédiaires,
+ * y compris la pioche et les billets cachés, sont donc reconstruits à l'identique.
+ * Un journal tronqué (partie interrompue ou en cours) est rejoué jusqu'au dernier
+ * tour complet.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class GameReplay {
+
+    private static final int IN_GAME_DRAW_CARDS_COUNT = 2;
+
+    private final long seed;
+    private final SortedBag<Ticket> tickets;
+    private final Map<PlayerId, String> playerNames;
+    private final Map<PlayerId, String> sessionKeys;
+    private final int firstTurn;
+    // État au début de chaque tour rejoué, suivi de l'état après le dernier tour rejoué
+    private final List<GameState> states;
+    private final boolean isComplete;
+    // Instantané pris au début du premier tour incomplet, et longueur du journal jusqu'à ce tour
+    private final GameSnapshot resumePoint;
+    private final int logLength;
+
+    private GameReplay(long seed, SortedBag<Ticket> tickets, Map<PlayerId, String> playerNames, Map<PlayerId, String> sessionKeys,
+                       int firstTurn, List<GameState> states, boolean isComplete, GameSnapshot resumePoint, int logLength) {
+        this.seed = seed;
+        this.tickets = tickets;
+        this.playerNames = Collections.unmodifiableMap(playerNames);
+        this.sessionKeys = Collections.unmodifiableMap(sessionKeys);
+        this.firstTurn = firstTurn;
+        this.states = List.copyOf(states);
+        this.isComplete = isComplete;
+        this.resumePoint = resumePoint;
+        this.logLength = logLength;
+    }
+
+    /**
+     * Lit le journal de partie au chemin donné et rejoue la partie.
+     *
+     * @param path
+     *          le chemin du journal
+     * @throws UncheckedIOException
+     *          si le journal ne peut pas être lu
+     * @throws IllegalArgumentException
+     *          si le journal n'est pas un journal de partie valide
+     * @return
+     *          la partie rejouée
+     */
+    public static GameReplay read(Path path) {
+        return read(readAll(path), null);
+    }
+
+    /**
+     * Lit le journal de partie au chemin donné et rejoue la partie à partir de l'instantané
+     * au chemin donné, s'il existe, est valide et ne dépasse pas la fin du journal.
+     * Sinon, la partie est rejouée depuis son début.
+     *
+     * @param path
+     *          le chemin du journal
+     * @param snapshotPath
+     *          le chemin de l'instantané
+     * @throws UncheckedIOException
+     *          si le journal ne peut pas être lu
+     * @throws IllegalArgumentException
+     *          si le journal n'est pas un journal de partie valide
+     * @return
+     *          la partie rejouée
+     */
+    public static GameReplay read(Path path, Path snapshotPath) {
+        ByteBuffer log = readAll(path);
+
+        GameSnapshot snapshot = null;
+        if (Files.exists(snapshotPath)) {
+            try {
+                snapshot = GameSnapshot.deserialize(Files.readAllBytes(snapshotPath));
+            } catch (IOException | IllegalArgumentException e) {
+                // Un instantané illisible est ignoré, le journal faisant foi
+            }
+        }
+
+        if (snapshot != null) {
+            GameReplay replay = read(log.duplicate(), snapshot);
+            if (replay.firstTurn() == snapshot.turn())
+                return replay;
+        }
+        return read(log, null);
+    }
+
+    private static ByteBuffer readAll(Path path) {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lit le journal de partie contenu dans le tampon donné, à partir de sa position,
+     * et rejoue la partie.
+     *
+     * @param log
+     *          le tampon contenant le journal
+     * @throws IllegalArgumentException
+     *          si le journal n'est pas un journal de partie valide
+     * @return
+     *          la partie rejouée
+     */
+    public static GameReplay read(ByteBuffer log) {
+        return read(log, null);
+    }
+
+    /**
+     * Lit le journal de partie contenu dans le tampon donné, à partir de sa position,
+     * et rejoue la partie à partir de l'instantané donné, pris au début d'un tour.
+     * Les réponses des tours précédant celui de l'instantané sont ignorées.
+     * Si le journal s'arrête avant le tour de l'instantané, ou si l'instantané
+     * vaut <code>null</code>, la partie est rejouée depuis son début.
+     *
+     * @param log
+     *          le tampon contenant le journal
+     * @param snapshot
+     *          l'instantané à partir duquel la partie est rejouée, ou <code>null</code>
+     * @throws IllegalArgumentException
+     *          si le journal n'est pas un journal de partie valide
+     * @return
+     *          la partie rejouée
+     */
+    public static GameReplay read(ByteBuffer log, GameSnapshot snapshot) {
+        int start = log.position();
+        long seed;
+        SortedBag<Ticket> tickets;
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> sessionKeys = new EnumMap<>(PlayerId.class);
+        try {
+            Preconditions.checkArgument(log.getInt() == MAGIC);
+            byte version = log.get();
+            Preconditions.checkArgument(version == VERSION || version == VERSION_WITHOUT_PLAYERS);
+            seed = log.getLong();
+            tickets = readTickets(log);
+            for (PlayerId id : PlayerId.ALL) {
+                playerNames.put(id, version == VERSION ? readString(log) : id.name());
+                sessionKeys.put(id, version == VERSION ? readString(log) : "");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        if (snapshot != null && skipTurns(log.duplicate(), snapshot.turn()) >= 0) {
+            skipTurns(log, snapshot.turn());
+            return replay(log, start, seed, tickets, playerNames, sessionKeys, snapshot.state(), snapshot.rng(), snapshot.turn());
+        }
+
+        Random rng = new Random(seed);
+        GameState state = GameState.initial(tickets, rng);
+        try {
+            // Choix initial des billets, dans l'ordre des joueurs
+            for (int i = 0; i < PlayerId.COUNT; ++i)
+                state = state.withoutTopTickets(Constants.INITIAL_TICKETS_COUNT);
+            for (PlayerId id : PlayerId.ALL) {
+                readRecord(log, INITIAL_TICKETS, id);
+                state = state.withInitiallyChosenTickets(id, readTickets(log));
+            }
+        } catch (BufferUnderflowException e) {
+            // Journal tronqué avant le premier tour : la partie ne peut pas être reprise
+            return new GameReplay(seed, tickets, playerNames, sessionKeys, 0, List.of(state), false, null, 0);
+        }
+
+        return replay(log, start, seed, tickets, playerNames, sessionKeys, state, rng, 0);
+    }
+
+    // Rejoue les tours à partir de l'état donné, au début du tour donné
+    private static GameReplay replay(ByteBuffer log, int start, long seed, SortedBag<Ticket> tickets, Map<PlayerId, String> playerNames,
+                                     Map<PlayerId, String> sessionKeys, GameState state, Random rng, int firstTurn) {
+        // Le générateur n'étant copiable que par sérialisation, il n'est copié qu'au début du rejeu,
+        // et le point de reprise est reconstruit à partir de cette copie si le journal est tronqué
+        GameSnapshot origin = GameSnapshot.of(state, rng, firstTurn);
+        ByteBuffer originLog = log.duplicate();
+
+        List<GameState> states = new ArrayList<>();
+        int turn = firstTurn;
+        int logLength = log.position() - start;
+
+        try {
+            while (true) {
+                states.add(state);
+                state = playTurn(state, log, rng);
+                logLength = log.position() - start;
+                ++turn;
+
+                if (state.currentPlayerId() == state.lastPlayer()) {
+                    states.add(state);
+                    return new GameReplay(seed, tickets, playerNames, sessionKeys, firstTurn, states, true, null, logLength);
+                }
+                state = state.forNextTurn();
+            }
+        } catch (BufferUnderflowException e) {
+            // Journal tronqué : seuls les tours complets sont gardés
+            GameSnapshot resumePoint = snapshotAt(originLog, origin, turn);
+            return new GameReplay(seed, tickets, playerNames, sessionKeys, firstTurn, states, false, resumePoint, logLength);
+        }
+    }
+
+    // Retourne l'instantané pris au début du tour donné, en rejouant à nouveau
+    // les tours complets qui le séparent de l'instantané d'origine
+    private static GameSnapshot snapshotAt(ByteBuffer log, GameSnapshot origin, int turn) {
+        if (turn == origin.turn())
+            return origin;
+
+        GameState state = origin.state();
+        Random rng = origin.rng();
+        for (int t = origin.turn(); t < turn; ++t)
+            state = playTurn(state, log, rng).forNextTurn();
+
+        return GameSnapshot.of(state, rng, turn);
+    }
+
+    // Passe les réponses des tours précédant le tour donné, et retourne
+    // le nombre de tours passés, ou -1 si le journal s'arrête avant ce tour
+    private static int skipTurns(ByteBuffer log, int turnCount) {
+        int turns = 0;
+        try {
+            while (true) {
+                if (turns == turnCount && (! log.hasRemaining() || nextRecordType(log) == TURN_KIND))
+                    return turns;
+
+                if (nextRecordType(log) == TURN_KIND)
+                    ++turns;
+                skipRecord(log);
+            }
+        } catch (BufferUnderflowException e) {
+            return -1;
+        }
+    }
+
+    private static byte nextRecordType(ByteBuffer log) {
+        if (! log.hasRemaining())
+            throw new BufferUnderflowException();
+        return log.get(log.position());
+    }
+
+    private static void skipRecord(ByteBuffer log) {
+        byte type = log.get();
+        readPlayer(log);
+        switch (type) {
+            case INITIAL_TICKETS:
+            case TICKETS:
+                readTickets(log);
+                break;
+            case TURN_KIND:
+            case DRAW_SLOT:
+            case ROUTE:
+                readVarInt(log);
+                break;
+            case INITIAL_CLAIM_CARDS:
+            case ADDITIONAL_CARDS:
+                readCards(log);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static void readRecord(ByteBuffer log, byte type, PlayerId id) {
+        Preconditions.checkArgument(log.get() == type);
+        Preconditions.checkArgument(readPlayer(log) == id);
+    }
+
+    // Rejoue le tour du joueur courant, comme Game.play
+    private static GameState playTurn(GameState state, ByteBuffer log, Random rng) {
+        PlayerId id = state.currentPlayerId();
+
+        readRecord(log, TURN_KIND, id);
+        int kind = readVarInt(log);
+        Preconditions.checkArgument(kind < Player.TurnKind.ALL.size());
+
+        switch (Player.TurnKind.ALL.get(kind)) {
+            case DRAW_TICKETS:
+                SortedBag<Ticket> drawnTickets = state.topTickets(Constants.IN_GAME_TICKETS_COUNT);
+                readRecord(log, TICKETS, id);
+                return state.withChosenAdditionalTickets(drawnTickets, readTickets(log));
+
+            case DRAW_CARDS:
+                for (int i = 0; i < IN_GAME_DRAW_CARDS_COUNT; ++i) {
+                    state = state.withCardsDeckRecreatedIfNeeded(rng);
+                    readRecord(log, DRAW_SLOT, id);
+                    int slot = readVarInt(log) - 1;
+
+                    state = slot == Constants.DECK_SLOT
+                            ? state.withBlindlyDrawnCard()
+                            : state.withDrawnFaceUpCard(slot);
+                }
+                return state;
+
+            case CLAIM_ROUTE:
+                readRecord(log, ROUTE, id);
+                Route route = readRoute(log);
+                readRecord(log, INITIAL_CLAIM_CARDS, id);
+                SortedBag<Card> initialCards = readCards(log);
+
+                if (route.level() == Route.Level.OVERGROUND)
+                    return state.withClaimedRoute(route, initialCards);
+
+                SortedBag.Builder<Card> drawnB = new SortedBag.Builder<>();
+                for (int i = 0; i < Constants.ADDITIONAL_TUNNEL_CARDS; ++i) {
+                    state = state.withCardsDeckRecreatedIfNeeded(rng);
+                    drawnB.add(state.topCard());
+                    state = state.withoutTopCard();
+                }
+                SortedBag<Card> drawnCards = drawnB.build();
+
+                int additionalCardsCount = route.additionalClaimCardsCount(initialCards, drawnCards);
+                if (additionalCardsCount == 0) {
+                    state = state.withClaimedRoute(route, initialCards);
+                } else if (! state.currentPlayerState()
+                        .possibleAdditionalCards(additionalCardsCount, initialCards)
+                        .isEmpty()) {
+                    readRecord(log, ADDITIONAL_CARDS, id);
+                    SortedBag<Card> chosenAdditional = readCards(log);
+                    if (! chosenAdditional.isEmpty())
+                        state = state.withClaimedRoute(route, initialCards.union(chosenAdditional));
+                }
+
+                return state.withMoreDiscardedCards(drawnCards);
+
+            default:
+                throw new Error("Type de tour inconnu.");
+        }
+    }
+
+    /**
+     * Retourne la graine du générateur aléatoire de la partie.
+     *
+     * @return la graine du générateur aléatoire de la partie
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Retourne les billets disponibles de la partie.
+     *
+     * @return les billets disponibles de la partie
+     */
+    public SortedBag<Ticket> tickets() {
+        return tickets;
+    }
+
+    /**
+     * Retourne le nom de chaque joueur de la partie, qui est celui de son identité
+     * si le journal a été enregistré sans les noms des joueurs.
+     *
+     * @return le nom de chaque joueur de la partie
+     */
+    public Map<PlayerId, String> playerNames() {
+        return playerNames;
+    }
+
+    /**
+     * Retourne la clé de session de chaque joueur de la partie, qui est la chaîne vide
+     * si le joueur n'en avait pas.
+     *
+     * @return la clé de session de chaque joueur de la partie
+     */
+    public Map<PlayerId, String> sessionKeys() {
+        return sessionKeys;
+    }
+
+    /**
+     * Retourne le numéro du premier tour rejoué, qui est celui de l'instantané à partir
+     * duquel la partie a été rejouée, ou 0 si elle a été rejouée depuis son début.
+     *
+     * @return le numéro du premier tour rejoué
+     */
+    public int firstTurn() {
+        return firstTurn;
+    }
+
+    /**
+     * Retourne le nombre de tours joués jusqu'au dernier tour complet du journal,
+     * y compris ceux qui précèdent le premier tour rejoué.
+     *
+     * @return le nombre de tours joués
+     */
+    public int turnCount() {
+        return firstTurn + states.size() - 1;
+    }
+
+    /**
+     * Retourne vrai si et seulement si le journal contient la partie jusqu'à sa fin.
+     *
+     * @return vrai ssi la partie rejouée est terminée
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Retourne l'état de la partie au début du tour donné, les tours étant numérotés
+     * à partir de 0, ou l'état après le dernier tour rejoué si <code>turn</code>
+     * vaut <code>turnCount()</code>.
+     *
+     * @param turn
+     *          le numéro du tour
+     * @throws IndexOutOfBoundsException
+     *          si <code>turn</code> n'est pas compris entre <code>firstTurn()</code>
+     *          et <code>turnCount()</code>
+     * @return
+     *          l'état de la partie au début du tour donné
+     */
+    public GameState state(int turn) {
+        return states.get(Objects.checkIndex(turn - firstTurn, states.size()));
+    }
+
+    /**
+     * Retourne l'état de la partie après le dernier tour rejoué.
+     *
+     * @return l'état de la partie après le dernier tour rejoué
+     */
+    public GameState lastState() {
+        return states.get(states.size() - 1);
+    }
+
+    /**
+     * Retourne l'instantané à partir duquel la partie peut être reprise avec
+     * <code>Game.resume</code>, pris au début du tour qui suit le dernier tour complet
+     * du journal, ou <code>null</code> si la partie est terminée ou n'a pas encore commencé.
+     *
+     * @return l'instantané à partir duquel la partie peut être reprise, ou <code>null</code>
+     */
+    public GameSnapshot resumePoint() {
+        return resumePoint;
+    }
+
+    // Retourne la longueur du journal jusqu'à la fin du dernier tour complet
+    int logLength() {
+        return logLength;
+    }
+
+}
@@ -0,0 +1,162 @@
+package ch.epfl.tchu.replay;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Classe finale et non instanciable décrivant le format binaire des journaux de parties.
+ *
+ * Un journal commence par un en-tête (nombre magique, version, graine du générateur
+ * aléatoire de la partie, billets disponibles, puis nom et clé de session de chaque joueur),
+ * suivi d'un enregistrement par réponse
+ * d'un joueur, dans l'ordre où elles ont été données. Chaque enregistrement est composé
+ * de son type, de l'identité du joueur et de la réponse elle-même.
+ *
+ * Les entiers sont encodés sous forme d'entiers de longueur variable (7 bits par octet),
+ * les chaînes par leur longueur suivie de leur encodage UTF-8,
+ * les routes et billets par leur index dans les listes de {@link ChMap},
+ * et les cartes par leur index dans <code>Card.ALL</code>, comme dans <code>BinarySerdes</code>.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+final class ReplayFormat {
+
+    private ReplayFormat() {}
+
+    static final int MAGIC = 0x74434875; // "tCHu"
+    static final byte VERSION = 2;
+    // Première version, dont l'en-tête ne contient pas les joueurs
+    static final byte VERSION_WITHOUT_PLAYERS = 1;
+
+    // Types d'enregistrements, un par méthode de Player retournant une valeur
+    static final byte INITIAL_TICKETS = 0;
+    static final byte TURN_KIND = 1;
+    static final byte TICKETS = 2;
+    static final byte DRAW_SLOT = 3;
+    static final byte ROUTE = 4;
+    static final byte INITIAL_CLAIM_CARDS = 5;
+    static final byte ADDITIONAL_CARDS = 6;
+
+    // Taille maximale d'un enregistrement, billets ou cartes compris
+    static final int MAX_RECORD_SIZE = 64;
+
+    private static final List<Route> ROUTES = ChMap.routes();
+    private static final List<Ticket> TICKETS_LIST = ChMap.tickets();
+
+    // Les routes et les billets n'appartenant pas au réseau ne peuvent pas être encodés
+    private static int indexOf(Route route) {
+        return Objects.checkIndex(route.index(), ROUTES.size());
+    }
+
+    private static int indexOf(Ticket ticket) {
+        return Objects.checkIndex(ticket.index(), TICKETS_LIST.size());
+    }
+
+    // MARK:- Entiers de longueur variable
+
+    static void writeVarInt(int value, ByteBuffer out) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    // MARK:- Chaînes
+
+    static void writeString(String string, ByteBuffer out) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length, out);
+        out.put(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        Preconditions.checkArgument(0 <= length && length <= in.remaining());
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // MARK:- Éléments du jeu
+
+    static void writePlayer(PlayerId id, ByteBuffer out) {
+        out.put((byte) id.ordinal());
+    }
+
+    static PlayerId readPlayer(ByteBuffer in) {
+        int ordinal = in.get();
+        Preconditions.checkArgument(0 <= ordinal && ordinal < PlayerId.COUNT);
+        return PlayerId.ALL.get(ordinal);
+    }
+
+    static void writeRoute(Route route, ByteBuffer out) {
+        writeVarInt(indexOf(route), out);
+    }
+
+    static Route readRoute(ByteBuffer in) {
+        int index = readVarInt(in);
+        Preconditions.checkArgument(index < ROUTES.size());
+        return ROUTES.get(index);
+    }
+
+    static void writeTickets(SortedBag<Ticket> tickets, ByteBuffer out) {
+        writeVarInt(tickets.size(), out);
+        for (Ticket t : tickets)
+            writeVarInt(indexOf(t), out);
+    }
+
+    static SortedBag<Ticket> readTickets(ByteBuffer in) {
+        SortedBag.Builder<Ticket> ticketsB = new SortedBag.Builder<>();
+        for (int i = readVarInt(in); i > 0; --i) {
+            int index = readVarInt(in);
+            Preconditions.checkArgument(index < TICKETS_LIST.size());
+            ticketsB.add(TICKETS_LIST.get(index));
+        }
+
+        return ticketsB.build();
+    }
+
+    static void writeCards(SortedBag<Card> cards, ByteBuffer out) {
+        writeVarInt(cards.size(), out);
+        for (Card c : cards)
+            out.put((byte) c.ordinal());
+    }
+
+    static SortedBag<Card> readCards(ByteBuffer in) {
+        SortedBag.Builder<Card> cardsB = new SortedBag.Builder<>();
+        for (int i = readVarInt(in); i > 0; --i) {
+            int ordinal = in.get();
+            Preconditions.checkArgument(0 <= ordinal && ordinal < Card.COUNT);
+            cardsB.add(Card.ALL.get(ordinal));
+        }
+
+        return cardsB.build();
+    }
+
+}
@@ -0,0 +1,340 @@
+package ch.epfl.tchu.replay;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static ch.epfl.tchu.replay.ReplayFormat.*;
+
+/**
+ * Classe publique et finale représentant un enregistreur de partie, qui écrit
+ * le journal d'une partie dans un canal, au fur et à mesure de son déroulement.
+ *
+ * Seules la graine du générateur aléatoire de la partie, les billets disponibles
+ * et les réponses des joueurs sont enregistrées : elles suffisent à rejouer la partie
+ * à l'identique (voir <code>{@link GameReplay}</code>), à condition que la partie
+ * ait été jouée avec un générateur aléatoire créé à partir de cette graine.
+ * L'en-tête du journal contient de plus le nom de chaque joueur, ainsi qu'une clé
+ * de session qui permet de n'en confier la reprise qu'aux joueurs de la partie.
+ * Les enregistrements sont accumulés dans un tampon, qui n'est écrit dans le canal
+ * que lorsqu'il est plein, lorsque le jeu demande aux joueurs de transmettre
+ * leurs communications en attente, ou lors de la fermeture de l'enregistreur.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class ReplayRecorder implements Closeable {
+
+    private static final int BUFFER_CAPACITY = 1 << 13;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_CAPACITY);
+
+    /**
+     * Crée un nouveau fichier au chemin donné, et retourne un enregistreur
+     * y écrivant le journal de la partie ayant la graine, les billets
+     * et les joueurs donnés.
+     *
+     * @param path
+     *          le chemin du journal, qui ne doit pas déjà exister
+     * @param seed
+     *          la graine du générateur aléatoire de la partie
+     * @param tickets
+     *          les billets disponibles de la partie
+     * @param playerNames
+     *          le nom de chaque joueur
+     * @param sessionKeys
+     *          la clé de session de chaque joueur, une clé absente valant la chaîne vide
+     * @throws IllegalArgumentException
+     *          si la table des noms n'a pas une entrée par joueur
+     * @throws UncheckedIOException
+     *          si le fichier existe déjà ou ne peut pas être créé
+     * @return
+     *          un enregistreur écrivant dans le fichier donné
+     */
+    public static ReplayRecorder create(Path path, long seed, SortedBag<Ticket> tickets, Map<PlayerId, String> playerNames, Map<PlayerId, String> sessionKeys) {
+        Preconditions.checkArgument(playerNames.size() == PlayerId.COUNT);
+
+        try {
+            return new ReplayRecorder(
+                    FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.APPEND),
+                    seed,
+                    tickets,
+                    playerNames,
+                    sessionKeys
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ouvre le journal existant au chemin donné, dont la partie a été rejouée,
+     * et retourne un enregistreur y ajoutant les réponses des joueurs de la partie reprise.
+     * Les réponses du tour incomplet qui termine éventuellement le journal sont effacées.
+     *
+     * @param path
+     *          le chemin du journal
+     * @param replay
+     *          la partie rejouée à partir de ce journal
+     * @throws UncheckedIOException
+     *          si le journal ne peut pas être ouvert
+     * @return
+     *          un enregistreur ajoutant les réponses à la fin du journal
+     */
+    public static ReplayRecorder append(Path path, GameReplay replay) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(replay.logLength());
+            channel.position(replay.logLength());
+            return new ReplayRecorder(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ReplayRecorder(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Construit un enregistreur écrivant dans le canal donné le journal
+     * de la partie ayant la graine et les billets donnés. Le nom des joueurs
+     * enregistré est celui de leur identité, et ils n'ont pas de clé de session.
+     *
+     * @param channel
+     *          le canal dans lequel le journal est écrit
+     * @param seed
+     *          la graine du générateur aléatoire de la partie
+     * @param tickets
+     *          les billets disponibles de la partie
+     * @throws NullPointerException
+     *          si le canal vaut <code>null</code>
+     */
+    public ReplayRecorder(WritableByteChannel channel, long seed, SortedBag<Ticket> tickets) {
+        this(channel, seed, tickets, identityNames(), Map.of());
+    }
+
+    /**
+     * Construit un enregistreur écrivant dans le canal donné le journal
+     * de la partie ayant la graine, les billets et les joueurs donnés.
+     *
+     * @param channel
+     *          le canal dans lequel le journal est écrit
+     * @param seed
+     *          la graine du générateur aléatoire de la partie
+     * @param tickets
+     *          les billets disponibles de la partie
+     * @param playerNames
+     *          le nom de chaque joueur
+     * @param sessionKeys
+     *          la clé de session de chaque joueur, une clé absente valant la chaîne vide
+     * @throws IllegalArgumentException
+     *          si la table des noms n'a pas une entrée par joueur
+     * @throws NullPointerException
+     *          si le canal vaut <code>null</code>
+     */
+    public ReplayRecorder(WritableByteChannel channel, long seed, SortedBag<Ticket> tickets, Map<PlayerId, String> playerNames, Map<PlayerId, String> sessionKeys) {
+        Preconditions.checkArgument(playerNames.size() == PlayerId.COUNT);
+        this.channel = Objects.requireNonNull(channel);
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(seed);
+        writeTickets(tickets, buffer);
+        for (PlayerId id : PlayerId.ALL) {
+            writeString(playerNames.get(id), buffer);
+            writeString(sessionKeys.getOrDefault(id, ""), buffer);
+        }
+    }
+
+    private static Map<PlayerId, String> identityNames() {
+        Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            names.put(id, id.name());
+        return names;
+    }
+
+    /**
+     * Retourne une table associant à chaque joueur donné un joueur qui lui délègue
+     * tous ses appels, et enregistre ses réponses dans le journal.
+     * C'est cette table qui doit être passée à <code>Game.play</code>.
+     *
+     * @param players
+     *          les joueurs de la partie
+     * @return
+     *          les joueurs dont les réponses sont enregistrées
+     */
+    public Map<PlayerId, Player> record(Map<PlayerId, Player> players) {
+        Map<PlayerId, Player> recorded = new EnumMap<>(PlayerId.class);
+        players.forEach((id, player) -> recorded.put(id, new RecordedPlayer(id, player)));
+        return recorded;
+    }
+
+    /**
+     * Écrit dans le canal tous les enregistrements en attente dans le tampon.
+     *
+     * @throws UncheckedIOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    public synchronized void flush() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Écrit les enregistrements en attente, puis ferme le canal.
+     *
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        }
+        channel.close();
+    }
+
+    // Les joueurs étant interrogés l'un après l'autre, les enregistrements
+    // sont écrits dans l'ordre des réponses, même si chaque joueur a son propre fil
+    private synchronized ByteBuffer beginRecord(byte type, PlayerId id) {
+        if (buffer.remaining() < MAX_RECORD_SIZE)
+            flush();
+
+        buffer.put(type);
+        writePlayer(id, buffer);
+        return buffer;
+    }
+
+    private final class RecordedPlayer implements Player {
+
+        private final PlayerId id;
+        private final Player player;
+
+        private RecordedPlayer(PlayerId id, Player player) {
+            this.id = id;
+            this.player = Objects.requireNonNull(player);
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {
+            player.initPlayers(ownId, playerNames);
+        }
+
+        @Override
+        public void receiveInfo(String info) {
+            player.receiveInfo(info);
+        }
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            player.updateState(newState, ownState);
+        }
+
+        @Override
+        public void flush() {
+            player.flush();
+            ReplayRecorder.this.flush();
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            player.setInitialTicketChoice(tickets);
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            SortedBag<Ticket> chosen = player.chooseInitialTickets();
+            synchronized (ReplayRecorder.this) {
+                writeTickets(chosen, beginRecord(INITIAL_TICKETS, id));
+            }
+            return chosen;
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            TurnKind kind = player.nextTurn();
+            synchronized (ReplayRecorder.this) {
+                writeVarInt(kind.ordinal(), beginRecord(TURN_KIND, id));
+            }
+            return kind;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            SortedBag<Ticket> chosen = player.chooseTickets(options);
+            synchronized (ReplayRecorder.this) {
+                writeTickets(chosen, beginRecord(TICKETS, id));
+            }
+            return chosen;
+        }
+
+        @Override
+        public int drawSlot() {
+            int slot = player.drawSlot();
+            synchronized (ReplayRecorder.this) {
+                // Le tas de pioche (-1) est encodé par 0, les cartes face visible à partir de 1
+                writeVarInt(slot + 1, beginRecord(DRAW_SLOT, id));
+            }
+            return slot;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            Route route = player.claimedRoute();
+            synchronized (ReplayRecorder.this) {
+                writeRoute(route, beginRecord(ROUTE, id));
+            }
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            SortedBag<Card> cards = player.initialClaimCards();
+            synchronized (ReplayRecorder.this) {
+                writeCards(cards, beginRecord(INITIAL_CLAIM_CARDS, id));
+            }
+            return cards;
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            SortedBag<Card> cards = player.chooseAdditionalCards(options);
+            synchronized (ReplayRecorder.this) {
+                writeCards(cards, beginRecord(ADDITIONAL_CARDS, id));
+            }
+            return cards;
+        }
+
+    }
+
+}
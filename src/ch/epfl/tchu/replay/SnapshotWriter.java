@@ -0,0 +1,82 @@
+package ch.epfl.tchu.replay;
+
+import ch.epfl.tchu.SerialExecutor;
+import ch.epfl.tchu.game.GameSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Classe publique et finale représentant un consommateur d'instantanés de partie,
+ * qui écrit le dernier instantané reçu dans un fichier.
+ *
+ * La fréquence des instantanés est choisie par la partie qui les prend
+ * (voir <code>Game.play</code>). La sérialisation et l'écriture sont faites
+ * sur les fils d'un exécuteur pouvant être partagé par les écrivains de plusieurs
+ * parties, de sorte que le fil de la partie n'est jamais bloqué. Les écritures
+ * d'un même écrivain ont lieu l'une après l'autre ; si plusieurs instantanés sont en attente,
+ * seul le plus récent est écrit. Le fichier est remplacé de manière atomique,
+ * et contient donc toujours un instantané complet.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class SnapshotWriter implements Consumer<GameSnapshot>, Closeable {
+
+    private final Path path;
+    private final Path temporaryPath;
+    private final SerialExecutor executor;
+
+    private final AtomicReference<GameSnapshot> pending = new AtomicReference<>();
+
+    /**
+     * Construit un écrivain d'instantanés écrivant les instantanés reçus
+     * dans le fichier au chemin donné, sur les fils de l'exécuteur donné.
+     *
+     * @param path
+     *          le chemin du fichier des instantanés
+     * @param executor
+     *          l'exécuteur chargé des écritures
+     * @throws NullPointerException
+     *          si le chemin ou l'exécuteur vaut <code>null</code>
+     */
+    public SnapshotWriter(Path path, Executor executor) {
+        this.path = Objects.requireNonNull(path);
+        this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.executor = new SerialExecutor(executor);
+    }
+
+    @Override
+    public void accept(GameSnapshot snapshot) {
+        // Une écriture n'est demandée que si aucune n'est déjà en attente
+        if (pending.getAndSet(snapshot) == null)
+            executor.execute(this::write);
+    }
+
+    private void write() {
+        GameSnapshot snapshot = pending.getAndSet(null);
+        try {
+            Files.write(temporaryPath, snapshot.serialize());
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Un instantané manqué n'empêche pas la partie de continuer
+            System.err.printf("Instantané %s non écrit : %s%n", path, e);
+        }
+    }
+
+    /**
+     * Attend que l'instantané en attente éventuel ait été écrit.
+     */
+    @Override
+    public void close() {
+        executor.awaitCompletion();
+    }
+
+}
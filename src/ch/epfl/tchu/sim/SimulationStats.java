@@ -0,0 +1,213 @@
+package ch.epfl.tchu.sim;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.game.GameResult;
+import ch.epfl.tchu.game.PlayerId;
+
+import java.util.StringJoiner;
+
+/**
+ * Classe publique, finale et immuable représentant les statistiques
+ * agrégées d'un ensemble de parties simulées.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class SimulationStats {
+    
+    private final int gameCount, drawCount;
+    private final long turnCount;
+    private final int[] winCount, bonusCount;
+    private final long[] points, longestTrailLengths;
+    
+    private SimulationStats(Builder builder) {
+        this.gameCount = builder.gameCount;
+        this.drawCount = builder.drawCount;
+        this.turnCount = builder.turnCount;
+        this.winCount = builder.winCount.clone();
+        this.bonusCount = builder.bonusCount.clone();
+        this.points = builder.points.clone();
+        this.longestTrailLengths = builder.longestTrailLengths.clone();
+    }
+    
+    private double average(long total) {
+        return gameCount == 0 ? 0 : (double) total / gameCount;
+    }
+    
+    /**
+     * Retourne le nombre de parties simulées.
+     *
+     * @return le nombre de parties simulées
+     */
+    public int gameCount() {
+        return gameCount;
+    }
+    
+    /**
+     * Retourne la proportion de parties remportées par le joueur donné seul.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          la proportion (entre 0 et 1) de parties remportées par le joueur
+     */
+    public double winRate(PlayerId id) {
+        return average(winCount[id.ordinal()]);
+    }
+    
+    /**
+     * Retourne la proportion de parties terminées sur une égalité.
+     *
+     * @return la proportion (entre 0 et 1) de parties terminées sur une égalité
+     */
+    public double drawRate() {
+        return average(drawCount);
+    }
+    
+    /**
+     * Retourne le nombre moyen de points finaux obtenus par le joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          le nombre moyen de points finaux obtenus par le joueur
+     */
+    public double averagePoints(PlayerId id) {
+        return average(points[id.ordinal()]);
+    }
+    
+    /**
+     * Retourne le nombre moyen de tours joués par partie.
+     *
+     * @return le nombre moyen de tours joués par partie
+     */
+    public double averageTurnCount() {
+        return average(turnCount);
+    }
+    
+    /**
+     * Retourne la proportion de parties dans lesquelles le joueur donné
+     * a obtenu le bonus du plus long chemin.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          la proportion (entre 0 et 1) de parties dans lesquelles
+     *          le joueur a obtenu le bonus
+     */
+    public double longestTrailBonusRate(PlayerId id) {
+        return average(bonusCount[id.ordinal()]);
+    }
+    
+    /**
+     * Retourne la longueur moyenne du plus long chemin du joueur donné.
+     *
+     * @param id
+     *          l'identité du joueur
+     * @return
+     *          la longueur moyenne du plus long chemin du joueur
+     */
+    public double averageLongestTrailLength(PlayerId id) {
+        return average(longestTrailLengths[id.ordinal()]);
+    }
+    
+    /**
+     * Retourne un résumé textuel des statistiques.
+     *
+     * @return un résumé textuel des statistiques
+     */
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner("\n");
+        sj.add(String.format("%d parties, %.1f tours en moyenne, %.2f%% d'égalités",
+                gameCount, averageTurnCount(), 100 * drawRate()));
+        for (PlayerId id : PlayerId.ALL) {
+            sj.add(String.format("%s : %.2f%% de victoires, %.1f points, plus long chemin %.1f (bonus %.2f%%)",
+                    id, 100 * winRate(id), averagePoints(id),
+                    averageLongestTrailLength(id), 100 * longestTrailBonusRate(id)));
+        }
+        
+        return sj.toString();
+    }
+    
+    /**
+     * Bâtisseur de statistiques, auquel les résultats des parties
+     * sont ajoutés au fur et à mesure.
+     * Plusieurs bâtisseurs peuvent être combinés, ce qui permet
+     * d'agréger en parallèle les résultats de plusieurs parties.
+     */
+    public static final class Builder {
+        
+        private int gameCount, drawCount;
+        private long turnCount;
+        private final int[] winCount = new int[PlayerId.COUNT];
+        private final int[] bonusCount = new int[PlayerId.COUNT];
+        private final long[] points = new long[PlayerId.COUNT];
+        private final long[] longestTrailLengths = new long[PlayerId.COUNT];
+        
+        /**
+         * Ajoute le résultat de partie donné au bâtisseur.
+         *
+         * @param result
+         *          le résultat à ajouter
+         * @return
+         *          ce bâtisseur
+         */
+        public Builder add(GameResult result) {
+            ++gameCount;
+            turnCount += result.turnCount();
+            
+            if (result.isDraw())
+                ++drawCount;
+            else
+                ++winCount[result.winners().get(0).ordinal()];
+            
+            for (PlayerId id : result.bonusWinners())
+                ++bonusCount[id.ordinal()];
+            
+            for (PlayerId id : PlayerId.ALL) {
+                points[id.ordinal()] += result.points(id);
+                longestTrailLengths[id.ordinal()] += result.longestTrail(id).length();
+            }
+            
+            return this;
+        }
+        
+        /**
+         * Ajoute au bâtisseur la totalité des résultats ajoutés au bâtisseur donné.
+         *
+         * @param that
+         *          le bâtisseur dont les résultats sont à ajouter
+         * @throws IllegalArgumentException
+         *          si le bâtisseur donné est ce bâtisseur
+         * @return
+         *          ce bâtisseur
+         */
+        public Builder add(Builder that) {
+            Preconditions.checkArgument(that != this);
+            
+            gameCount += that.gameCount;
+            drawCount += that.drawCount;
+            turnCount += that.turnCount;
+            for (int i = 0; i < PlayerId.COUNT; ++i) {
+                winCount[i] += that.winCount[i];
+                bonusCount[i] += that.bonusCount[i];
+                points[i] += that.points[i];
+                longestTrailLengths[i] += that.longestTrailLengths[i];
+            }
+            
+            return this;
+        }
+        
+        /**
+         * Retourne les statistiques correspondant aux résultats ajoutés jusqu'à présent.
+         *
+         * @return les statistiques correspondant aux résultats ajoutés
+         */
+        public SimulationStats build() {
+            return new SimulationStats(this);
+        }
+        
+    }
+    
+}
@@ -0,0 +1,80 @@
+package ch.epfl.tchu.sim;
+
+import ch.epfl.tchu.Preconditions;
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.GameResult;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Ticket;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+/**
+ * Classe publique, finale et non instanciable permettant de simuler
+ * un grand nombre de parties de tCHu entre joueurs automatiques,
+ * en parallèle sur tous les cœurs disponibles.
+ *
+ * Chaque partie utilise son propre générateur aléatoire, dont la graine
+ * ne dépend que de la graine de la simulation et du numéro de la partie,
+ * si bien qu'une simulation est reproductible quel que soit l'ordre
+ * dans lequel les parties sont jouées.
+ *
+ * @author Mallory Henriet (311258)
+ * @author Louis Hervé (312937)
+ */
+public final class Simulator {
+    
+    private Simulator() {}
+    
+    /**
+     * Simule le nombre de parties donné et retourne les statistiques agrégées
+     * de leurs résultats.
+     *
+     * @param gameCount
+     *          le nombre de parties à simuler
+     * @param seed
+     *          la graine de la simulation
+     * @param tickets
+     *          les billets disponibles dans chaque partie
+     * @param playerFactory
+     *          la fonction créant un nouveau joueur pour chaque partie, étant donnés
+     *          son identité et un générateur aléatoire qui lui est propre
+     * @throws IllegalArgumentException
+     *          si le nombre de parties est strictement négatif
+     * @return
+     *          les statistiques agrégées des parties simulées
+     */
+    public static SimulationStats run(int gameCount, long seed, SortedBag<Ticket> tickets,
+                                      BiFunction<PlayerId, Random, Player> playerFactory) {
+        Preconditions.checkArgument(gameCount >= 0);
+        
+        return IntStream.range(0, gameCount)
+                .parallel()
+                .mapToObj(i -> playOne(seed + i, tickets, playerFactory))
+                .collect(Collector.of(
+                        SimulationStats.Builder::new,
+                        SimulationStats.Builder::add,
+                        SimulationStats.Builder::add,
+                        SimulationStats.Builder::build
+                ));
+    }
+    
+    private static GameResult playOne(long gameSeed, SortedBag<Ticket> tickets,
+                                      BiFunction<PlayerId, Random, Player> playerFactory) {
+        Random rng = new Random(gameSeed);
+        long playersSeed = rng.nextLong();
+        
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            players.put(id, playerFactory.apply(id, new Random(playersSeed + id.ordinal())));
+        
+        return Game.simulate(players, tickets, rng);
+    }
+    
+}
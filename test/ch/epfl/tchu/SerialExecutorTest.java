@@ -0,0 +1,85 @@
+package ch.epfl.tchu;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialExecutorTest {
+
+    @Test
+    void tasksOfEachExecutorRunInOrderOnSharedThreads() {
+        ExecutorService shared = Executors.newFixedThreadPool(2);
+        List<SerialExecutor> executors = new ArrayList<>();
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            executors.add(new SerialExecutor(shared));
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        for (int n = 0; n < 1000; ++n) {
+            for (int i = 0; i < executors.size(); ++i) {
+                int value = n;
+                List<Integer> result = results.get(i);
+                executors.get(i).execute(() -> result.add(value));
+            }
+        }
+        executors.forEach(SerialExecutor::awaitCompletion);
+        shared.shutdown();
+
+        for (List<Integer> result : results) {
+            assertEquals(1000, result.size());
+            for (int n = 0; n < 1000; ++n)
+                assertEquals(n, result.get(n));
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopFollowingTasks() {
+        List<String> calls = new ArrayList<>();
+        SerialExecutor executor = new SerialExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((thread, e) -> calls.add("failure"));
+            t.start();
+        });
+
+        executor.execute(() -> { throw new IllegalStateException(); });
+        executor.execute(() -> calls.add("task"));
+        executor.awaitCompletion();
+
+        assertEquals(List.of("failure", "task"), calls);
+    }
+
+    @Test
+    void worksWithDirectExecutor() {
+        List<Integer> calls = new ArrayList<>();
+        SerialExecutor executor = new SerialExecutor(Runnable::run);
+
+        executor.execute(() -> {
+            calls.add(1);
+            executor.execute(() -> calls.add(3));
+            calls.add(2);
+        });
+        executor.execute(() -> calls.add(4));
+        executor.awaitCompletion();
+
+        assertEquals(List.of(1, 2, 3, 4), calls);
+    }
+
+    @Test
+    void rejectedTasksAreDropped() {
+        ExecutorService shared = Executors.newSingleThreadExecutor();
+        shared.shutdown();
+        SerialExecutor executor = new SerialExecutor(shared);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+
+}
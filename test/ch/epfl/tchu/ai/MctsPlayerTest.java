@@ -0,0 +1,59 @@
+package ch.epfl.tchu.ai;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.GameResult;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MctsPlayerTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+
+    @Test
+    void constructorFailsWithInvalidArguments() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThrows(IllegalArgumentException.class, () ->
+                    new MctsPlayer(TICKETS, executor, 0, 10, new Random()));
+            assertThrows(IllegalArgumentException.class, () ->
+                    new MctsPlayer(TICKETS, executor, 1, 0, new Random()));
+            assertThrows(NullPointerException.class, () ->
+                    new MctsPlayer(TICKETS, null, 1, 10, new Random()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void botsPlayCompleteGamesOnSharedExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Random rng = TestRandomizer.newRandom();
+            for (int i = 0; i < 2; ++i) {
+                Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+                for (PlayerId id : PlayerId.ALL)
+                    players.put(id, new MctsPlayer(TICKETS, executor, 2, 2, new Random(rng.nextLong())));
+
+                GameResult result = Game.simulate(players, TICKETS, new Random(rng.nextLong()));
+                assertFalse(result.winners().isEmpty());
+                assertTrue(result.turnCount() > 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.SortedBag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncPlayerTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class RecordingPlayer implements Player {
+        final List<String> calls = new ArrayList<>();
+        final Thread caller = Thread.currentThread();
+        boolean calledFromOtherThread = true;
+
+        private void record(String call) {
+            calledFromOtherThread &= Thread.currentThread() != caller;
+            calls.add(call);
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) { record("init"); }
+
+        @Override
+        public void receiveInfo(String info) {
+            if (info.equals("fail"))
+                throw new IllegalStateException();
+            // Une réception lente ne doit pas changer l'ordre des appels
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new Error(e);
+            }
+            record(info);
+        }
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) { record("update"); }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) { record("tickets"); }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() { record("choose"); return SortedBag.of(); }
+
+        @Override
+        public TurnKind nextTurn() { record("turn"); return TurnKind.DRAW_CARDS; }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) { return options; }
+
+        @Override
+        public int drawSlot() { record("slot"); return Constants.DECK_SLOT; }
+
+        @Override
+        public Route claimedRoute() { return null; }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() { return SortedBag.of(); }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) { return SortedBag.of(); }
+    }
+
+    @Test
+    void callsAreExecutedInOrderOnAnotherThread() {
+        RecordingPlayer recording = new RecordingPlayer();
+        AsyncPlayer player = new AsyncPlayer(recording, EXECUTOR);
+
+        player.initPlayers(PlayerId.PLAYER_1, Map.of());
+        for (int i = 0; i < 10; ++i)
+            player.receiveInfo("info" + i);
+        player.setInitialTicketChoice(SortedBag.of());
+        assertEquals(Player.TurnKind.DRAW_CARDS, player.nextTurn());
+
+        List<String> expected = new ArrayList<>(List.of("init"));
+        for (int i = 0; i < 10; ++i)
+            expected.add("info" + i);
+        expected.addAll(List.of("tickets", "turn"));
+        assertEquals(expected, recording.calls);
+
+        player.receiveInfo("last");
+        player.close();
+        assertEquals("last", recording.calls.get(recording.calls.size() - 1));
+        assertTrue(recording.calledFromOtherThread);
+    }
+
+    @Test
+    void failuresAreThrownOnNextCall() {
+        RecordingPlayer recording = new RecordingPlayer();
+        AsyncPlayer player = new AsyncPlayer(recording, EXECUTOR);
+
+        player.receiveInfo("fail");
+        assertThrows(IllegalStateException.class, player::drawSlot);
+        assertThrows(IllegalStateException.class, () -> player.receiveInfo("ignored"));
+        assertEquals(List.of(), recording.calls);
+        player.close();
+    }
+
+    @Test
+    void playersSharingOneThreadKeepTheirOwnOrder() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RecordingPlayer recording1 = new RecordingPlayer();
+        RecordingPlayer recording2 = new RecordingPlayer();
+        AsyncPlayer player1 = new AsyncPlayer(recording1, executor);
+        AsyncPlayer player2 = new AsyncPlayer(recording2, executor);
+
+        for (int i = 0; i < 10; ++i) {
+            player1.receiveInfo("a" + i);
+            player2.receiveInfo("b" + i);
+        }
+        assertEquals(Constants.DECK_SLOT, player1.drawSlot());
+        assertEquals(Constants.DECK_SLOT, player2.drawSlot());
+        player1.close();
+        player2.close();
+        executor.shutdown();
+
+        List<String> expected1 = new ArrayList<>();
+        List<String> expected2 = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            expected1.add("a" + i);
+            expected2.add("b" + i);
+        }
+        expected1.add("slot");
+        expected2.add("slot");
+        assertEquals(expected1, recording1.calls);
+        assertEquals(expected2, recording2.calls);
+    }
+
+}
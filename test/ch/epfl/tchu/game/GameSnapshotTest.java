@@ -0,0 +1,124 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSnapshotTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+
+    private static GameState playedState(Random rng) {
+        GameState state = GameState.initial(TICKETS, rng);
+        for (PlayerId id : PlayerId.ALL) {
+            SortedBag<Ticket> chosen = state.topTickets(Constants.INITIAL_TICKETS_COUNT);
+            state = state.withoutTopTickets(Constants.INITIAL_TICKETS_COUNT).withInitiallyChosenTickets(id, chosen);
+        }
+
+        for (int i = 0; i < 60; ++i) {
+            state = state.withCardsDeckRecreatedIfNeeded(rng).withBlindlyDrawnCard();
+            for (Route r : ChMap.routes()) {
+                if (state.currentPlayerState().canClaimRoute(r) && state.claimedRouteSet().isFree(r)) {
+                    state = state.withClaimedRoute(r, state.currentPlayerState().possibleClaimCards(r).get(0));
+                    break;
+                }
+            }
+            state = state.forNextTurn();
+        }
+
+        return state;
+    }
+
+    private static void assertSameState(GameState expected, GameState actual) {
+        assertEquals(expected.tickets().cards(), actual.tickets().cards());
+        assertEquals(expected.fullCardState().deck().cards(), actual.fullCardState().deck().cards());
+        assertEquals(expected.cardState().faceUpCards(), actual.cardState().faceUpCards());
+        assertEquals(expected.fullCardState().discards(), actual.fullCardState().discards());
+        assertEquals(expected.currentPlayerId(), actual.currentPlayerId());
+        assertEquals(expected.lastPlayer(), actual.lastPlayer());
+
+        for (PlayerId id : PlayerId.ALL) {
+            PlayerState e = expected.playerState(id), a = actual.playerState(id);
+            assertEquals(e.tickets(), a.tickets());
+            assertEquals(e.cards(), a.cards());
+            assertEquals(e.routes(), a.routes());
+            assertEquals(e.finalPoints(), a.finalPoints());
+        }
+    }
+
+    @Test
+    void serializationIsIdentity() {
+        Random rng = TestRandomizer.newRandom();
+        GameState state = playedState(rng);
+        GameSnapshot snapshot = GameSnapshot.of(state, rng, 60);
+
+        GameSnapshot deserialized = GameSnapshot.deserialize(snapshot.serialize());
+        assertEquals(60, deserialized.turn());
+        assertSameState(state, deserialized.state());
+
+        Random copy = deserialized.rng();
+        for (int i = 0; i < 10; ++i)
+            assertEquals(rng.nextLong(), copy.nextLong());
+    }
+
+    @Test
+    void rngIsCopied() {
+        Random rng = TestRandomizer.newRandom();
+        GameSnapshot snapshot = GameSnapshot.of(GameState.initial(TICKETS, rng), rng, 0);
+
+        long expected = snapshot.rng().nextLong();
+        rng.nextLong();
+        assertEquals(expected, snapshot.rng().nextLong());
+    }
+
+    @Test
+    void deserializeFailsOnInvalidSnapshot() {
+        byte[] serialized = GameSnapshot.of(GameState.initial(TICKETS, new Random(1)), new Random(1), 0).serialize();
+
+        assertThrows(IllegalArgumentException.class, () -> GameSnapshot.deserialize(new byte[] { 1, 2, 3 }));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameSnapshot.deserialize(Arrays.copyOf(serialized, serialized.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameSnapshot.deserialize(Arrays.copyOf(serialized, serialized.length + 1)));
+    }
+
+    @Test
+    void ofFailsForSubclassesOfRandom() {
+        GameState state = GameState.initial(TICKETS, new Random(1));
+        assertThrows(IllegalArgumentException.class, () -> GameSnapshot.of(state, new SecureRandom(), 0));
+    }
+
+    @Test
+    void deserializeFailsForOtherClassesThanRandom() throws IOException {
+        byte[] serialized = GameSnapshot.of(GameState.initial(TICKETS, new Random(1)), new Random(1), 0).serialize();
+        // L'en-tête (9 octets) est suivi de la taille et des octets du générateur sérialisé
+        int rngLength = Short.toUnsignedInt(ByteBuffer.wrap(serialized).getShort(9));
+
+        for (Object other : List.of(new SecureRandom(), new ArrayList<>(List.of(1, 2, 3)))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(other);
+            }
+            ByteBuffer forged = ByteBuffer.allocate(serialized.length - rngLength + bytes.size());
+            forged.put(serialized, 0, 9)
+                    .putShort((short) bytes.size())
+                    .put(bytes.toByteArray())
+                    .put(serialized, 11 + rngLength, serialized.length - 11 - rngLength);
+
+            assertThrows(IllegalArgumentException.class, () -> GameSnapshot.deserialize(forged.array()));
+        }
+    }
+
+}
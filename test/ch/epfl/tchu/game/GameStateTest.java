@@ -250,6 +250,10 @@ class GameStateTest {
         var state = INITIAL;
         final SortedBag<Card> cards = SortedBag.of(1, Card.RED, 2, Card.YELLOW);
         for (Route r : ChMap.routes()) {
+            // La voisine d'une route double déjà prise ne peut plus l'être
+            if (! state.claimedRouteSet().isFree(r))
+                continue;
+            
             var newRoutes = new ArrayList<>(state.currentPlayerState().routes());
             newRoutes.add(r);
             state = state.withClaimedRoute(r, cards);
@@ -259,6 +263,21 @@ class GameStateTest {
         }
     }
     
+    @Test
+    void withClaimedRouteFailsForClaimedRouteOrSibling() {
+        final SortedBag<Card> cards = SortedBag.of(1, Card.RED, 2, Card.YELLOW);
+        for (Route r : ChMap.routes()) {
+            var state = INITIAL.withClaimedRoute(r, cards);
+            assertThrows(IllegalArgumentException.class, () -> state.withClaimedRoute(r, cards));
+            
+            Route sibling = RouteSet.sibling(r);
+            if (sibling != null) {
+                assertThrows(IllegalArgumentException.class, () -> state.withClaimedRoute(sibling, cards));
+                assertThrows(IllegalArgumentException.class, () -> state.forNextTurn().withClaimedRoute(sibling, cards));
+            }
+        }
+    }
+    
     @Test
     void lastTurnBeginsWorks() {
         var longRoute = new Route("BRI_LOC_1", BRI, LOC, 6, Route.Level.UNDERGROUND, null);
@@ -105,8 +105,7 @@ class GameTest {
     
             List<Route> claimableRoutes = allRoutes.stream()
                     .filter(r -> ownState.canClaimRoute(r))
-                    .filter(r -> ! ownState.routes().contains(r))
-                    .filter(r -> ! gameState.playerState(id.next()).routes().contains(r))
+                    .filter(r -> gameState.claimedRouteSet().isFree(r))
                     .collect(Collectors.toList());
             
             if (claimableRoutes.stream().noneMatch(r -> r.level() == Route.Level.OVERGROUND) && gameState.canDrawCards()) {
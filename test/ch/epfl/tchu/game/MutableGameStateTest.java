@@ -0,0 +1,197 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutableGameStateTest {
+
+    private static final SortedBag<Ticket> TICKETS_BAG = SortedBag.of(ChMap.tickets());
+
+    private static void assertSameState(GameState expected, GameState actual) {
+        assertEquals(expected.tickets().cards(), actual.tickets().cards());
+        assertEquals(expected.fullCardState().deck().cards(), actual.fullCardState().deck().cards());
+        assertEquals(expected.cardState().faceUpCards(), actual.cardState().faceUpCards());
+        assertEquals(expected.fullCardState().discards(), actual.fullCardState().discards());
+        assertEquals(expected.currentPlayerId(), actual.currentPlayerId());
+        assertEquals(expected.lastPlayer(), actual.lastPlayer());
+
+        for (PlayerId id : PlayerId.ALL) {
+            PlayerState e = expected.playerState(id), a = actual.playerState(id);
+            assertEquals(e.tickets(), a.tickets());
+            assertEquals(e.cards(), a.cards());
+            assertEquals(e.routes(), a.routes());
+            assertEquals(e.carCount(), a.carCount());
+            assertEquals(e.finalPoints(), a.finalPoints());
+        }
+    }
+
+    @Test
+    void conversionIsIdentity() {
+        GameState initial = GameState.initial(TICKETS_BAG, TestRandomizer.newRandom());
+        assertSameState(initial, new MutableGameState(initial).toGameState());
+    }
+
+    @Test
+    void randomGamesMatchImmutableStateAndCanBeUndone() {
+        Random seeds = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS / 50; ++i) {
+            long seed = seeds.nextLong();
+            Random policy = new Random(seed);
+            Random rng = new Random(seed), mutableRng = new Random(seed);
+
+            GameState state = GameState.initial(TICKETS_BAG, new Random(seed));
+            MutableGameState mutable = new MutableGameState(state);
+            GameState initial = state;
+            int start = mutable.checkpoint();
+
+            for (PlayerId id : PlayerId.ALL) {
+                SortedBag<Ticket> chosen = state.topTickets(Constants.INITIAL_TICKETS_COUNT);
+                state = state.withoutTopTickets(Constants.INITIAL_TICKETS_COUNT)
+                        .withInitiallyChosenTickets(id, chosen);
+                mutable.removeTopTickets(Constants.INITIAL_TICKETS_COUNT);
+                mutable.addInitiallyChosenTickets(id, chosen);
+            }
+            assertSameState(state, mutable.toGameState());
+
+            List<GameState> history = new ArrayList<>();
+            List<Integer> checkpoints = new ArrayList<>();
+            boolean isPlaying = true;
+            while (isPlaying) {
+                history.add(state);
+                checkpoints.add(mutable.checkpoint());
+
+                List<Route> claimable = new ArrayList<>();
+                for (Route r : ChMap.routes()) {
+                    if (state.claimedRouteSet().isFree(r) && state.currentPlayerState().canClaimRoute(r))
+                        claimable.add(r);
+                }
+                for (Route r : claimable)
+                    assertTrue(mutable.canClaimRoute(r));
+
+                if (! claimable.isEmpty() && policy.nextInt(3) > 0) {
+                    Route route = claimable.get(policy.nextInt(claimable.size()));
+                    List<SortedBag<Card>> options = state.currentPlayerState().possibleClaimCards(route);
+                    assertEquals(options, mutable.possibleClaimCards(route));
+
+                    SortedBag<Card> cards = options.get(policy.nextInt(options.size()));
+                    if (route.level() == Route.Level.UNDERGROUND) {
+                        SortedBag.Builder<Card> drawnB = new SortedBag.Builder<>();
+                        for (int j = 0; j < Constants.ADDITIONAL_TUNNEL_CARDS; ++j) {
+                            state = state.withCardsDeckRecreatedIfNeeded(rng);
+                            mutable.recreateCardsDeckIfNeeded(mutableRng);
+                            assertEquals(state.topCard(), mutable.topCard());
+                            drawnB.add(state.topCard());
+                            state = state.withoutTopCard();
+                            mutable.removeTopCard();
+                        }
+                        state = state.withMoreDiscardedCards(drawnB.build());
+                        mutable.addDiscardedCards(drawnB.build());
+                    }
+                    state = state.withClaimedRoute(route, cards);
+                    mutable.claimRoute(route, cards);
+                } else if (state.canDrawCards() && policy.nextInt(4) > 0) {
+                    for (int j = 0; j < 2; ++j) {
+                        state = state.withCardsDeckRecreatedIfNeeded(rng);
+                        mutable.recreateCardsDeckIfNeeded(mutableRng);
+                        int slot = policy.nextInt(Constants.FACE_UP_CARDS_COUNT + 1) - 1;
+                        if (slot == Constants.DECK_SLOT) {
+                            state = state.withBlindlyDrawnCard();
+                            mutable.drawBlindCard();
+                        } else {
+                            state = state.withDrawnFaceUpCard(slot);
+                            mutable.drawFaceUpCard(slot);
+                        }
+                    }
+                } else if (state.ticketsCount() >= Constants.IN_GAME_TICKETS_COUNT) {
+                    SortedBag<Ticket> drawn = state.topTickets(Constants.IN_GAME_TICKETS_COUNT);
+                    assertEquals(drawn, mutable.topTickets(Constants.IN_GAME_TICKETS_COUNT));
+                    SortedBag<Ticket> chosen = SortedBag.of(drawn.get(0));
+                    state = state.withChosenAdditionalTickets(drawn, chosen);
+                    mutable.addChosenAdditionalTickets(drawn, chosen);
+                }
+
+                assertEquals(state.lastTurnBegins(), mutable.lastTurnBegins());
+                if (state.currentPlayerId() == state.lastPlayer())
+                    isPlaying = false;
+                state = state.forNextTurn();
+                mutable.nextTurn();
+                assertSameState(state, mutable.toGameState());
+            }
+
+            for (int j = history.size() - 1; j >= 0; --j) {
+                mutable.rollback(checkpoints.get(j));
+                assertSameState(history.get(j), mutable.toGameState());
+            }
+            mutable.rollback(start);
+            assertSameState(initial, mutable.toGameState());
+        }
+    }
+
+    @Test
+    void determinizedStateIsConsistentWithPublicInformation() {
+        Random rng = TestRandomizer.newRandom();
+        GameState state = GameState.initial(TICKETS_BAG, rng);
+        SortedBag<Ticket> chosen = state.topTickets(Constants.INITIAL_TICKETS_COUNT);
+        state = state.withoutTopTickets(Constants.INITIAL_TICKETS_COUNT)
+                .withInitiallyChosenTickets(PlayerId.PLAYER_1, chosen);
+        for (int i = 0; i < 30; ++i)
+            state = state.withCardsDeckRecreatedIfNeeded(rng).withBlindlyDrawnCard().forNextTurn();
+
+        PlayerState own = state.playerState(PlayerId.PLAYER_1);
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS / 10; ++i) {
+            GameState determinized = MutableGameState.determinized(
+                    state, PlayerId.PLAYER_1, own, TICKETS_BAG.difference(chosen), SortedBag.of(), rng
+            ).toGameState();
+
+            assertEquals(state.ticketsCount(), determinized.ticketsCount());
+            assertEquals(state.cardState().faceUpCards(), determinized.cardState().faceUpCards());
+            assertEquals(state.cardState().deckSize(), determinized.cardState().deckSize());
+            assertEquals(state.cardState().discardsSize(), determinized.cardState().discardsSize());
+            assertEquals(own.tickets(), determinized.playerState(PlayerId.PLAYER_1).tickets());
+            assertEquals(own.cards(), determinized.playerState(PlayerId.PLAYER_1).cards());
+            assertEquals(
+                    state.playerState(PlayerId.PLAYER_2).cardCount(),
+                    determinized.playerState(PlayerId.PLAYER_2).cardCount()
+            );
+
+            SortedBag<Card> allCards = SortedBag.of(determinized.cardState().faceUpCards())
+                    .union(SortedBag.of(determinized.fullCardState().deck().cards()))
+                    .union(determinized.fullCardState().discards());
+            for (PlayerId id : PlayerId.ALL)
+                allCards = allCards.union(determinized.playerState(id).cards());
+            assertEquals(Constants.ALL_CARDS, allCards);
+        }
+    }
+
+    @Test
+    void claimRouteFailsForClaimedRouteOrSibling() {
+        MutableGameState mutable = new MutableGameState(GameState.initial(TICKETS_BAG, TestRandomizer.newRandom()));
+        for (Route r : ChMap.routes()) {
+            int checkpoint = mutable.checkpoint();
+            mutable.claimRoute(r, SortedBag.of());
+            assertThrows(IllegalArgumentException.class, () -> mutable.claimRoute(r, SortedBag.of()));
+
+            Route sibling = RouteSet.sibling(r);
+            if (sibling != null) {
+                assertThrows(IllegalArgumentException.class, () -> mutable.claimRoute(sibling, SortedBag.of()));
+                mutable.nextTurn();
+                assertThrows(IllegalArgumentException.class, () -> mutable.claimRoute(sibling, SortedBag.of()));
+            }
+            mutable.rollback(checkpoint);
+        }
+    }
+
+    @Test
+    void undoFailsWithoutModification() {
+        MutableGameState mutable = new MutableGameState(GameState.initial(TICKETS_BAG, TestRandomizer.newRandom()));
+        assertThrows(IllegalStateException.class, mutable::undo);
+    }
+
+}
@@ -0,0 +1,77 @@
+package ch.epfl.tchu.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteMapTest {
+
+    private static final List<Route> ROUTES = ChMap.routes();
+
+    @Test
+    void routesAndTicketsAreDenselyIndexed() {
+        for (int i = 0; i < ROUTES.size(); ++i)
+            assertEquals(i, ROUTES.get(i).index());
+
+        List<Ticket> tickets = ChMap.tickets();
+        for (int i = 0; i < tickets.size(); ++i)
+            assertEquals(tickets.indexOf(tickets.get(i)), tickets.get(i).index());
+    }
+
+    @Test
+    void routesAndTicketsOutsideOfTheNetworkHaveNoIndex() {
+        Route r = ROUTES.get(0);
+        assertEquals(-1, new Route(r.id(), r.station1(), r.station2(), r.length(), r.level(), r.color()).index());
+        assertEquals(-1, new Ticket(r.station1(), r.station2(), 1).index());
+    }
+
+    @Test
+    void putGetAndRemoveWork() {
+        RouteMap<Integer> map = new RouteMap<>();
+        for (Route r : ROUTES)
+            assertNull(map.put(r, r.length()));
+        assertEquals(ROUTES.size(), map.size());
+
+        for (Route r : ROUTES) {
+            assertTrue(map.containsKey(r));
+            assertEquals(r.length(), map.get(r));
+        }
+
+        Route first = ROUTES.get(0);
+        assertEquals(first.length(), map.put(first, 42));
+        assertEquals(42, map.remove(first));
+        assertNull(map.remove(first));
+        assertFalse(map.containsKey(first));
+        assertEquals(ROUTES.size() - 1, map.size());
+    }
+
+    @Test
+    void putFailsOutsideOfTheNetwork() {
+        Route r = ROUTES.get(0);
+        Route copy = new Route(r.id(), r.station1(), r.station2(), r.length(), r.level(), r.color());
+        RouteMap<Integer> map = RouteMap.of(Route::length);
+        assertNull(map.get(copy));
+        assertThrows(IllegalArgumentException.class, () -> map.put(copy, 1));
+        assertThrows(NullPointerException.class, () -> map.put(r, null));
+    }
+
+    @Test
+    void forEachFollowsRoutesOrder() {
+        RouteMap<Route> map = new RouteMap<>();
+        for (int i = ROUTES.size() - 1; i >= 0; i -= 2)
+            map.put(ROUTES.get(i), ROUTES.get(i));
+
+        List<Route> visited = new ArrayList<>();
+        map.forEach((r, v) -> {
+            assertSame(r, v);
+            visited.add(r);
+        });
+        assertEquals(map.size(), visited.size());
+        for (int i = 1; i < visited.size(); ++i)
+            assertTrue(visited.get(i - 1).index() < visited.get(i).index());
+    }
+
+}
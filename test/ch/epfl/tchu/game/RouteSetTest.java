@@ -0,0 +1,84 @@
+package ch.epfl.tchu.game;
+
+import ch.epfl.tchu.SortedBag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSetTest {
+
+    private static final List<Route> ROUTES = ChMap.routes();
+
+    @Test
+    void siblingsConnectTheSameStations() {
+        int doubleRoutes = 0;
+        for (Route r : ROUTES) {
+            Route sibling = RouteSet.sibling(r);
+            if (sibling != null) {
+                ++doubleRoutes;
+                assertNotSame(r, sibling);
+                assertEquals(r.stations(), sibling.stations());
+                assertSame(r, RouteSet.sibling(sibling));
+            } else {
+                for (Route o : ROUTES)
+                    assertTrue(o == r || ! o.stations().equals(r.stations()));
+            }
+        }
+        assertTrue(doubleRoutes > 0);
+    }
+
+    @Test
+    void siblingIsNullOutsideOfTheNetwork() {
+        Route r = ROUTES.get(0);
+        assertNull(RouteSet.sibling(new Route(r.id(), r.station1(), r.station2(), r.length(), r.level(), r.color())));
+    }
+
+    @Test
+    void withAndContainsWork() {
+        RouteSet set = RouteSet.EMPTY;
+        for (int i = 0; i < ROUTES.size(); i += 3) {
+            set = set.with(ROUTES.get(i));
+            assertSame(set, set.with(ROUTES.get(i)));
+        }
+
+        int count = 0;
+        for (int i = 0; i < ROUTES.size(); ++i) {
+            assertEquals(i % 3 == 0, set.contains(ROUTES.get(i)));
+            count += i % 3 == 0 ? 1 : 0;
+        }
+        assertEquals(count, set.size());
+        assertEquals(0, RouteSet.EMPTY.size());
+    }
+
+    @Test
+    void isFreeWorksWithDoubleRoutes() {
+        for (Route r : ROUTES) {
+            RouteSet set = RouteSet.of(List.of(r));
+            assertTrue(set.contains(r));
+            assertFalse(set.isFree(r));
+            Route sibling = RouteSet.sibling(r);
+            if (sibling != null) {
+                assertTrue(set.containsSibling(sibling));
+                assertFalse(set.isFree(sibling));
+                assertFalse(set.contains(sibling));
+            }
+            assertFalse(set.containsSibling(r));
+        }
+    }
+
+    @Test
+    void claimedRouteSetMatchesClaimedRoutes() {
+        GameState state = GameState.initial(SortedBag.of(ChMap.tickets()), new Random(2021));
+        for (int i = 0; i < ROUTES.size(); i += 5)
+            state = state.withClaimedRoute(ROUTES.get(i), SortedBag.of());
+
+        RouteSet set = state.claimedRouteSet();
+        assertEquals(state.claimedRoutes().size(), set.size());
+        for (Route r : ROUTES)
+            assertEquals(state.claimedRoutes().contains(r), set.contains(r));
+    }
+
+}
@@ -0,0 +1,95 @@
+package ch.epfl.tchu.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationDistancesTest {
+
+    private static final Station A = new Station(0, "A");
+    private static final Station B = new Station(1, "B");
+    private static final Station C = new Station(2, "C");
+    private static final Station D = new Station(3, "D");
+    private static final Station E = new Station(4, "E");
+
+    // A -4- B -1- C, A -6- C en double (AC_1 et AC_2, toutes deux de longueur 6), D -2- E isolées du reste
+    private static final StationDistances SMALL = StationDistances.of(
+            List.of(A, B, C, D, E),
+            List.of(
+                    new Route("AB", A, B, 4, Route.Level.OVERGROUND, null),
+                    new Route("BC", B, C, 1, Route.Level.OVERGROUND, null),
+                    new Route("AC_1", A, C, 6, Route.Level.OVERGROUND, null),
+                    new Route("AC_2", A, C, 6, Route.Level.UNDERGROUND, Color.RED),
+                    new Route("DE", D, E, 2, Route.Level.OVERGROUND, null)
+            )
+    );
+
+    @Test
+    void distancesAreShortest() {
+        assertEquals(0, SMALL.distance(A, A));
+        assertEquals(4, SMALL.distance(A, B));
+        assertEquals(5, SMALL.distance(A, C));
+        assertEquals(5, SMALL.distance(C, A));
+        assertEquals(2, SMALL.distance(E, D));
+        assertEquals(StationDistances.UNREACHABLE, SMALL.distance(A, D));
+    }
+
+    @Test
+    void shortestPathsFollowNextHops() {
+        assertEquals(List.of(A, B, C), SMALL.shortestPath(A, C));
+        assertEquals(List.of(C, B, A), SMALL.shortestPath(C, A));
+        assertEquals(List.of(A), SMALL.shortestPath(A, A));
+        assertEquals(List.of(), SMALL.shortestPath(A, E));
+        assertSame(B, SMALL.nextHop(A, C));
+        assertNull(SMALL.nextHop(E, B));
+    }
+
+    @Test
+    void chMapDistancesAreConsistentWithRoutes() {
+        StationDistances distances = StationDistances.chMap();
+        for (Route r : ChMap.routes())
+            assertTrue(distances.distance(r.station1(), r.station2()) <= r.length());
+
+        for (Station from : ChMap.stations()) {
+            for (Station to : ChMap.stations()) {
+                int distance = distances.distance(from, to);
+                assertEquals(distance, distances.distance(to, from));
+
+                List<Station> path = distances.shortestPath(from, to);
+                assertSame(from, path.get(0));
+                assertSame(to, path.get(path.size() - 1));
+
+                int length = 0;
+                for (int i = 1; i < path.size(); ++i)
+                    length += distances.distance(path.get(i - 1), path.get(i));
+                assertEquals(distance, length);
+            }
+        }
+    }
+
+    @Test
+    void remainingCarsTakesNetworkIntoAccount() {
+        Ticket ticket = new Ticket(A, C, 5);
+        StationPartition empty = new StationPartition.Builder(5).build();
+        assertEquals(5, SMALL.remainingCars(ticket, empty));
+
+        StationPartition withBC = new StationPartition.Builder(5).connect(B, C).build();
+        assertEquals(4, SMALL.remainingCars(ticket, withBC));
+
+        StationPartition withAC = new StationPartition.Builder(5).connect(A, B).connect(B, C).build();
+        assertEquals(0, SMALL.remainingCars(ticket, withAC));
+
+        assertEquals(StationDistances.UNREACHABLE, SMALL.remainingCars(new Ticket(A, D, 3), empty));
+    }
+
+    @Test
+    void ofFailsWithUnknownStation() {
+        assertThrows(IllegalArgumentException.class, () -> StationDistances.of(
+                List.of(A, B),
+                List.of(new Route("AC", A, C, 1, Route.Level.OVERGROUND, null))
+        ));
+    }
+
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class StationPartitionTest {
@@ -144,4 +145,22 @@ class StationPartitionTest {
         assertFalse(partition.connected(ChMap.stations().get(2), ChMap.stations().get(49)));
     }
     
+    @Test
+    void withConnectedWorks() {
+        StationPartition empty = new StationPartition.Builder(0).build();
+        StationPartition partition = empty;
+        for (Route r : List.of(PAR_NIC, PAR_BRE, BDX_NAN, NAN_NIC, MAR_LYO))
+            partition = partition.withConnected(r.station1(), r.station2());
+        
+        assertTrue(partition.connected(BRE, BDX));
+        assertTrue(partition.connected(LYO, MAR));
+        assertFalse(partition.connected(PAR, MAR));
+        assertFalse(partition.connected(TLS, NIC));
+        assertTrue(partition.connected(TLS, TLS));
+        
+        // La partition de départ n'est pas modifiée
+        assertFalse(empty.connected(PAR, NIC));
+        assertSame(partition, partition.withConnected(PAR, NAN));
+    }
+    
 }
\ No newline at end of file
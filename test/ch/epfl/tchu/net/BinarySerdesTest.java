@@ -0,0 +1,165 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Constants;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicCardState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.PublicPlayerState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySerdesTest {
+
+    private static final List<Route> ROUTES = ChMap.routes();
+    private static final List<Ticket> TICKETS = ChMap.tickets();
+
+    // Les routes décodées sont dans l'ordre de ChMap, quel que soit l'ordre des routes encodées
+    private static List<Route> inChMapOrder(List<Route> routes) {
+        return routes.stream()
+                .sorted(Comparator.comparingInt(Route::index))
+                .collect(Collectors.toList());
+    }
+
+    // Retourne une liste de n routes distinctes, dans un ordre aléatoire
+    private static List<Route> randomRoutes(Random rng, int n) {
+        List<Route> routes = new ArrayList<>(ROUTES);
+        Collections.shuffle(routes, rng);
+        return routes.subList(0, n);
+    }
+
+    private static SortedBag<Card> randomCards(Random rng) {
+        SortedBag.Builder<Card> cardsB = new SortedBag.Builder<>();
+        for (Card c : Card.ALL)
+            cardsB.add(rng.nextInt(rng.nextBoolean() ? 4 : 200), c);
+        return cardsB.build();
+    }
+
+    private static SortedBag<Ticket> randomTickets(Random rng) {
+        SortedBag.Builder<Ticket> ticketsB = new SortedBag.Builder<>();
+        for (Ticket t : TICKETS) {
+            if (rng.nextInt(4) == 0)
+                ticketsB.add(t);
+        }
+        return ticketsB.build();
+    }
+
+    private static PublicGameState randomGameState(Random rng, List<Route> routes1, List<Route> routes2, PlayerId lastPlayer) {
+        List<Card> faceUpCards = new ArrayList<>();
+        for (int i = 0; i < Constants.FACE_UP_CARDS_COUNT; ++i)
+            faceUpCards.add(Card.ALL.get(rng.nextInt(Card.COUNT)));
+
+        Map<PlayerId, PublicPlayerState> playerState = new EnumMap<>(PlayerId.class);
+        playerState.put(PlayerId.PLAYER_1, new PublicPlayerState(rng.nextInt(50), rng.nextInt(500), routes1));
+        playerState.put(PlayerId.PLAYER_2, new PublicPlayerState(rng.nextInt(50), rng.nextInt(500), routes2));
+
+        return new PublicGameState(
+                rng.nextInt(TICKETS.size() + 1),
+                new PublicCardState(faceUpCards, rng.nextInt(200), rng.nextInt(200)),
+                PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)),
+                playerState,
+                lastPlayer
+        );
+    }
+
+    private static PublicGameState randomGameState(Random rng) {
+        List<Route> routes = randomRoutes(rng, rng.nextInt(ROUTES.size() + 1));
+        int split = rng.nextInt(routes.size() + 1);
+        PlayerId lastPlayer = rng.nextInt(3) == 0 ? null : PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT));
+
+        return randomGameState(rng, routes.subList(0, split), routes.subList(split, routes.size()), lastPlayer);
+    }
+
+    private static void assertRoundTrips(PublicGameState expected) {
+        PublicGameState actual = BinarySerdes.PUBLIC_GAME_STATE.deserialize(
+                BinarySerdes.PUBLIC_GAME_STATE.serialize(expected));
+
+        assertEquals(expected.ticketsCount(), actual.ticketsCount());
+        assertEquals(expected.cardState().faceUpCards(), actual.cardState().faceUpCards());
+        assertEquals(expected.cardState().deckSize(), actual.cardState().deckSize());
+        assertEquals(expected.cardState().discardsSize(), actual.cardState().discardsSize());
+        assertEquals(expected.currentPlayerId(), actual.currentPlayerId());
+        for (PlayerId id : PlayerId.ALL) {
+            PublicPlayerState expectedPlayer = expected.playerState(id);
+            PublicPlayerState actualPlayer = actual.playerState(id);
+            assertEquals(expectedPlayer.ticketCount(), actualPlayer.ticketCount());
+            assertEquals(expectedPlayer.cardCount(), actualPlayer.cardCount());
+            assertEquals(inChMapOrder(expectedPlayer.routes()), actualPlayer.routes());
+        }
+        assertEquals(expected.lastPlayer(), actual.lastPlayer());
+    }
+
+    private static void assertRoundTrips(PlayerState expected) {
+        PlayerState actual = BinarySerdes.PLAYER_STATE.deserialize(BinarySerdes.PLAYER_STATE.serialize(expected));
+
+        assertEquals(expected.tickets(), actual.tickets());
+        assertEquals(expected.cards(), actual.cards());
+        assertEquals(inChMapOrder(expected.routes()), actual.routes());
+    }
+
+    @Test
+    void publicGameStateRoundTrips() {
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i)
+            assertRoundTrips(randomGameState(rng));
+    }
+
+    @Test
+    void publicGameStateWithoutRoutesNorLastPlayerRoundTrips() {
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i)
+            assertRoundTrips(randomGameState(rng, List.of(), List.of(), null));
+    }
+
+    @Test
+    void publicGameStateWithAllRoutesRoundTrips() {
+        assertEquals(88, ROUTES.size());
+
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            List<Route> routes = randomRoutes(rng, ROUTES.size());
+            int split = rng.nextInt(routes.size() + 1);
+            PlayerId lastPlayer = rng.nextBoolean() ? null : PlayerId.PLAYER_2;
+
+            assertRoundTrips(randomGameState(rng, routes.subList(0, split), routes.subList(split, routes.size()), lastPlayer));
+            assertRoundTrips(randomGameState(rng, routes, List.of(), lastPlayer));
+            assertRoundTrips(randomGameState(rng, List.of(), routes, lastPlayer));
+        }
+    }
+
+    @Test
+    void playerStateRoundTrips() {
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            List<Route> routes = randomRoutes(rng, rng.nextInt(ROUTES.size() + 1));
+            assertRoundTrips(new PlayerState(randomTickets(rng), randomCards(rng), routes));
+        }
+    }
+
+    @Test
+    void playerStateWithoutOrWithAllRoutesRoundTrips() {
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            assertRoundTrips(new PlayerState(randomTickets(rng), randomCards(rng), List.of()));
+            assertRoundTrips(new PlayerState(randomTickets(rng), randomCards(rng), randomRoutes(rng, ROUTES.size())));
+        }
+        assertRoundTrips(new PlayerState(SortedBag.of(), SortedBag.of(), List.of()));
+    }
+
+}
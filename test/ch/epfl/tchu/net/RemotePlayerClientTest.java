@@ -0,0 +1,140 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemotePlayerClientTest {
+
+    private static final String TOKEN = "jeton";
+
+    private static final class RecordingPlayer implements Player {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) { calls.add("init " + ownId); }
+
+        @Override
+        public void receiveInfo(String info) { calls.add("info " + info); }
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) { calls.add("state"); }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public TurnKind nextTurn() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int drawSlot() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Route claimedRoute() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) { throw new UnsupportedOperationException(); }
+    }
+
+    // Connexion du serveur simulé avec le client
+    private static final class Connection implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader reader;
+        final Writer writer;
+
+        Connection(ServerSocket server) throws IOException {
+            socket = server.accept();
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), US_ASCII));
+            writer = new OutputStreamWriter(socket.getOutputStream(), US_ASCII);
+        }
+
+        void send(String... messages) throws IOException {
+            for (String message : messages)
+                writer.write(message + '\n');
+            writer.flush();
+        }
+
+        // Identifie le client, et retourne les parties de sa réponse
+        String[] session() throws IOException {
+            send(MessageId.SESSION.name());
+            return Serde.split(reader.readLine(), Serde.SPACE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    void resumedGameDoesNotInitializeThePlayerAgain() throws Exception {
+        GameState state = GameState.initial(SortedBag.of(ChMap.tickets()), new Random(2021));
+        String initPlayers = String.join(" ", MessageId.INIT_PLAYERS.name(),
+                Serdes.PLAYER_ID.serialize(PlayerId.PLAYER_1),
+                Serdes.STRING_LIST.serialize(List.of("Ada", "Charles")),
+                Serdes.STRING.serialize(TOKEN));
+        String updateState = String.join(" ", MessageId.UPDATE_STATE.name(),
+                Serdes.PUBLIC_GAME_STATE.serialize(state),
+                Serdes.PLAYER_STATE.serialize(state.playerState(PlayerId.PLAYER_1)));
+
+        RecordingPlayer player = new RecordingPlayer();
+        try (ServerSocket server = new ServerSocket(0)) {
+            RemotePlayerClient client = new RemotePlayerClient(player, "localhost", server.getLocalPort());
+            Thread clientThread = new Thread(client);
+            clientThread.setDaemon(true);
+            clientThread.start();
+
+            // Début de la partie, puis arrêt brutal du serveur
+            try (Connection connection = new Connection(server)) {
+                assertEquals("", Serdes.STRING.deserialize(connection.session()[0]));
+                connection.send(initPlayers, updateState);
+            }
+
+            // Reprise de la partie par le serveur redémarré, qui initialise à nouveau les joueurs
+            try (Connection connection = new Connection(server)) {
+                String[] response = connection.session();
+                assertEquals(TOKEN, Serdes.STRING.deserialize(response[0]));
+                assertEquals(2, Serdes.INTEGER.deserialize(response[1]));
+                connection.send(initPlayers, updateState, MessageId.END_SESSION.name());
+            }
+
+            clientThread.join(10_000);
+            assertFalse(clientThread.isAlive());
+        }
+
+        assertEquals(List.of("init PLAYER_1", "state", "state"), player.calls);
+    }
+
+}
@@ -0,0 +1,547 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.PublicPlayerState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemotePlayerProxyTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+    private static final Map<PlayerId, String> NAMES = Map.of(PlayerId.PLAYER_1, "Ada", PlayerId.PLAYER_2, "Charles");
+    private static final List<WireFormat> FORMATS = List.of(WireFormat.BINARY, WireFormat.TEXT);
+
+    // Serveur identifiant les clients comme GameServer, et permettant de couper leur connexion
+    private static final class Loopback implements AutoCloseable {
+        private final ServerSocketChannel server;
+        private final Map<String, RemotePlayerProxy> proxies = new ConcurrentHashMap<>();
+        private final Map<String, SocketChannel> sockets = new ConcurrentHashMap<>();
+
+        Loopback() throws IOException {
+            server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        }
+
+        int port() throws IOException {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        }
+
+        // Identifie le client de la connexion donnée, et retourne les parties de sa réponse
+        private static String[] handshake(LineChannel channel) {
+            channel.write(MessageId.SESSION.name());
+            channel.newLine();
+            channel.flush();
+            return Serde.split(channel.readLine(), Serde.SPACE);
+        }
+
+        // Accepte la première connexion d'un client, et retourne son mandataire
+        RemotePlayerProxy accept(String token) throws IOException {
+            SocketChannel socket = server.accept();
+            LineChannel channel = new LineChannel(socket);
+            assertEquals("", Serdes.STRING.deserialize(handshake(channel)[0]));
+
+            RemotePlayerProxy proxy = new RemotePlayerProxy(channel, FORMATS, token, 0);
+            proxies.put(token, proxy);
+            sockets.put(token, socket);
+            return proxy;
+        }
+
+        // Transmet les reconnexions des clients à leur mandataire, sur un autre fil
+        void acceptReconnections() {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        SocketChannel socket = server.accept();
+                        LineChannel channel = new LineChannel(socket);
+                        String[] response = handshake(channel);
+                        String token = Serdes.STRING.deserialize(response[0]);
+                        sockets.put(token, socket);
+                        proxies.get(token).reconnect(channel, Serdes.INTEGER.deserialize(response[1]), response[2]);
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    // Le serveur a été fermé
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        // Coupe la connexion courante du client au jeton donné
+        void drop(String token) {
+            try {
+                sockets.get(token).close();
+            } catch (IOException ignored) {}
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+
+    private static String describe(PublicGameState gameState, PlayerState ownState) {
+        // Les routes d'un état décodé du format binaire sont dans l'ordre de ChMap
+        List<String> players = new ArrayList<>();
+        for (PlayerId id : PlayerId.ALL) {
+            PublicPlayerState p = gameState.playerState(id);
+            players.add(p.ticketCount() + "/" + p.cardCount() + "/" + routeIds(p.routes()));
+        }
+        return String.join(" ",
+                String.valueOf(gameState.ticketsCount()),
+                gameState.cardState().faceUpCards().toString(),
+                gameState.cardState().deckSize() + "/" + gameState.cardState().discardsSize(),
+                gameState.currentPlayerId() + "/" + gameState.lastPlayer(),
+                players.toString(),
+                ownState.tickets().toString(),
+                ownState.cards().toString(),
+                routeIds(ownState.routes()));
+    }
+
+    private static String routeIds(List<Route> routes) {
+        return routes.stream().map(Route::id).sorted().collect(Collectors.toList()).toString();
+    }
+
+    // Joueur enregistrant les appels qu'il transmet au joueur donné, ainsi que leurs résultats.
+    // Les actions onCall et onResponse sont exécutées avant chaque appel
+    // et avant de retourner chaque réponse
+    private static final class RecordingPlayer implements Player {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        volatile Runnable onCall = () -> {};
+        volatile Runnable onResponse = () -> {};
+        private final Player player;
+
+        RecordingPlayer(Player player) {
+            this.player = player;
+        }
+
+        private void record(String call) {
+            onCall.run();
+            calls.add(call);
+        }
+
+        private void respond(String call, Object response) {
+            calls.set(calls.size() - 1, call + " -> " + response);
+            onResponse.run();
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {
+            record("init " + ownId + " " + new EnumMap<>(playerNames));
+            player.initPlayers(ownId, playerNames);
+        }
+
+        @Override
+        public void receiveInfo(String info) {
+            record("info " + info);
+            player.receiveInfo(info);
+        }
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            record("state " + describe(newState, ownState));
+            player.updateState(newState, ownState);
+        }
+
+        @Override
+        public void flush() {
+            player.flush();
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            record("tickets " + tickets);
+            player.setInitialTicketChoice(tickets);
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            record("initialTickets");
+            SortedBag<Ticket> tickets = player.chooseInitialTickets();
+            respond("initialTickets", tickets);
+            return tickets;
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            record("turn");
+            TurnKind turnKind = player.nextTurn();
+            respond("turn", turnKind);
+            return turnKind;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            record("chooseTickets " + options);
+            SortedBag<Ticket> tickets = player.chooseTickets(options);
+            respond("chooseTickets " + options, tickets);
+            return tickets;
+        }
+
+        @Override
+        public int drawSlot() {
+            record("slot");
+            int slot = player.drawSlot();
+            respond("slot", slot);
+            return slot;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            record("route");
+            Route route = player.claimedRoute();
+            respond("route", route.id());
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            record("claimCards");
+            SortedBag<Card> cards = player.initialClaimCards();
+            respond("claimCards", cards);
+            return cards;
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            record("additionalCards " + options);
+            SortedBag<Card> cards = player.chooseAdditionalCards(options);
+            respond("additionalCards " + options, cards);
+            return cards;
+        }
+    }
+
+    private static final class RandomPlayer implements Player {
+        private final Random rng;
+        private PublicGameState gameState;
+        private PlayerState ownState;
+        private SortedBag<Ticket> initialTickets;
+        private Route route;
+
+        RandomPlayer(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {}
+
+        @Override
+        public void receiveInfo(String info) {}
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            this.gameState = newState;
+            this.ownState = ownState;
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            initialTickets = tickets;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            return SortedBag.of(initialTickets.toList().subList(0, 3 + rng.nextInt(3)));
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            List<Route> claimable = new ArrayList<>();
+            for (Route r : ChMap.routes()) {
+                if (gameState.claimedRouteSet().isFree(r) && ownState.canClaimRoute(r))
+                    claimable.add(r);
+            }
+
+            if (! claimable.isEmpty() && rng.nextInt(3) > 0) {
+                route = claimable.get(rng.nextInt(claimable.size()));
+                return TurnKind.CLAIM_ROUTE;
+            }
+            if (gameState.canDrawTickets() && (rng.nextInt(10) == 0 || ! gameState.canDrawCards()))
+                return TurnKind.DRAW_TICKETS;
+            return TurnKind.DRAW_CARDS;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            return SortedBag.of(options.get(rng.nextInt(options.size())));
+        }
+
+        @Override
+        public int drawSlot() {
+            return rng.nextInt(6) - 1;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            List<SortedBag<Card>> options = ownState.possibleClaimCards(route);
+            return options.get(rng.nextInt(options.size()));
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            return rng.nextBoolean() ? options.get(rng.nextInt(options.size())) : SortedBag.of();
+        }
+    }
+
+    private static Thread startClient(Player player, int port) {
+        Thread client = new Thread(new RemotePlayerClient(player, "localhost", port));
+        client.setDaemon(true);
+        client.start();
+        return client;
+    }
+
+    private static void awaitCalls(RecordingPlayer player, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (player.calls.size() < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(count, player.calls.size());
+    }
+
+    // Attend que le fil donné attende la reconnexion d'un client : une lecture en cours
+    // lors de la fermeture de sa connexion peut sinon encore recevoir des données
+    private static void awaitReconnectionWait(Thread thread) {
+        while (thread.getState() != Thread.State.TIMED_WAITING)
+            Thread.onSpinWait();
+    }
+
+    private static void assertTerminates(Thread thread) throws InterruptedException {
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+    }
+
+    // États successifs d'une partie, dont les routes ne sont pas prises dans l'ordre de ChMap
+    private static List<GameState> successiveStates() {
+        List<Route> routes = ChMap.routes();
+        GameState initial = GameState.initial(TICKETS, new Random(2021));
+        GameState withTickets = initial
+                .withInitiallyChosenTickets(PlayerId.PLAYER_1, initial.topTickets(3))
+                .withoutTopTickets(3);
+        GameState withRoutes = withTickets
+                .withClaimedRoute(routes.get(routes.size() - 1), SortedBag.of())
+                .withClaimedRoute(routes.get(0), SortedBag.of());
+        GameState nextTurn = withRoutes
+                .forNextTurn()
+                .withClaimedRoute(routes.get(routes.size() / 2), SortedBag.of())
+                .withClaimedRoute(routes.get(1), SortedBag.of());
+
+        return List.of(initial, withTickets, withRoutes, nextTurn);
+    }
+
+    // Transmet les états donnés à un client proposant les formats donnés, qui répond à CHOOSE_FORMAT
+    // comme RemotePlayerClient, et retourne tous les messages reçus par ce client
+    private static List<String> exchangeStates(List<WireFormat> offeredFormats, List<GameState> states) throws Exception {
+        List<String> messages = new ArrayList<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             LineChannel client = new LineChannel(SocketChannel.open(server.getLocalAddress()))) {
+            RemotePlayerProxy proxy = new RemotePlayerProxy(server.accept().socket(), offeredFormats);
+            CompletableFuture<Void> game = CompletableFuture.runAsync(() -> {
+                proxy.initPlayers(PlayerId.PLAYER_1, NAMES);
+                for (GameState state : states)
+                    proxy.updateState(state, state.playerState(PlayerId.PLAYER_1));
+                proxy.flush();
+                proxy.close();
+            });
+
+            String message;
+            while ((message = client.readLine()) != null) {
+                messages.add(message);
+                String[] split = Serde.split(message, Serde.SPACE);
+                if (MessageId.valueOf(split[0]) == MessageId.CHOOSE_FORMAT) {
+                    client.write(WireFormat.SERDE.serialize(WireFormat.LIST_SERDE.deserialize(split[1]).get(0)));
+                    client.newLine();
+                    client.flush();
+                }
+            }
+            game.get(10, TimeUnit.SECONDS);
+        }
+        return messages;
+    }
+
+    // Vérifie que les formats donnés ont été proposés au client, que les états complets sont encodés
+    // dans le format donné, et que les suivants sont des différences ssi le format a été négocié
+    private static void assertNegotiated(List<WireFormat> offeredFormats, WireFormat expectedFormat) throws Exception {
+        List<GameState> states = successiveStates();
+        List<String> messages = exchangeStates(offeredFormats, states);
+        boolean negotiated = ! offeredFormats.equals(List.of(WireFormat.TEXT));
+
+        int i = 0;
+        if (negotiated) {
+            assertEquals(
+                    String.join(" ", MessageId.CHOOSE_FORMAT.name(), WireFormat.LIST_SERDE.serialize(offeredFormats)),
+                    messages.get(i++));
+        }
+        assertTrue(messages.get(i++).startsWith(MessageId.INIT_PLAYERS.name() + " "));
+        assertEquals(i + states.size(), messages.size());
+
+        PublicGameState gameState = null;
+        PlayerState ownState = null;
+        for (GameState state : states) {
+            String[] split = Serde.split(messages.get(i++), Serde.SPACE);
+            if (gameState == null || ! negotiated) {
+                assertEquals(MessageId.UPDATE_STATE, MessageId.valueOf(split[0]));
+                gameState = expectedFormat.publicGameState().deserialize(split[1]);
+                ownState = expectedFormat.playerState().deserialize(split[2]);
+            } else {
+                assertEquals(MessageId.UPDATE_STATE_DELTA, MessageId.valueOf(split[0]));
+                gameState = StateDelta.applyPublic(gameState, split[1]);
+                ownState = StateDelta.applyOwn(ownState, gameState.playerState(PlayerId.PLAYER_1).routes(), split[2]);
+            }
+            assertEquals(describe(state, state.playerState(PlayerId.PLAYER_1)), describe(gameState, ownState));
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void textualFormatAloneIsNotNegotiated() throws Exception {
+        assertNegotiated(List.of(WireFormat.TEXT), WireFormat.TEXT);
+    }
+
+    @Test
+    @Timeout(60)
+    void binaryFormatAloneIsNegotiated() throws Exception {
+        assertNegotiated(List.of(WireFormat.BINARY), WireFormat.BINARY);
+    }
+
+    @Test
+    @Timeout(60)
+    void preferredBinaryFormatIsNegotiated() throws Exception {
+        assertNegotiated(List.of(WireFormat.BINARY, WireFormat.TEXT), WireFormat.BINARY);
+    }
+
+    @Test
+    @Timeout(60)
+    void preferredTextualFormatIsNegotiated() throws Exception {
+        assertNegotiated(List.of(WireFormat.TEXT, WireFormat.BINARY), WireFormat.TEXT);
+    }
+
+    // Une perte de connexion mal reprise bloque le mandataire ou le client
+    @Test
+    @Timeout(60)
+    void messagesAreReceivedExactlyOnceDespiteConnectionLosses() throws Exception {
+        String token = "jeton";
+        GameState state = GameState.initial(TICKETS, new Random(2021));
+        RecordingPlayer client = new RecordingPlayer(new RandomPlayer(2021));
+
+        try (Loopback loopback = new Loopback()) {
+            Thread clientThread = startClient(client, loopback.port());
+            RecordingPlayer server = new RecordingPlayer(loopback.accept(token));
+            loopback.acceptReconnections();
+
+            server.initPlayers(PlayerId.PLAYER_1, NAMES);
+            server.receiveInfo("a");
+            server.flush();
+            awaitCalls(client, 2);
+
+            // Entre deux messages : les messages suivants sont envoyés après la reconnexion
+            loopback.drop(token);
+            server.updateState(state, state.playerState(PlayerId.PLAYER_1));
+            server.setInitialTicketChoice(state.topTickets(5));
+            server.chooseInitialTickets();
+
+            // Pendant une demande, avant que le client ne l'ait reçue
+            server.receiveInfo("b");
+            loopback.drop(token);
+            server.nextTurn();
+
+            // Pendant une demande, après que le client y a répondu : sa réponse est renvoyée
+            Thread game = Thread.currentThread();
+            client.onResponse = () -> {
+                client.onResponse = () -> {};
+                loopback.drop(token);
+                awaitReconnectionWait(game);
+            };
+            server.drawSlot();
+            server.nextTurn();
+
+            // Avant la fin de la session : les derniers messages sont remis après la reconnexion
+            server.receiveInfo("c");
+            loopback.drop(token);
+            ((RemotePlayerProxy) server.player).close();
+
+            assertTerminates(clientThread);
+            assertEquals("info c", client.calls.get(client.calls.size() - 1));
+            assertEquals(server.calls, client.calls);
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void gameCompletesDespiteConnectionLosses() throws Exception {
+        Random seeds = TestRandomizer.newRandom();
+        Map<PlayerId, RecordingPlayer> clients = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, RecordingPlayer> servers = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, Thread> clientThreads = new EnumMap<>(PlayerId.class);
+
+        try (Loopback loopback = new Loopback()) {
+            for (PlayerId id : PlayerId.ALL) {
+                String token = "jeton-" + id.ordinal();
+                RecordingPlayer client = new RecordingPlayer(new RandomPlayer(seeds.nextLong()));
+                clientThreads.put(id, startClient(client, loopback.port()));
+                RecordingPlayer server = new RecordingPlayer(loopback.accept(token));
+
+                // Le mandataire perd la connexion avant certains messages,
+                // et le client après certaines de ses réponses
+                int[] callCount = {0};
+                server.onCall = () -> {
+                    if (++callCount[0] % 11 == 0)
+                        loopback.drop(token);
+                };
+                int[] responseCount = {0};
+                client.onResponse = () -> {
+                    if (++responseCount[0] % 5 == 0)
+                        loopback.drop(token);
+                };
+
+                clients.put(id, client);
+                servers.put(id, server);
+            }
+            loopback.acceptReconnections();
+
+            Game.play(new EnumMap<>(servers), NAMES, TICKETS, new Random(seeds.nextLong()));
+            for (RecordingPlayer server : servers.values())
+                ((RemotePlayerProxy) server.player).close();
+
+            for (Thread clientThread : clientThreads.values())
+                assertTerminates(clientThread);
+        }
+
+        for (PlayerId id : PlayerId.ALL) {
+            List<String> calls = servers.get(id).calls;
+            assertTrue(calls.get(calls.size() - 1).startsWith("info "));
+            assertEquals(calls, clients.get(id).calls);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package ch.epfl.tchu.net;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.PublicPlayerState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateDeltaTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+    private static final Map<PlayerId, String> NAMES = Map.of(PlayerId.PLAYER_1, "Ada", PlayerId.PLAYER_2, "Charles");
+    private static final int GAMES_COUNT = 20;
+
+    // Joueur jouant au hasard, et mémorisant tous les états qu'il reçoit
+    private static final class RandomPlayer implements Player {
+        private final Random rng;
+        private final List<PublicGameState> gameStates = new ArrayList<>();
+        private final List<PlayerState> ownStates = new ArrayList<>();
+        private PublicGameState gameState;
+        private PlayerState ownState;
+        private SortedBag<Ticket> initialTickets;
+        private Route route;
+
+        RandomPlayer(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {}
+
+        @Override
+        public void receiveInfo(String info) {}
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            this.gameState = newState;
+            this.ownState = ownState;
+            gameStates.add(newState);
+            ownStates.add(ownState);
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            initialTickets = tickets;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            return SortedBag.of(initialTickets.toList().subList(0, 3 + rng.nextInt(3)));
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            List<Route> claimable = new ArrayList<>();
+            for (Route r : ChMap.routes()) {
+                if (gameState.claimedRouteSet().isFree(r) && ownState.canClaimRoute(r))
+                    claimable.add(r);
+            }
+
+            if (! claimable.isEmpty() && rng.nextInt(3) > 0) {
+                route = claimable.get(rng.nextInt(claimable.size()));
+                return TurnKind.CLAIM_ROUTE;
+            }
+            if (gameState.canDrawTickets() && (rng.nextInt(10) == 0 || ! gameState.canDrawCards()))
+                return TurnKind.DRAW_TICKETS;
+            return TurnKind.DRAW_CARDS;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            return SortedBag.of(options.get(rng.nextInt(options.size())));
+        }
+
+        @Override
+        public int drawSlot() {
+            return rng.nextInt(6) - 1;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            List<SortedBag<Card>> options = ownState.possibleClaimCards(route);
+            return options.get(rng.nextInt(options.size()));
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            return rng.nextBoolean() ? options.get(rng.nextInt(options.size())) : SortedBag.of();
+        }
+    }
+
+    // L'encodage binaire ne conserve pas l'ordre des routes, qui ne sont alors comparées qu'en tant qu'ensembles
+    private static void assertSameRoutes(List<Route> expected, List<Route> actual, boolean ordered) {
+        if (ordered)
+            assertEquals(expected, actual);
+        else {
+            assertEquals(expected.size(), actual.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        }
+    }
+
+    private static void assertSameState(PublicGameState expected, PublicGameState actual, boolean ordered) {
+        assertEquals(expected.ticketsCount(), actual.ticketsCount());
+        assertEquals(expected.cardState().faceUpCards(), actual.cardState().faceUpCards());
+        assertEquals(expected.cardState().deckSize(), actual.cardState().deckSize());
+        assertEquals(expected.cardState().discardsSize(), actual.cardState().discardsSize());
+        assertEquals(expected.currentPlayerId(), actual.currentPlayerId());
+        for (PlayerId id : PlayerId.ALL) {
+            PublicPlayerState expectedPlayer = expected.playerState(id);
+            PublicPlayerState actualPlayer = actual.playerState(id);
+            assertEquals(expectedPlayer.ticketCount(), actualPlayer.ticketCount());
+            assertEquals(expectedPlayer.cardCount(), actualPlayer.cardCount());
+            assertSameRoutes(expectedPlayer.routes(), actualPlayer.routes(), ordered);
+        }
+        assertEquals(expected.lastPlayer(), actual.lastPlayer());
+    }
+
+    private static void assertSameState(PlayerState expected, PlayerState actual, boolean ordered) {
+        assertEquals(expected.tickets(), actual.tickets());
+        assertEquals(expected.cards(), actual.cards());
+        assertSameRoutes(expected.routes(), actual.routes(), ordered);
+    }
+
+    // Joue une partie au hasard et retourne les joueurs, qui ont mémorisé tous les états reçus
+    private static Map<PlayerId, RandomPlayer> playRandomGame(Random rng) {
+        Map<PlayerId, RandomPlayer> players = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            players.put(id, new RandomPlayer(rng.nextLong()));
+        Game.play(new EnumMap<>(players), NAMES, TICKETS, new Random(rng.nextLong()), Runnable::run);
+
+        return players;
+    }
+
+    @Test
+    void appliedDeltasReproduceTheFullStates() {
+        Random rng = TestRandomizer.newRandom();
+        int reorderedCount = 0;
+        for (int i = 0; i < GAMES_COUNT; ++i) {
+            for (Map.Entry<PlayerId, RandomPlayer> e : playRandomGame(rng).entrySet()) {
+                PlayerId ownId = e.getKey();
+                List<PublicGameState> gameStates = e.getValue().gameStates;
+                List<PlayerState> ownStates = e.getValue().ownStates;
+                assertFalse(gameStates.size() < 2);
+
+                // Client n'ayant reçu que le premier état complet, puis uniquement des différences
+                PublicGameState textState = Serdes.PUBLIC_GAME_STATE.deserialize(
+                        Serdes.PUBLIC_GAME_STATE.serialize(gameStates.get(0)));
+                PlayerState textOwn = Serdes.PLAYER_STATE.deserialize(
+                        Serdes.PLAYER_STATE.serialize(ownStates.get(0)));
+
+                for (int j = 1; j < gameStates.size(); ++j) {
+                    PublicGameState from = gameStates.get(j - 1);
+                    PlayerState fromOwn = ownStates.get(j - 1);
+                    PublicGameState to = gameStates.get(j);
+                    PlayerState toOwn = ownStates.get(j);
+
+                    // Au cours d'une partie, les routes et les billets ne font que s'accumuler
+                    assertTrue(StateDelta.canEncode(from, fromOwn, to, toOwn));
+                    String publicDelta = StateDelta.serializePublic(from, to);
+                    String ownDelta = StateDelta.serializeOwn(fromOwn, toOwn);
+
+                    textState = StateDelta.applyPublic(textState, publicDelta);
+                    textOwn = StateDelta.applyOwn(textOwn, textState.playerState(ownId).routes(), ownDelta);
+                    assertSameState(to, textState, true);
+                    assertSameState(toOwn, textOwn, true);
+
+                    // Client ayant reçu l'état précédent complet en binaire, avec ses routes dans l'ordre de ChMap
+                    PublicGameState binaryFrom = BinarySerdes.PUBLIC_GAME_STATE.deserialize(
+                            BinarySerdes.PUBLIC_GAME_STATE.serialize(from));
+                    if (! binaryFrom.playerState(ownId).routes().equals(from.playerState(ownId).routes()))
+                        ++reorderedCount;
+                    PublicGameState binaryState = StateDelta.applyPublic(binaryFrom, publicDelta);
+                    PlayerState binaryOwn = StateDelta.applyOwn(
+                            BinarySerdes.PLAYER_STATE.deserialize(BinarySerdes.PLAYER_STATE.serialize(fromOwn)),
+                            binaryState.playerState(ownId).routes(),
+                            ownDelta);
+                    assertSameState(to, binaryState, false);
+                    assertSameState(toOwn, binaryOwn, false);
+                }
+            }
+        }
+        assertTrue(reorderedCount > 0);
+    }
+
+    @Test
+    void canEncodeFailsWithoutPreviousState() {
+        GameState state = GameState.initial(TICKETS, TestRandomizer.newRandom());
+        PlayerState own = state.playerState(PlayerId.PLAYER_1);
+
+        assertFalse(StateDelta.canEncode(null, own, state, own));
+        assertFalse(StateDelta.canEncode(state, null, state, own));
+        assertTrue(StateDelta.canEncode(state, own, state, own));
+    }
+
+    @Test
+    void canEncodeFailsWhenRoutesOrTicketsAreRemoved() {
+        Random rng = TestRandomizer.newRandom();
+        for (int i = 0; i < GAMES_COUNT; ++i) {
+            RandomPlayer player = playRandomGame(rng).get(PlayerId.PLAYER_1);
+            List<PublicGameState> gameStates = player.gameStates;
+            List<PlayerState> ownStates = player.ownStates;
+            int last = gameStates.size() - 1;
+
+            PublicGameState first = gameStates.get(0);
+            PlayerState firstOwn = ownStates.get(0);
+            PublicGameState end = gameStates.get(last);
+            PlayerState endOwn = ownStates.get(last);
+
+            assertTrue(StateDelta.canEncode(first, firstOwn, end, endOwn));
+            assertFalse(StateDelta.canEncode(end, endOwn, first, firstOwn));
+            assertFalse(StateDelta.canEncode(end, endOwn, end, firstOwn));
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+package ch.epfl.tchu.replay;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Game;
+import ch.epfl.tchu.game.GameSnapshot;
+import ch.epfl.tchu.game.GameState;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+    private static final Map<PlayerId, String> NAMES = Map.of(PlayerId.PLAYER_1, "Ada", PlayerId.PLAYER_2, "Charles");
+
+    private static final class RandomPlayer implements Player {
+        private final Random rng;
+        private PublicGameState gameState;
+        private PlayerState ownState;
+        private SortedBag<Ticket> initialTickets;
+        private Route route;
+        private int turnCount = 0;
+
+        RandomPlayer(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {}
+
+        @Override
+        public void receiveInfo(String info) {}
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            this.gameState = newState;
+            this.ownState = ownState;
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            initialTickets = tickets;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            return SortedBag.of(initialTickets.toList().subList(0, 3 + rng.nextInt(3)));
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            ++turnCount;
+            List<Route> claimable = new ArrayList<>();
+            for (Route r : ChMap.routes()) {
+                if (gameState.claimedRouteSet().isFree(r) && ownState.canClaimRoute(r))
+                    claimable.add(r);
+            }
+
+            if (! claimable.isEmpty() && rng.nextInt(3) > 0) {
+                route = claimable.get(rng.nextInt(claimable.size()));
+                return TurnKind.CLAIM_ROUTE;
+            }
+            if (gameState.canDrawTickets() && (rng.nextInt(10) == 0 || ! gameState.canDrawCards()))
+                return TurnKind.DRAW_TICKETS;
+            return TurnKind.DRAW_CARDS;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            return SortedBag.of(options.get(rng.nextInt(options.size())));
+        }
+
+        @Override
+        public int drawSlot() {
+            return rng.nextInt(6) - 1;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            List<SortedBag<Card>> options = ownState.possibleClaimCards(route);
+            return options.get(rng.nextInt(options.size()));
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            return rng.nextBoolean() ? options.get(rng.nextInt(options.size())) : SortedBag.of();
+        }
+    }
+
+    private static void assertSamePublicState(PublicGameState expected, PublicGameState actual) {
+        assertEquals(expected.ticketsCount(), actual.ticketsCount());
+        assertEquals(expected.cardState().faceUpCards(), actual.cardState().faceUpCards());
+        assertEquals(expected.cardState().deckSize(), actual.cardState().deckSize());
+        assertEquals(expected.cardState().discardsSize(), actual.cardState().discardsSize());
+        assertEquals(expected.currentPlayerId(), actual.currentPlayerId());
+        for (PlayerId id : PlayerId.ALL)
+            assertEquals(expected.playerState(id).routes(), actual.playerState(id).routes());
+    }
+
+    @Test
+    void recordedGamesAreReplayedIdentically() throws IOException {
+        Random seeds = TestRandomizer.newRandom();
+        for (int i = 0; i < 10; ++i) {
+            long seed = seeds.nextLong();
+            Map<PlayerId, RandomPlayer> players = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL)
+                players.put(id, new RandomPlayer(seeds.nextLong()));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(out), seed, TICKETS)) {
+                Game.play(recorder.record(new EnumMap<>(players)), NAMES, TICKETS, new Random(seed));
+            }
+            byte[] log = out.toByteArray();
+
+            GameReplay replay = GameReplay.read(ByteBuffer.wrap(log));
+            assertTrue(replay.isComplete());
+            assertEquals(seed, replay.seed());
+            assertEquals(TICKETS, replay.tickets());
+            int turnCount = players.values().stream().mapToInt(p -> p.turnCount).sum();
+            assertEquals(turnCount, replay.turnCount());
+
+            GameState last = replay.lastState();
+            for (PlayerId id : PlayerId.ALL) {
+                RandomPlayer player = players.get(id);
+                assertSamePublicState(player.gameState, last);
+                assertEquals(player.ownState.tickets(), last.playerState(id).tickets());
+                assertEquals(player.ownState.cards(), last.playerState(id).cards());
+            }
+
+            // Un journal tronqué est rejoué jusqu'au dernier tour complet
+            int cut = log.length / 2;
+            GameReplay truncated = GameReplay.read(ByteBuffer.wrap(log, 0, cut));
+            assertFalse(truncated.isComplete());
+            assertTrue(truncated.turnCount() < replay.turnCount());
+            for (int turn = 0; turn <= truncated.turnCount(); ++turn)
+                assertSamePublicState(replay.state(turn), truncated.state(turn));
+        }
+    }
+
+    @Test
+    void interruptedGamesCanBeResumedFromSnapshotAndLogTail() throws IOException {
+        Random seeds = TestRandomizer.newRandom();
+        for (int i = 0; i < 5; ++i) {
+            long seed = seeds.nextLong();
+            Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL)
+                players.put(id, new RandomPlayer(seeds.nextLong()));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            List<GameSnapshot> snapshots = new ArrayList<>();
+            try (ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(out), seed, TICKETS)) {
+                Game.play(recorder.record(players), NAMES, TICKETS, new Random(seed), 1, snapshots::add, Runnable::run);
+            }
+            byte[] log = out.toByteArray();
+            GameReplay full = GameReplay.read(ByteBuffer.wrap(log));
+            assertEquals(full.turnCount(), snapshots.size());
+
+            // Interruption au milieu de la partie, le dernier instantané datant de quelques tours
+            Path path = Files.createTempFile("tchu", ".tchu");
+            try {
+                Files.write(path, Arrays.copyOf(log, log.length * 2 / 3));
+                GameReplay truncated = GameReplay.read(path);
+                GameSnapshot snapshot = snapshots.get(truncated.turnCount() - 3);
+
+                GameReplay replay = GameReplay.read(ByteBuffer.wrap(Files.readAllBytes(path)), snapshot);
+                assertEquals(snapshot.turn(), replay.firstTurn());
+                assertEquals(truncated.turnCount(), replay.turnCount());
+                for (int turn = replay.firstTurn(); turn <= replay.turnCount(); ++turn)
+                    assertSamePublicState(full.state(turn), replay.state(turn));
+
+                GameSnapshot resumePoint = replay.resumePoint();
+                assertEquals(replay.turnCount(), resumePoint.turn());
+                assertSamePublicState(full.state(resumePoint.turn()), resumePoint.state());
+
+                // La partie reprise complète le journal, qui peut alors être rejoué en entier
+                try (ReplayRecorder recorder = ReplayRecorder.append(path, replay)) {
+                    Game.resume(recorder.record(players), NAMES, resumePoint, 1, s -> {}, Runnable::run);
+                }
+                GameReplay resumed = GameReplay.read(path);
+                assertTrue(resumed.isComplete());
+                for (int turn = 0; turn <= resumePoint.turn(); ++turn)
+                    assertSamePublicState(full.state(turn), resumed.state(turn));
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void playerNamesAndSessionKeysAreRecorded() throws IOException {
+        Map<PlayerId, String> keys = Map.of(PlayerId.PLAYER_1, "clé-1", PlayerId.PLAYER_2, "clé-2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ReplayRecorder(Channels.newChannel(out), 2021, TICKETS, NAMES, keys).close();
+
+        GameReplay replay = GameReplay.read(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(NAMES, replay.playerNames());
+        assertEquals(keys, replay.sessionKeys());
+
+        out.reset();
+        new ReplayRecorder(Channels.newChannel(out), 2021, TICKETS).close();
+        replay = GameReplay.read(ByteBuffer.wrap(out.toByteArray()));
+        for (PlayerId id : PlayerId.ALL) {
+            assertEquals(id.name(), replay.playerNames().get(id));
+            assertEquals("", replay.sessionKeys().get(id));
+        }
+    }
+
+    @Test
+    void snapshotsAreOnlyTakenAtTheGivenInterval() {
+        Random seeds = TestRandomizer.newRandom();
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL)
+            players.put(id, new RandomPlayer(seeds.nextLong()));
+
+        List<GameSnapshot> snapshots = new ArrayList<>();
+        Game.play(players, NAMES, TICKETS, new Random(seeds.nextLong()), 4, snapshots::add, Runnable::run);
+        assertFalse(snapshots.isEmpty());
+        for (int i = 0; i < snapshots.size(); ++i)
+            assertEquals(4 * i, snapshots.get(i).turn());
+    }
+
+    @Test
+    void readFailsOnInvalidLog() {
+        assertThrows(IllegalArgumentException.class, () -> GameReplay.read(ByteBuffer.wrap(new byte[] { 1, 2, 3 })));
+        assertThrows(IllegalArgumentException.class, () -> GameReplay.read(ByteBuffer.wrap(new byte[16])));
+    }
+
+}
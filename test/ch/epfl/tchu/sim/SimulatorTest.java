@@ -0,0 +1,157 @@
+package ch.epfl.tchu.sim;
+
+import ch.epfl.tchu.SortedBag;
+import ch.epfl.tchu.game.Card;
+import ch.epfl.tchu.game.ChMap;
+import ch.epfl.tchu.game.Player;
+import ch.epfl.tchu.game.PlayerId;
+import ch.epfl.tchu.game.PlayerState;
+import ch.epfl.tchu.game.PublicGameState;
+import ch.epfl.tchu.game.Route;
+import ch.epfl.tchu.game.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorTest {
+
+    private static final SortedBag<Ticket> TICKETS = SortedBag.of(ChMap.tickets());
+    private static final int GAME_COUNT = 200;
+    private static final double DELTA = 1e-9;
+
+    // Joueur jouant au hasard, au moyen du générateur fourni par le simulateur
+    private static final class RandomPlayer implements Player {
+        private final Random rng;
+        private PublicGameState gameState;
+        private PlayerState ownState;
+        private SortedBag<Ticket> initialTickets;
+        private Route route;
+
+        RandomPlayer(Random rng) {
+            this.rng = rng;
+        }
+
+        @Override
+        public void initPlayers(PlayerId ownId, Map<PlayerId, String> playerNames) {}
+
+        @Override
+        public void receiveInfo(String info) {}
+
+        @Override
+        public void updateState(PublicGameState newState, PlayerState ownState) {
+            this.gameState = newState;
+            this.ownState = ownState;
+        }
+
+        @Override
+        public void setInitialTicketChoice(SortedBag<Ticket> tickets) {
+            initialTickets = tickets;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseInitialTickets() {
+            return SortedBag.of(initialTickets.toList().subList(0, 3 + rng.nextInt(3)));
+        }
+
+        @Override
+        public TurnKind nextTurn() {
+            List<Route> claimable = new ArrayList<>();
+            for (Route r : ChMap.routes()) {
+                if (gameState.claimedRouteSet().isFree(r) && ownState.canClaimRoute(r))
+                    claimable.add(r);
+            }
+
+            if (! claimable.isEmpty() && rng.nextInt(3) > 0) {
+                route = claimable.get(rng.nextInt(claimable.size()));
+                return TurnKind.CLAIM_ROUTE;
+            }
+            if (gameState.canDrawTickets() && (rng.nextInt(10) == 0 || ! gameState.canDrawCards()))
+                return TurnKind.DRAW_TICKETS;
+            return TurnKind.DRAW_CARDS;
+        }
+
+        @Override
+        public SortedBag<Ticket> chooseTickets(SortedBag<Ticket> options) {
+            return SortedBag.of(options.get(rng.nextInt(options.size())));
+        }
+
+        @Override
+        public int drawSlot() {
+            return rng.nextInt(6) - 1;
+        }
+
+        @Override
+        public Route claimedRoute() {
+            return route;
+        }
+
+        @Override
+        public SortedBag<Card> initialClaimCards() {
+            List<SortedBag<Card>> options = ownState.possibleClaimCards(route);
+            return options.get(rng.nextInt(options.size()));
+        }
+
+        @Override
+        public SortedBag<Card> chooseAdditionalCards(List<SortedBag<Card>> options) {
+            return rng.nextBoolean() ? options.get(rng.nextInt(options.size())) : SortedBag.of();
+        }
+    }
+
+    private static SimulationStats simulate(long seed) {
+        return Simulator.run(GAME_COUNT, seed, TICKETS, (id, rng) -> new RandomPlayer(rng));
+    }
+
+    private static void assertSameStats(SimulationStats expected, SimulationStats actual) {
+        assertEquals(expected.gameCount(), actual.gameCount());
+        assertEquals(expected.drawRate(), actual.drawRate());
+        assertEquals(expected.averageTurnCount(), actual.averageTurnCount());
+        for (PlayerId id : PlayerId.ALL) {
+            assertEquals(expected.winRate(id), actual.winRate(id));
+            assertEquals(expected.averagePoints(id), actual.averagePoints(id));
+            assertEquals(expected.longestTrailBonusRate(id), actual.longestTrailBonusRate(id));
+            assertEquals(expected.averageLongestTrailLength(id), actual.averageLongestTrailLength(id));
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void simulationsWithSameSeedHaveSameStats() {
+        SimulationStats stats1 = simulate(2021);
+        SimulationStats stats2 = simulate(2021);
+
+        assertEquals(GAME_COUNT, stats1.gameCount());
+        assertSameStats(stats1, stats2);
+    }
+
+    @Test
+    void everyGameIsWonOrDrawn() {
+        SimulationStats stats = simulate(2021);
+
+        double total = stats.drawRate();
+        for (PlayerId id : PlayerId.ALL)
+            total += stats.winRate(id);
+        assertEquals(1, total, DELTA);
+    }
+
+    @Test
+    void simulationWithoutGamesHasEmptyStats() {
+        SimulationStats stats = Simulator.run(0, 2021, TICKETS, (id, rng) -> new RandomPlayer(rng));
+
+        assertEquals(0, stats.gameCount());
+        assertEquals(0, stats.drawRate());
+        assertEquals(0, stats.averageTurnCount());
+    }
+
+    @Test
+    void runFailsWithNegativeGameCount() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            Simulator.run(-1, 2021, TICKETS, (id, rng) -> new RandomPlayer(rng));
+        });
+    }
+
+}